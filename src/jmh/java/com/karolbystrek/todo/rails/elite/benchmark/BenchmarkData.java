@@ -0,0 +1,93 @@
+package com.karolbystrek.todo.rails.elite.benchmark;
+
+import com.karolbystrek.todo.rails.elite.model.Task;
+import com.karolbystrek.todo.rails.elite.model.User;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Deterministic data sets shared by the benchmarks.
+ *
+ * <p>Every third task is completed and due dates are spread over a year around
+ * today, so roughly two thirds of any data set is pending and a small share of
+ * it is due today.</p>
+ */
+final class BenchmarkData {
+
+    private static final int INSERT_BATCH_SIZE = 10_000;
+
+    private BenchmarkData() {
+    }
+
+    static List<Task> tasks(int count) {
+        LocalDate today = LocalDate.now();
+        List<Task> tasks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Task task = new Task("Task " + i, "Description of task " + i, isCompleted(i), dueDate(today, i));
+            task.setId(i + 1L);
+            tasks.add(task);
+        }
+        return tasks;
+    }
+
+    static List<Task> pendingTasks(int count) {
+        return tasks(count).stream()
+                .filter(task -> !task.isCompleted())
+                .toList();
+    }
+
+    static List<User> users(int count) {
+        List<User> users = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            User user = new User("user" + i, "$2a$04$" + "x".repeat(53), "user" + i + "@example.com", "USER");
+            user.setId(i + 1L);
+            users.add(user);
+        }
+        return users;
+    }
+
+    /**
+     * Inserts the users with plain JDBC batches and returns their ids in insertion order.
+     */
+    static List<Long> insertUsers(JdbcTemplate jdbcTemplate, int count) {
+        List<Object[]> batch = users(count).stream()
+                .map(user -> new Object[]{user.getUsername(), user.getPassword(), user.getEmail(), user.getRoles()})
+                .toList();
+        jdbcTemplate.batchUpdate("insert into users (username, password, email, roles) values (?, ?, ?, ?)", batch);
+        return jdbcTemplate.queryForList("select id from users order by id", Long.class);
+    }
+
+    /**
+     * Inserts the tasks with plain JDBC batches, which is much faster than going through JPA.
+     * Tasks are dealt to the given users round robin.
+     */
+    static void insertTasks(JdbcTemplate jdbcTemplate, List<Long> userIds, int count) {
+        LocalDate today = LocalDate.now();
+        List<Object[]> batch = new ArrayList<>(INSERT_BATCH_SIZE);
+        for (int i = 0; i < count; i++) {
+            batch.add(new Object[]{
+                    i + 1L, userIds.get(i % userIds.size()), "Task " + i, "Description of task " + i, isCompleted(i),
+                    Date.valueOf(dueDate(today, i))
+            });
+            if (batch.size() == INSERT_BATCH_SIZE || i == count - 1) {
+                jdbcTemplate.batchUpdate(
+                        "insert into tasks (id, user_id, title, description, completed, due_date, version) values (?, ?, ?, ?, ?, ?, 0)",
+                        batch
+                );
+                batch.clear();
+            }
+        }
+    }
+
+    private static boolean isCompleted(int index) {
+        return index % 3 == 0;
+    }
+
+    private static LocalDate dueDate(LocalDate today, int index) {
+        return today.plusDays(index % 365 - 182);
+    }
+}
@@ -0,0 +1,60 @@
+package com.karolbystrek.todo.rails.elite.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.karolbystrek.todo.rails.elite.model.Task;
+import com.karolbystrek.todo.rails.elite.model.User;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures JSON serialization of tasks and users with an {@link ObjectMapper}
+ * configured the way Spring MVC configures its message converters. Output is
+ * discarded so only serialization is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class JsonSerializationBenchmark {
+
+    @Param({"100", "1000", "10000", "100000", "1000000"})
+    private int size;
+
+    private ObjectMapper objectMapper;
+    private List<Task> tasks;
+    private List<User> users;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        tasks = BenchmarkData.tasks(size);
+        users = BenchmarkData.users(size);
+    }
+
+    @Benchmark
+    public byte[] serializeTask() throws IOException {
+        return objectMapper.writeValueAsBytes(tasks.getFirst());
+    }
+
+    @Benchmark
+    public void serializeTaskList() throws IOException {
+        objectMapper.writeValue(OutputStream.nullOutputStream(), tasks);
+    }
+
+    @Benchmark
+    public byte[] serializeUser() throws IOException {
+        return objectMapper.writeValueAsBytes(users.getFirst());
+    }
+
+    @Benchmark
+    public void serializeUserList() throws IOException {
+        objectMapper.writeValue(OutputStream.nullOutputStream(), users);
+    }
+}
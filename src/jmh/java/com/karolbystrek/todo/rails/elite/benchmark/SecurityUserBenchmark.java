@@ -0,0 +1,45 @@
+package com.karolbystrek.todo.rails.elite.benchmark;
+
+import com.karolbystrek.todo.rails.elite.model.User;
+import com.karolbystrek.todo.rails.elite.model.security.SecurityUser;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures building a {@link SecurityUser} and reading its authorities, which
+ * happens on every authentication and authorization check.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SecurityUserBenchmark {
+
+    @Param({"USER", "USER,ADMIN", "USER,ADMIN,AUDITOR,SUPPORT,BILLING"})
+    private String roles;
+
+    private User user;
+    private SecurityUser securityUser;
+
+    @Setup
+    public void setUp() {
+        user = new User("benchmark", "password", "benchmark@example.com", roles);
+        user.setId(1L);
+        securityUser = new SecurityUser(user);
+    }
+
+    @Benchmark
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return securityUser.getAuthorities();
+    }
+
+    @Benchmark
+    public SecurityUser createSecurityUser() {
+        return new SecurityUser(user);
+    }
+}
@@ -0,0 +1,114 @@
+package com.karolbystrek.todo.rails.elite.benchmark;
+
+import com.karolbystrek.todo.rails.elite.Application;
+import com.karolbystrek.todo.rails.elite.model.CursorPage;
+import com.karolbystrek.todo.rails.elite.model.DashboardSnapshot;
+import com.karolbystrek.todo.rails.elite.model.TaskSummary;
+import com.karolbystrek.todo.rails.elite.service.TaskCounterService;
+import com.karolbystrek.todo.rails.elite.service.TaskService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the {@link TaskService} list and filter methods against an embedded
+ * H2 database in MySQL mode.
+ *
+ * <p>The second-level and query caches are switched off, so every invocation
+ * reaches the database and the numbers reflect query and mapping cost. The tasks
+ * are spread over {@code users} owners and every call reads the tasks of the
+ * first one, so comparing user counts shows how much the other users' tasks
+ * still cost.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class TaskServiceBenchmark {
+
+    @Param({"100", "1000", "10000", "100000", "1000000"})
+    private int tasks;
+
+    @Param({"1", "100"})
+    private int users;
+
+    private ConfigurableApplicationContext context;
+    private TaskService taskService;
+    private Long userId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(Application.class)
+                .web(WebApplicationType.NONE)
+                .run(
+                        "--spring.datasource.url=jdbc:h2:mem:benchmark;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_ON_EXIT=FALSE",
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=",
+                        "--spring.datasource.driver-class-name=org.h2.Driver",
+                        "--spring.jpa.hibernate.ddl-auto=create-drop",
+                        "--spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+                        "--spring.jpa.properties.hibernate.cache.use_query_cache=false",
+                        "--spring.jpa.properties.hibernate.generate_statistics=false",
+                        "--spring.devtools.restart.enabled=false",
+                        "--logging.level.root=WARN"
+                );
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        List<Long> userIds = BenchmarkData.insertUsers(jdbcTemplate, users);
+        BenchmarkData.insertTasks(jdbcTemplate, userIds, tasks);
+        userId = userIds.getFirst();
+        context.getBean(TaskCounterService.class).rebuild();
+        taskService = context.getBean(TaskService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<TaskSummary> getAllTasks() {
+        return taskService.getAllTasks(userId);
+    }
+
+    @Benchmark
+    public List<TaskSummary> getPendingTasks() {
+        return taskService.getPendingTasks(userId);
+    }
+
+    @Benchmark
+    public List<TaskSummary> getCompletedTasks() {
+        return taskService.getCompletedTasks(userId);
+    }
+
+    @Benchmark
+    public List<TaskSummary> getTodayTasks() {
+        return taskService.getTodayTasks(userId);
+    }
+
+    @Benchmark
+    public List<TaskSummary> getOverdueTasks() {
+        return taskService.getOverdueTasks(userId);
+    }
+
+    @Benchmark
+    public List<TaskSummary> getUpcomingTasks() {
+        return taskService.getUpcomingTasks(userId, 7);
+    }
+
+    @Benchmark
+    public CursorPage<TaskSummary> getTasksPage() {
+        return taskService.getTasksPage(userId, null, 20);
+    }
+
+    @Benchmark
+    public DashboardSnapshot getDashboardSnapshot() {
+        return taskService.getDashboardSnapshot(userId);
+    }
+}
@@ -0,0 +1,94 @@
+package com.karolbystrek.todo.rails.elite.benchmark;
+
+import com.karolbystrek.todo.rails.elite.model.Task;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockServletContext;
+import org.thymeleaf.context.WebContext;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
+import org.thymeleaf.web.servlet.JakartaServletWebApplication;
+
+import java.io.Writer;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures Thymeleaf rendering of the dashboard ({@code index.html}) and the task
+ * list ({@code tasks.html}) with the templates from the application.
+ *
+ * <p>The dashboard renders every pending task of the data set. The task list
+ * renders a single page of at most 100 tasks, as the controller never passes more.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class TemplateRenderingBenchmark {
+
+    private static final int MAX_PAGE_SIZE = 100;
+
+    @Param({"100", "1000", "10000", "100000", "1000000"})
+    private int tasks;
+
+    private SpringTemplateEngine templateEngine;
+    private JakartaServletWebApplication application;
+    private MockServletContext servletContext;
+    private Map<String, Object> dashboardModel;
+    private Map<String, Object> tasksModel;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ClassLoaderTemplateResolver templateResolver = new ClassLoaderTemplateResolver();
+        templateResolver.setPrefix("templates/");
+        templateResolver.setSuffix(".html");
+        templateResolver.setTemplateMode(TemplateMode.HTML);
+        templateResolver.setCharacterEncoding("UTF-8");
+        templateResolver.setCacheable(true);
+        templateEngine = new SpringTemplateEngine();
+        templateEngine.setTemplateResolver(templateResolver);
+
+        servletContext = new MockServletContext();
+        application = JakartaServletWebApplication.buildApplication(servletContext);
+
+        List<Task> allTasks = BenchmarkData.tasks(tasks);
+        List<Task> pendingTasks = allTasks.stream().filter(task -> !task.isCompleted()).toList();
+        dashboardModel = Map.of(
+                "username", "benchmark",
+                "totalPendingToday", 0L,
+                "totalPending", (long) pendingTasks.size(),
+                "totalCompleted", (long) (allTasks.size() - pendingTasks.size()),
+                "totalTasks", (long) allTasks.size(),
+                "pendingTasks", pendingTasks,
+                "todayTasks", List.of()
+        );
+        tasksModel = Map.of(
+                "username", "benchmark",
+                "tasks", allTasks.subList(0, Math.min(MAX_PAGE_SIZE, allTasks.size())),
+                "nextCursor", "MjAyNS0wMS0wMXwxMDA",
+                "firstPage", true,
+                "pageSize", MAX_PAGE_SIZE
+        );
+    }
+
+    @Benchmark
+    public void renderDashboard() {
+        templateEngine.process("index", context("/", dashboardModel), Writer.nullWriter());
+    }
+
+    @Benchmark
+    public void renderTasksPage() {
+        templateEngine.process("tasks", context("/tasks", tasksModel), Writer.nullWriter());
+    }
+
+    private WebContext context(String path, Map<String, Object> model) {
+        MockHttpServletRequest request = new MockHttpServletRequest(servletContext, "GET", path);
+        return new WebContext(application.buildExchange(request, new MockHttpServletResponse()), Locale.ENGLISH, model);
+    }
+}
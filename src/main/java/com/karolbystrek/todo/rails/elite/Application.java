@@ -2,8 +2,14 @@ package com.karolbystrek.todo.rails.elite;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcAutoConfiguration;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
-@SpringBootApplication
+// An R2DBC connection factory bean would make Spring Boot skip the JDBC data source, see ReactiveTaskRepository
+@SpringBootApplication(exclude = R2dbcAutoConfiguration.class)
+@ConfigurationPropertiesScan
+@EnableScheduling
 public class Application {
 
     public static void main(String[] args) {
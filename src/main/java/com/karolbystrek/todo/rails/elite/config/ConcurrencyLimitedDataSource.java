@@ -0,0 +1,134 @@
+package com.karolbystrek.todo.rails.elite.config;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Data source that lets at most a fixed number of threads hold a connection at once.
+ *
+ * <p>With virtual threads the number of concurrent requests is no longer capped by
+ * the Tomcat thread pool, so thousands of threads may ask the pool for a connection
+ * at the same time. Callers above the limit wait on a fair semaphore and fail fast
+ * with a {@link SQLTransientConnectionException} once the acquire timeout expires,
+ * instead of piling up inside the connection pool.</p>
+ */
+public class ConcurrencyLimitedDataSource extends DelegatingDataSource implements AutoCloseable {
+
+    private final Semaphore permits;
+    private final int maxConcurrent;
+    private final long acquireTimeoutNanos;
+
+    public ConcurrencyLimitedDataSource(DataSource targetDataSource, int maxConcurrent, Duration acquireTimeout) {
+        super(targetDataSource);
+        if (maxConcurrent < 1) {
+            throw new IllegalArgumentException("Maximum concurrency must be positive: " + maxConcurrent);
+        }
+        this.permits = new Semaphore(maxConcurrent, true);
+        this.maxConcurrent = maxConcurrent;
+        this.acquireTimeoutNanos = acquireTimeout.toNanos();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        acquire();
+        return guard(() -> super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        acquire();
+        return guard(() -> super.getConnection(username, password));
+    }
+
+    /**
+     * Returns the number of connections currently handed out through this data source.
+     *
+     * @return Number of connections in use
+     */
+    public int getActiveConnections() {
+        return maxConcurrent - permits.availablePermits();
+    }
+
+    /**
+     * Returns the number of threads waiting for a connection.
+     *
+     * @return Number of waiting threads
+     */
+    public int getWaitingThreads() {
+        return permits.getQueueLength();
+    }
+
+    /**
+     * Closes the target data source, so the pool still shuts down with the application context.
+     */
+    @Override
+    public void close() throws Exception {
+        if (obtainTargetDataSource() instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+    }
+
+    private void acquire() throws SQLException {
+        try {
+            if (!permits.tryAcquire(acquireTimeoutNanos, TimeUnit.NANOSECONDS)) {
+                throw new SQLTransientConnectionException(
+                        "Timed out waiting for one of " + maxConcurrent + " database connections"
+                );
+            }
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Interrupted while waiting for a database connection", exception);
+        }
+    }
+
+    private Connection guard(ConnectionSupplier supplier) throws SQLException {
+        Connection connection;
+        try {
+            connection = supplier.get();
+        } catch (SQLException | RuntimeException exception) {
+            permits.release();
+            throw exception;
+        }
+        AtomicBoolean released = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "equals" -> proxy == args[0];
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "close" -> {
+                        try {
+                            connection.close();
+                        } finally {
+                            if (released.compareAndSet(false, true)) {
+                                permits.release();
+                            }
+                        }
+                        yield null;
+                    }
+                    default -> {
+                        try {
+                            yield method.invoke(connection, args);
+                        } catch (InvocationTargetException exception) {
+                            throw exception.getTargetException();
+                        }
+                    }
+                }
+        );
+    }
+
+    @FunctionalInterface
+    private interface ConnectionSupplier {
+        Connection get() throws SQLException;
+    }
+}
@@ -0,0 +1,38 @@
+package com.karolbystrek.todo.rails.elite.config;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+/**
+ * Wraps the application data source with a {@link ConcurrencyLimitedDataSource}.
+ *
+ * <p>The limiter is what keeps the connection pool safe when request handling runs
+ * on virtual threads ({@code spring.threads.virtual.enabled=true}); it is cheap enough
+ * to stay enabled on platform threads as well.</p>
+ */
+@Configuration
+public class DatabaseConcurrencyConfig {
+
+    @Bean
+    static BeanPostProcessor concurrencyLimitedDataSourcePostProcessor(
+            ObjectProvider<DatabaseConcurrencyProperties> properties
+    ) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof DataSource dataSource) || bean instanceof ConcurrencyLimitedDataSource) {
+                    return bean;
+                }
+                DatabaseConcurrencyProperties limits = properties.getObject();
+                if (!limits.enabled()) {
+                    return bean;
+                }
+                return new ConcurrencyLimitedDataSource(dataSource, limits.maxConcurrent(), limits.acquireTimeout());
+            }
+        };
+    }
+}
@@ -0,0 +1,21 @@
+package com.karolbystrek.todo.rails.elite.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Limits on how many threads may hold a database connection at the same time.
+ *
+ * @param enabled        Whether the data source is wrapped with the limiter
+ * @param maxConcurrent  Maximum number of connections handed out at once, normally the pool size
+ * @param acquireTimeout How long a thread waits for a permit before the request fails
+ */
+@ConfigurationProperties(prefix = "todo.datasource.concurrency")
+public record DatabaseConcurrencyProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("10") int maxConcurrent,
+        @DefaultValue("5s") Duration acquireTimeout
+) {
+}
@@ -0,0 +1,96 @@
+package com.karolbystrek.todo.rails.elite.config;
+
+import com.karolbystrek.todo.rails.elite.service.TaskCounterService;
+import com.karolbystrek.todo.rails.elite.service.TaskNotificationService;
+import com.karolbystrek.todo.rails.elite.service.TaskReminderService;
+import com.karolbystrek.todo.rails.elite.service.TaskWriteBehindService;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import javax.sql.DataSource;
+
+/**
+ * Application specific metrics, on top of what Actuator already records.
+ *
+ * <p>Request latencies ({@code http.server.requests}), service timers ({@code todo.service},
+ * from {@code @Timed}), Hibernate statistics, HikariCP pool gauges and JVM/GC metrics
+ * are auto-configured. This class adds the number of SQL statements per request,
+ * gauges for the {@link ConcurrencyLimitedDataSource}, the number of open task
+ * event streams, the number of queued task writes, the number of scheduled
+ * task reminders and the number of users with cached task counters.</p>
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    SqlStatementCounter sqlStatementCounter() {
+        return new SqlStatementCounter();
+    }
+
+    @Bean
+    HibernatePropertiesCustomizer sqlStatementCounterCustomizer(SqlStatementCounter sqlStatementCounter) {
+        return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, sqlStatementCounter);
+    }
+
+    @Bean
+    FilterRegistrationBean<SqlStatementMetricsFilter> sqlStatementMetricsFilter(
+            SqlStatementCounter sqlStatementCounter,
+            MeterRegistry meterRegistry
+    ) {
+        FilterRegistrationBean<SqlStatementMetricsFilter> registration = new FilterRegistrationBean<>(
+                new SqlStatementMetricsFilter(sqlStatementCounter, meterRegistry)
+        );
+        // Run outside the security filter chain, so the user lookup of each request is counted as well.
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 2);
+        return registration;
+    }
+
+    @Bean
+    MeterBinder databaseConcurrencyMetrics(DataSource dataSource) {
+        return registry -> {
+            if (dataSource instanceof ConcurrencyLimitedDataSource limited) {
+                Gauge.builder("todo.datasource.limiter.active", limited, ConcurrencyLimitedDataSource::getActiveConnections)
+                        .description("Connections currently handed out through the concurrency limiter")
+                        .register(registry);
+                Gauge.builder("todo.datasource.limiter.waiting", limited, ConcurrencyLimitedDataSource::getWaitingThreads)
+                        .description("Threads waiting for a connection permit")
+                        .register(registry);
+            }
+        };
+    }
+
+    @Bean
+    MeterBinder taskEventStreamMetrics(TaskNotificationService taskNotificationService) {
+        return registry -> Gauge.builder("todo.task.events.subscribers", taskNotificationService, TaskNotificationService::getSubscriberCount)
+                .description("Open Server-Sent Events streams of task notifications")
+                .register(registry);
+    }
+
+    @Bean
+    MeterBinder taskWriteBehindMetrics(TaskWriteBehindService taskWriteBehindService) {
+        return registry -> Gauge.builder("todo.task.write-behind.pending", taskWriteBehindService, TaskWriteBehindService::getPendingCount)
+                .description("Tasks with a queued completion or reschedule not yet written")
+                .register(registry);
+    }
+
+    @Bean
+    MeterBinder taskReminderMetrics(TaskReminderService taskReminderService) {
+        return registry -> Gauge.builder("todo.task.reminders.scheduled", taskReminderService, TaskReminderService::getScheduledCount)
+                .description("Pending tasks waiting to become due or overdue")
+                .register(registry);
+    }
+
+    @Bean
+    MeterBinder taskCounterMetrics(TaskCounterService taskCounterService) {
+        return registry -> Gauge.builder("todo.task.counters.cached", taskCounterService, TaskCounterService::getCachedCount)
+                .description("Users whose task counters are cached in memory")
+                .register(registry);
+    }
+}
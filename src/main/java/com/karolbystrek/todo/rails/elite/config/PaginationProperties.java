@@ -0,0 +1,30 @@
+package com.karolbystrek.todo.rails.elite.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Page size settings for cursor-paginated task listings.
+ *
+ * @param defaultPageSize Page size used when the client does not request one
+ * @param maxPageSize     Upper bound applied to any requested page size
+ */
+@ConfigurationProperties(prefix = "todo.tasks.pagination")
+public record PaginationProperties(
+        @DefaultValue("20") int defaultPageSize,
+        @DefaultValue("100") int maxPageSize
+) {
+
+    /**
+     * Resolves the page size to use for a request.
+     *
+     * @param requested Page size requested by the client, may be null
+     * @return The requested size clamped to {@code [1, maxPageSize]}, or the default size
+     */
+    public int resolvePageSize(Integer requested) {
+        if (requested == null) {
+            return defaultPageSize;
+        }
+        return Math.clamp(requested, 1, maxPageSize);
+    }
+}
@@ -0,0 +1,23 @@
+package com.karolbystrek.todo.rails.elite.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * R2DBC connection pool serving the reactive task API under {@code /api/reactive/tasks}.
+ *
+ * @param enabled         Whether the reactive task API is served
+ * @param url             R2DBC URL of the database, the same database the JDBC data source uses
+ * @param username        Database user
+ * @param password        Password of the database user
+ * @param maximumPoolSize Size of the R2DBC connection pool
+ */
+@ConfigurationProperties(prefix = "todo.datasource.reactive")
+public record ReactiveDataSourceProperties(
+        @DefaultValue("false") boolean enabled,
+        String url,
+        String username,
+        String password,
+        @DefaultValue("10") int maximumPoolSize
+) {
+}
@@ -0,0 +1,40 @@
+package com.karolbystrek.todo.rails.elite.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.time.Duration;
+
+/**
+ * Remembers the users who recently committed a change, so their reads stay on the
+ * primary until the replicas have caught up with it.
+ */
+public class ReadYourWritesTracker {
+
+    private final Cache<Long, Boolean> writers;
+
+    public ReadYourWritesTracker(Duration window) {
+        this.writers = Caffeine.newBuilder()
+                .expireAfterWrite(window)
+                .build();
+    }
+
+    /**
+     * Pins the reads of a user to the primary for the read-your-writes window.
+     *
+     * @param userId ID of the user who committed a change
+     */
+    public void recordWrite(Long userId) {
+        writers.put(userId, Boolean.TRUE);
+    }
+
+    /**
+     * Tells whether the reads of a user have to go to the primary.
+     *
+     * @param userId ID of the reading user
+     * @return True if the user committed a change within the read-your-writes window
+     */
+    public boolean isPinned(Long userId) {
+        return writers.getIfPresent(userId) != null;
+    }
+}
@@ -0,0 +1,29 @@
+package com.karolbystrek.todo.rails.elite.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Read replicas serving the read-only transactions of signed-in users.
+ *
+ * @param enabled               Whether read-only transactions are routed to the replicas
+ * @param urls                  JDBC URLs of the replicas, used in turn
+ * @param username              Database user of the replicas
+ * @param password              Password of the database user
+ * @param maximumPoolSize       Size of the connection pool of each replica
+ * @param readYourWritesWindow  How long the reads of a user stay on the primary after they changed data,
+ *                              which has to exceed the replication lag
+ */
+@ConfigurationProperties(prefix = "todo.datasource.replicas")
+public record ReplicaDataSourceProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue List<String> urls,
+        String username,
+        String password,
+        @DefaultValue("10") int maximumPoolSize,
+        @DefaultValue("5s") Duration readYourWritesWindow
+) {
+}
@@ -0,0 +1,90 @@
+package com.karolbystrek.todo.rails.elite.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Wraps the application data source with a {@link ReplicaRoutingDataSource} when
+ * {@code todo.datasource.replicas.enabled=true}.
+ *
+ * <p>The routing runs before the {@link DatabaseConcurrencyConfig} limiter is applied,
+ * so the limiter caps the connections of the primary and the replicas together.</p>
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "todo.datasource.replicas", name = "enabled", havingValue = "true")
+public class ReplicaRoutingConfig {
+
+    @Bean
+    ReadYourWritesTracker readYourWritesTracker(ReplicaDataSourceProperties properties) {
+        return new ReadYourWritesTracker(properties.readYourWritesWindow());
+    }
+
+    @Bean
+    static ReplicaRoutingPostProcessor replicaRoutingDataSourcePostProcessor(
+            ObjectProvider<ReplicaDataSourceProperties> properties,
+            ObjectProvider<ReadYourWritesTracker> tracker
+    ) {
+        return new ReplicaRoutingPostProcessor(properties, tracker);
+    }
+
+    static final class ReplicaRoutingPostProcessor implements BeanPostProcessor, Ordered {
+
+        private final ObjectProvider<ReplicaDataSourceProperties> properties;
+        private final ObjectProvider<ReadYourWritesTracker> tracker;
+
+        ReplicaRoutingPostProcessor(
+                ObjectProvider<ReplicaDataSourceProperties> properties,
+                ObjectProvider<ReadYourWritesTracker> tracker
+        ) {
+            this.properties = properties;
+            this.tracker = tracker;
+        }
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (!(bean instanceof DataSource primary)
+                    || bean instanceof ReplicaRoutingDataSource
+                    || bean instanceof ConcurrencyLimitedDataSource) {
+                return bean;
+            }
+            ReplicaDataSourceProperties replicas = properties.getObject();
+            if (replicas.urls().isEmpty()) {
+                throw new IllegalStateException("todo.datasource.replicas.urls must list at least one replica");
+            }
+            List<DataSource> pools = new ArrayList<>(replicas.urls().size());
+            for (String url : replicas.urls()) {
+                pools.add(replica(replicas, url, pools.size() + 1));
+            }
+            return new ReplicaRoutingDataSource(primary, pools, tracker.getObject());
+        }
+
+        @Override
+        public int getOrder() {
+            // Any order runs before the unordered limiter post processor
+            return Ordered.LOWEST_PRECEDENCE;
+        }
+
+        private static HikariDataSource replica(ReplicaDataSourceProperties properties, String url, int number) {
+            HikariDataSource replica = DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .url(url)
+                    .username(properties.username())
+                    .password(properties.password())
+                    .build();
+            replica.setPoolName("replica-" + number);
+            replica.setMaximumPoolSize(properties.maximumPoolSize());
+            replica.setReadOnly(true);
+            return replica;
+        }
+    }
+}
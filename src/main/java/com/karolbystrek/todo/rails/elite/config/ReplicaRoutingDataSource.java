@@ -0,0 +1,111 @@
+package com.karolbystrek.todo.rails.elite.config;
+
+import com.karolbystrek.todo.rails.elite.model.security.SecurityUser;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Data source sending the read-only transactions of signed-in users to the replicas
+ * and everything else to the primary.
+ *
+ * <p>A connection is only taken from a pool when the first statement runs, after the
+ * transaction manager has marked the transaction read-only. Replicas are used in turn.
+ * Reads of anonymous callers and of background threads, such as authentication and
+ * the task notifications sent after a commit, stay on the primary, and so do the
+ * reads of a user within the read-your-writes window after their own committed change.</p>
+ */
+public class ReplicaRoutingDataSource extends LazyConnectionDataSourceProxy implements AutoCloseable {
+
+    public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas, ReadYourWritesTracker tracker) {
+        super(new Router(primary, replicas, tracker));
+    }
+
+    /**
+     * Closes the primary and replica pools, so they still shut down with the application context.
+     */
+    @Override
+    public void close() throws Exception {
+        for (DataSource dataSource : ((Router) obtainTargetDataSource()).dataSources) {
+            if (dataSource instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+    }
+
+    private static final class Router extends AbstractRoutingDataSource {
+
+        private static final String PRIMARY = "primary";
+
+        private final List<DataSource> dataSources;
+        private final int replicaCount;
+        private final ReadYourWritesTracker tracker;
+        private final AtomicInteger nextReplica;
+
+        Router(DataSource primary, List<DataSource> replicas, ReadYourWritesTracker tracker) {
+            if (replicas.isEmpty()) {
+                throw new IllegalArgumentException("At least one replica is required");
+            }
+            this.dataSources = new ArrayList<>(replicas.size() + 1);
+            this.dataSources.add(primary);
+            this.dataSources.addAll(replicas);
+            this.replicaCount = replicas.size();
+            this.tracker = tracker;
+            this.nextReplica = new AtomicInteger();
+            Map<Object, Object> targets = new HashMap<>();
+            targets.put(PRIMARY, primary);
+            for (int i = 0; i < replicaCount; i++) {
+                targets.put(i, replicas.get(i));
+            }
+            setTargetDataSources(targets);
+            setDefaultTargetDataSource(primary);
+            setLenientFallback(false);
+            afterPropertiesSet();
+        }
+
+        @Override
+        protected Object determineCurrentLookupKey() {
+            Long userId = currentUserId();
+            if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+                pinAfterCommit(userId);
+                return PRIMARY;
+            }
+            if (userId == null || tracker.isPinned(userId)) {
+                return PRIMARY;
+            }
+            return Math.floorMod(nextReplica.getAndIncrement(), replicaCount);
+        }
+
+        private void pinAfterCommit(Long userId) {
+            if (userId == null
+                    || !TransactionSynchronizationManager.isActualTransactionActive()
+                    || !TransactionSynchronizationManager.isSynchronizationActive()) {
+                return;
+            }
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    tracker.recordWrite(userId);
+                }
+            });
+        }
+
+        private static Long currentUserId() {
+            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+            if (authentication != null && authentication.getPrincipal() instanceof SecurityUser user) {
+                return user.getId();
+            }
+            return null;
+        }
+    }
+}
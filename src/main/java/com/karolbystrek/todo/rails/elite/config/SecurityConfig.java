@@ -1,6 +1,8 @@
 package com.karolbystrek.todo.rails.elite.config;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.autoconfigure.security.servlet.EndpointRequest;
+import org.springframework.boot.actuate.health.HealthEndpoint;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
@@ -9,6 +11,7 @@ import org.springframework.security.config.annotation.web.configurers.AbstractHt
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.access.expression.WebExpressionAuthorizationManager;
 import org.springframework.web.filter.HiddenHttpMethodFilter;
 
 /**
@@ -59,6 +62,14 @@ public class SecurityConfig {
      * security requirements and processing capabilities of your application.</p>
      */
     public static final int PASSWORD_ENCODER_STRENGTH = 4;
+
+    /**
+     * Restricts the Actuator endpoints other than health to requests from the same host,
+     * so a local Prometheus can scrape them without logging in.
+     */
+    private static final WebExpressionAuthorizationManager LOCAL_ONLY =
+            new WebExpressionAuthorizationManager("hasIpAddress('127.0.0.1') or hasIpAddress('::1')");
+
     private final UserDetailsService jpaUserDetailsService;
 
     @Autowired
@@ -84,6 +95,8 @@ public class SecurityConfig {
      *                   <ul>
      *                     <li><strong>Public Resources:</strong> Grants public access to static resources
      *                         like CSS, JavaScript, images, and the registration page.</li>
+     *                     <li><strong>Actuator:</strong> Health is public, the other endpoints
+     *                         (including <code>/actuator/prometheus</code>) only answer local requests.</li>
      *                     <li><strong>Authentication:</strong> Requires authentication for all other requests.</li>
      *                     <li><strong>Login:</strong> Configures a custom login page at <code>/login</code>
      *                         and redirects to the homepage upon successful login.</li>
@@ -106,7 +119,8 @@ public class SecurityConfig {
                         auth -> auth
                                 .requestMatchers("/css/**", "/js/**", "/images/**").permitAll()
                                 .requestMatchers("/login", "/register").permitAll()
-                                .requestMatchers("/api/tasks/**").permitAll()
+                                .requestMatchers(EndpointRequest.to(HealthEndpoint.class)).permitAll()
+                                .requestMatchers(EndpointRequest.toAnyEndpoint()).access(LOCAL_ONLY)
                                 .anyRequest().authenticated()
                 )
                 .formLogin(
@@ -0,0 +1,43 @@
+package com.karolbystrek.todo.rails.elite.config;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Counts the SQL statements Hibernate prepares on the current thread.
+ *
+ * <p>Counting only happens between {@link #start()} and {@link #stop()}, which
+ * {@link SqlStatementMetricsFilter} calls around every request. Statements issued
+ * outside a request, such as by scheduled jobs, are not counted. The SQL itself
+ * is passed through unchanged.</p>
+ */
+public class SqlStatementCounter implements StatementInspector {
+
+    private final ThreadLocal<int[]> count = new ThreadLocal<>();
+
+    @Override
+    public String inspect(String sql) {
+        int[] current = count.get();
+        if (current != null) {
+            current[0]++;
+        }
+        return sql;
+    }
+
+    /**
+     * Starts counting the statements of the current thread from zero.
+     */
+    public void start() {
+        count.set(new int[1]);
+    }
+
+    /**
+     * Stops counting on the current thread.
+     *
+     * @return Number of statements prepared since {@link #start()}
+     */
+    public int stop() {
+        int[] current = count.get();
+        count.remove();
+        return current == null ? 0 : current[0];
+    }
+}
@@ -0,0 +1,52 @@
+package com.karolbystrek.todo.rails.elite.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+/**
+ * Records how many SQL statements each request executed, tagged like {@code http.server.requests}.
+ *
+ * <p>Only statements issued on the request thread are counted, so work done after
+ * an asynchronous request has been started, such as a streamed export, is not included.</p>
+ */
+public class SqlStatementMetricsFilter extends OncePerRequestFilter {
+
+    static final String METRIC_NAME = "todo.http.sql.statements";
+
+    private final SqlStatementCounter sqlStatementCounter;
+    private final MeterRegistry meterRegistry;
+
+    public SqlStatementMetricsFilter(SqlStatementCounter sqlStatementCounter, MeterRegistry meterRegistry) {
+        this.sqlStatementCounter = sqlStatementCounter;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        sqlStatementCounter.start();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            int statements = sqlStatementCounter.stop();
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            DistributionSummary.builder(METRIC_NAME)
+                    .description("SQL statements executed while handling a request")
+                    .baseUnit("statements")
+                    .tag("method", request.getMethod())
+                    .tag("uri", pattern == null ? "UNKNOWN" : pattern.toString())
+                    .publishPercentileHistogram()
+                    .maximumExpectedValue(1000d)
+                    .register(meterRegistry)
+                    .record(statements);
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.karolbystrek.todo.rails.elite.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Settings for the in-memory cache of per-user task counters.
+ *
+ * @param maximumSize Maximum number of users whose counters are cached
+ */
+@ConfigurationProperties(prefix = "todo.tasks.counter-cache")
+public record TaskCounterCacheProperties(
+        @DefaultValue("10000") long maximumSize
+) {
+}
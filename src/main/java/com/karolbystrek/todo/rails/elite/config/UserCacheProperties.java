@@ -0,0 +1,19 @@
+package com.karolbystrek.todo.rails.elite.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings for the in-memory cache of authenticated user details.
+ *
+ * @param maximumSize Maximum number of cached users
+ * @param timeToLive  How long a cached user stays valid after it was loaded
+ */
+@ConfigurationProperties(prefix = "todo.security.user-cache")
+public record UserCacheProperties(
+        @DefaultValue("10000") long maximumSize,
+        @DefaultValue("5m") Duration timeToLive
+) {
+}
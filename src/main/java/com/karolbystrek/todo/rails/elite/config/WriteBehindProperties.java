@@ -0,0 +1,23 @@
+package com.karolbystrek.todo.rails.elite.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings for queueing task completions and reschedules in memory before writing them.
+ *
+ * @param enabled      Whether completions and reschedules are queued instead of written right away
+ * @param maxBatchSize Number of queued tasks that triggers a flush
+ * @param maxDelay     Longest time a queued command waits before it is written, which bounds what a crash loses
+ * @param maxAttempts  Number of failed flushes in a row after which a user's queued commands are dropped
+ */
+@ConfigurationProperties(prefix = "todo.tasks.write-behind")
+public record WriteBehindProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("500") int maxBatchSize,
+        @DefaultValue("1s") Duration maxDelay,
+        @DefaultValue("3") int maxAttempts
+) {
+}
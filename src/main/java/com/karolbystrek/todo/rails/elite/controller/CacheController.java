@@ -0,0 +1,33 @@
+package com.karolbystrek.todo.rails.elite.controller;
+
+import com.karolbystrek.todo.rails.elite.model.CacheStatistics;
+import com.karolbystrek.todo.rails.elite.service.CacheStatisticsService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/cache")
+public class CacheController {
+
+    private final CacheStatisticsService cacheStatisticsService;
+
+    @Autowired
+    public CacheController(CacheStatisticsService cacheStatisticsService) {
+        this.cacheStatisticsService = cacheStatisticsService;
+    }
+
+    @GetMapping("/stats")
+    public ResponseEntity<CacheStatistics> getStatistics() {
+        return ResponseEntity.ok(cacheStatisticsService.getStatistics());
+    }
+
+    @DeleteMapping("/stats")
+    public ResponseEntity<Void> resetStatistics() {
+        cacheStatisticsService.resetStatistics();
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -1,35 +1,64 @@
 package com.karolbystrek.todo.rails.elite.controller;
 
+import com.karolbystrek.todo.rails.elite.config.PaginationProperties;
+import com.karolbystrek.todo.rails.elite.model.CursorPage;
+import com.karolbystrek.todo.rails.elite.model.DashboardSnapshot;
 import com.karolbystrek.todo.rails.elite.model.Task;
+import com.karolbystrek.todo.rails.elite.model.TaskSummary;
+import com.karolbystrek.todo.rails.elite.model.security.SecurityUser;
+import com.karolbystrek.todo.rails.elite.service.TaskDataVersionService;
 import com.karolbystrek.todo.rails.elite.service.TaskService;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.context.request.WebRequest;
 
-import java.security.Principal;
 import java.time.LocalDate;
 
 @Controller
 public class PageController {
 
     private final TaskService taskService;
+    private final TaskDataVersionService taskDataVersionService;
+    private final PaginationProperties paginationProperties;
 
     @Autowired
-    public PageController(TaskService taskService) {
+    public PageController(
+            TaskService taskService,
+            TaskDataVersionService taskDataVersionService,
+            PaginationProperties paginationProperties
+    ) {
         this.taskService = taskService;
+        this.taskDataVersionService = taskDataVersionService;
+        this.paginationProperties = paginationProperties;
     }
 
     @GetMapping("/")
-    public String getHomePage(Model model, Principal principal) {
-        model.addAttribute("username", principal.getName());
-        model.addAttribute("totalPendingToday", taskService.getTodayTasks().size());
-        model.addAttribute("totalPending", taskService.getPendingTasks().size());
-        model.addAttribute("totalCompleted", taskService.getCompletedTasks().size());
-        model.addAttribute("totalTasks", taskService.getAllTasks());
-        model.addAttribute("todayTasks", taskService.getTodayTasks());
-        model.addAttribute("pendingTasks", taskService.getPendingTasks());
+    public String getHomePage(
+            Model model,
+            @AuthenticationPrincipal SecurityUser user,
+            WebRequest request,
+            HttpServletResponse response
+    ) {
+        if (request.checkNotModified(taskDataVersionService.getETag(user.getId()))) {
+            return null;
+        }
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noCache().cachePrivate().getHeaderValue());
+        DashboardSnapshot snapshot = taskService.getDashboardSnapshot(user.getId());
+        model.addAttribute("username", user.getUsername());
+        model.addAttribute("totalPendingToday", snapshot.counts().pendingToday());
+        model.addAttribute("totalPending", snapshot.counts().pending());
+        model.addAttribute("totalCompleted", snapshot.counts().completed());
+        model.addAttribute("totalTasks", snapshot.counts().total());
+        model.addAttribute("todayTasks", snapshot.todayTasks());
+        model.addAttribute("pendingTasks", snapshot.pendingTasks());
         return "index";
     }
 
@@ -39,38 +68,53 @@ public class PageController {
     }
 
     @GetMapping("/tasks")
-    public String getTasksPage(Model model, Principal principal) {
-        model.addAttribute("username", principal.getName());
-        model.addAttribute("tasks", taskService.getAllTasks());
+    public String getTasksPage(
+            @RequestParam(name = "cursor", required = false) String cursor,
+            @RequestParam(name = "size", required = false) Integer size,
+            Model model,
+            @AuthenticationPrincipal SecurityUser user
+    ) {
+        int pageSize = paginationProperties.resolvePageSize(size);
+        CursorPage<TaskSummary> page;
+        try {
+            page = taskService.getTasksPage(user.getId(), cursor, pageSize);
+        } catch (IllegalArgumentException exception) {
+            return "redirect:/tasks";
+        }
+        model.addAttribute("username", user.getUsername());
+        model.addAttribute("tasks", page.items());
+        model.addAttribute("nextCursor", page.nextCursor());
+        model.addAttribute("firstPage", cursor == null || cursor.isBlank());
+        model.addAttribute("pageSize", pageSize);
         return "tasks";
     }
 
     @GetMapping("/tasks/view/{id}")
-    public String viewTaskDetails(@PathVariable("id") Long id, Model model, Principal principal) {
-        model.addAttribute("username", principal.getName());
-        model.addAttribute("task", taskService.getTaskById(id));
+    public String viewTaskDetails(@PathVariable("id") Long id, Model model, @AuthenticationPrincipal SecurityUser user) {
+        model.addAttribute("username", user.getUsername());
+        model.addAttribute("task", taskService.getTaskById(user.getId(), id));
         return "details";
     }
 
     @GetMapping("/tasks/add")
-    public String getAddTaskPage(Model model, Principal principal) {
-        model.addAttribute("username", principal.getName());
+    public String getAddTaskPage(Model model, @AuthenticationPrincipal SecurityUser user) {
+        model.addAttribute("username", user.getUsername());
         model.addAttribute("task", new Task("", "", false, LocalDate.now()));
         return "add";
     }
 
     @GetMapping("/profile")
-    public String getProfilePage(Model model, Principal principal) {
-        if (principal != null) {
-            model.addAttribute("username", principal.getName());
-            model.addAttribute("totalTasks", taskService.getAllTasks().size());
+    public String getProfilePage(Model model, @AuthenticationPrincipal SecurityUser user) {
+        if (user != null) {
+            model.addAttribute("username", user.getUsername());
+            model.addAttribute("totalTasks", taskService.getCounts(user.getId()).total());
         }
         return "profile";
     }
 
     @GetMapping("/edit")
-    public String getEditTaskPage(Model model, Principal principal) {
-        model.addAttribute("username", principal.getName());
+    public String getEditTaskPage(Model model, @AuthenticationPrincipal SecurityUser user) {
+        model.addAttribute("username", user.getUsername());
         return "edit";
     }
 
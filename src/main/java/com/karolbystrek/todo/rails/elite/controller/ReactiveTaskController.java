@@ -0,0 +1,65 @@
+package com.karolbystrek.todo.rails.elite.controller;
+
+import com.karolbystrek.todo.rails.elite.model.TaskSummary;
+import com.karolbystrek.todo.rails.elite.model.security.SecurityUser;
+import com.karolbystrek.todo.rails.elite.service.ReactiveTaskService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Reactive variant of the task reads, served by Spring MVC from {@link Flux} and {@link Mono}
+ * results next to the blocking {@link TaskController}.
+ *
+ * <p>Lists are streamed as newline-delimited JSON; the next row is only requested from
+ * R2DBC once the previous one was written to the client.</p>
+ */
+@RestController
+@RequestMapping("/api/reactive/tasks")
+@ConditionalOnProperty(prefix = "todo.datasource.reactive", name = "enabled", havingValue = "true")
+public class ReactiveTaskController {
+
+    private final ReactiveTaskService reactiveTaskService;
+
+    @Autowired
+    public ReactiveTaskController(ReactiveTaskService reactiveTaskService) {
+        this.reactiveTaskService = reactiveTaskService;
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<Flux<TaskSummary>> streamTasks(
+            @AuthenticationPrincipal SecurityUser user,
+            @RequestParam(name = "status", defaultValue = "all") String status
+    ) {
+        Long userId = user.getId();
+        Flux<TaskSummary> tasks = switch (status) {
+            case "all" -> reactiveTaskService.getAllTasks(userId);
+            case "pending" -> reactiveTaskService.getPendingTasks(userId);
+            case "completed" -> reactiveTaskService.getCompletedTasks(userId);
+            case "today" -> reactiveTaskService.getTodayTasks(userId);
+            default -> null;
+        };
+        if (tasks == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(tasks);
+    }
+
+    @GetMapping("/{id}")
+    public Mono<ResponseEntity<TaskSummary>> getTaskById(@AuthenticationPrincipal SecurityUser user, @PathVariable(name = "id") Long id) {
+        return reactiveTaskService.getTask(user.getId(), id)
+                .map(ResponseEntity::ok)
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+}
@@ -1,58 +1,180 @@
 package com.karolbystrek.todo.rails.elite.controller;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.karolbystrek.todo.rails.elite.config.PaginationProperties;
+import com.karolbystrek.todo.rails.elite.exceptions.PreconditionFailedException;
+import com.karolbystrek.todo.rails.elite.exceptions.ResourceNotFoundException;
+import com.karolbystrek.todo.rails.elite.model.CalendarDay;
+import com.karolbystrek.todo.rails.elite.model.CursorPage;
+import com.karolbystrek.todo.rails.elite.model.ImportReport;
 import com.karolbystrek.todo.rails.elite.model.Task;
+import com.karolbystrek.todo.rails.elite.model.TaskCounts;
+import com.karolbystrek.todo.rails.elite.model.TaskSearchHit;
+import com.karolbystrek.todo.rails.elite.model.TaskSummary;
+import com.karolbystrek.todo.rails.elite.model.security.SecurityUser;
+import com.karolbystrek.todo.rails.elite.service.TaskCalendarService;
+import com.karolbystrek.todo.rails.elite.service.TaskCounterService;
+import com.karolbystrek.todo.rails.elite.service.TaskDataVersionService;
+import com.karolbystrek.todo.rails.elite.service.TaskExportService;
+import com.karolbystrek.todo.rails.elite.service.TaskImportService;
+import com.karolbystrek.todo.rails.elite.service.TaskNotificationService;
+import com.karolbystrek.todo.rails.elite.service.TaskSearchService;
 import com.karolbystrek.todo.rails.elite.service.TaskService;
+import com.karolbystrek.todo.rails.elite.service.TaskWriteBehindService;
+import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.servlet.ModelAndView;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
+import java.util.function.Supplier;
 
 @RestController
 @RequestMapping("/api/tasks")
 public class TaskController {
 
+    private static final String MERGE_PATCH_JSON_VALUE = "application/merge-patch+json";
+
+    /**
+     * Sent by the dashboard script, which does not follow the redirect of a completion
+     * and so does not read the tasks back right away.
+     */
+    private static final String REQUESTED_WITH = "X-Requested-With";
+
     private final TaskService taskService;
+    private final TaskExportService taskExportService;
+    private final TaskImportService taskImportService;
+    private final TaskCounterService taskCounterService;
+    private final TaskSearchService taskSearchService;
+    private final TaskCalendarService taskCalendarService;
+    private final TaskDataVersionService taskDataVersionService;
+    private final TaskNotificationService taskNotificationService;
+    private final TaskWriteBehindService taskWriteBehindService;
+    private final PaginationProperties paginationProperties;
 
     @Autowired
-    public TaskController(TaskService taskService) {
+    public TaskController(
+            TaskService taskService,
+            TaskExportService taskExportService,
+            TaskImportService taskImportService,
+            TaskCounterService taskCounterService,
+            TaskSearchService taskSearchService,
+            TaskCalendarService taskCalendarService,
+            TaskDataVersionService taskDataVersionService,
+            TaskNotificationService taskNotificationService,
+            TaskWriteBehindService taskWriteBehindService,
+            PaginationProperties paginationProperties
+    ) {
         this.taskService = taskService;
+        this.taskExportService = taskExportService;
+        this.taskImportService = taskImportService;
+        this.taskCounterService = taskCounterService;
+        this.taskSearchService = taskSearchService;
+        this.taskCalendarService = taskCalendarService;
+        this.taskDataVersionService = taskDataVersionService;
+        this.taskNotificationService = taskNotificationService;
+        this.taskWriteBehindService = taskWriteBehindService;
+        this.paginationProperties = paginationProperties;
     }
 
     @GetMapping("/all")
-    public ResponseEntity<List<Task>> getAllTasks() {
+    public ResponseEntity<CursorPage<TaskSummary>> getAllTasks(
+            @AuthenticationPrincipal SecurityUser user,
+            @RequestParam(name = "cursor", required = false) String cursor,
+            @RequestParam(name = "size", required = false) Integer size,
+            WebRequest request
+    ) {
         try {
-            return ResponseEntity.ok(taskService.getAllTasks());
-        } catch (Exception exception) {
-            return ResponseEntity.notFound().build();
+            int pageSize = paginationProperties.resolvePageSize(size);
+            return revalidated(request, user, () -> taskService.getTasksPage(user.getId(), cursor, pageSize));
+        } catch (IllegalArgumentException exception) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<CursorPage<TaskSearchHit>> searchTasks(
+            @AuthenticationPrincipal SecurityUser user,
+            @RequestParam(name = "q") String query,
+            @RequestParam(name = "cursor", required = false) String cursor,
+            @RequestParam(name = "size", required = false) Integer size
+    ) {
+        try {
+            return ResponseEntity.ok(taskSearchService.search(user.getId(), query, cursor, paginationProperties.resolvePageSize(size)));
+        } catch (IllegalArgumentException exception) {
+            return ResponseEntity.badRequest().build();
         }
     }
 
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamTaskEvents(@AuthenticationPrincipal SecurityUser user) {
+        return taskNotificationService.subscribe(user.getId());
+    }
+
     @GetMapping("/{id}")
-    public ResponseEntity<Task> getTaskById(@PathVariable(name = "id") Long id) {
+    public ResponseEntity<Task> getTaskById(@AuthenticationPrincipal SecurityUser user, @PathVariable(name = "id") Long id) {
         try {
-            return ResponseEntity.ok(taskService.getTaskById(id));
+            Task task = taskService.getTaskById(user.getId(), id);
+            return ResponseEntity.ok().eTag(eTag(task)).body(task);
         } catch (Exception exception) {
             return ResponseEntity.notFound().build();
         }
     }
 
+    @PutMapping("/{id}")
+    public ResponseEntity<Task> replaceTask(
+            @AuthenticationPrincipal SecurityUser user,
+            @PathVariable(name = "id") Long id,
+            @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @Valid @RequestBody Task task
+    ) {
+        Task updatedTask = taskService.updateTask(user.getId(), id, expectedVersion(ifMatch), task);
+        return ResponseEntity.ok().eTag(eTag(updatedTask)).body(updatedTask);
+    }
+
+    @PatchMapping(value = "/{id}", consumes = {MERGE_PATCH_JSON_VALUE, MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<Task> patchTask(
+            @AuthenticationPrincipal SecurityUser user,
+            @PathVariable(name = "id") Long id,
+            @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @RequestBody JsonNode patch
+    ) {
+        try {
+            Task patchedTask = taskService.patchTask(user.getId(), id, expectedVersion(ifMatch), patch);
+            return ResponseEntity.ok().eTag(eTag(patchedTask)).body(patchedTask);
+        } catch (IllegalArgumentException exception) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @GetMapping("/title/{title}")
-    public ResponseEntity<Task> getTaskByTitle(@PathVariable(name = "title") String title) {
+    public ResponseEntity<Task> getTaskByTitle(@AuthenticationPrincipal SecurityUser user, @PathVariable(name = "title") String title) {
         try {
-            return ResponseEntity.ok(taskService.getTaskByTitle(title));
+            return ResponseEntity.ok(taskService.getTaskByTitle(user.getId(), title));
         } catch (Exception exception) {
             return ResponseEntity.notFound().build();
         }
     }
 
     @RequestMapping(value = "/add", method = RequestMethod.POST)
-    public ModelAndView addTask(@ModelAttribute Task task) {
+    public ModelAndView addTask(@AuthenticationPrincipal SecurityUser user, @ModelAttribute Task task) {
         try {
-            Task addedTask = taskService.addTask(task);
+            Task addedTask = taskService.addTask(user.getId(), task);
             return new ModelAndView("redirect:/tasks");
         } catch (Exception exception) {
             return new ModelAndView("redirect:/tasks/add", "task", task);
@@ -60,8 +182,8 @@ public class TaskController {
     }
 
     @RequestMapping(value = "/update/{id}", method = RequestMethod.GET)
-    public ModelAndView updateTask(@PathVariable(name = "id") Long id) {
-        Task taskById = taskService.getTaskById(id);
+    public ModelAndView updateTask(@AuthenticationPrincipal SecurityUser user, @PathVariable(name = "id") Long id) {
+        Task taskById = taskService.getTaskById(user.getId(), id);
         if (taskById != null) {
             taskById.setDueDate(
                     LocalDate.parse(
@@ -78,62 +200,269 @@ public class TaskController {
     }
 
     @PostMapping("/update")
-    public ModelAndView updateTask(@ModelAttribute Task task) {
+    public ModelAndView updateTask(@AuthenticationPrincipal SecurityUser user, @ModelAttribute Task task) {
         try {
-            Task updatedTask = taskService.updateTask(task);
+            Task updatedTask = task.getId() == null
+                    ? taskService.updateTask(user.getId(), task)
+                    : taskService.updateTask(user.getId(), task.getId(), task.getVersion(), task);
             return new ModelAndView("redirect:/tasks", "task", updatedTask);
-        } catch (Exception exception) {
+        } catch (ResourceNotFoundException exception) {
             throw new RuntimeException("Task not found");
         }
     }
 
     @PostMapping("/complete/{id}")
-    public ModelAndView completeTask(@PathVariable Long id) {
-        try {
-            Task taskById = taskService.getTaskById(id);
-            taskById.setCompleted(true);
-            taskService.updateTask(taskById);
-            return new ModelAndView("redirect:/");
-        } catch (Exception exception) {
-            return new ModelAndView("redirect:/");
+    public ModelAndView completeTask(
+            @AuthenticationPrincipal SecurityUser user,
+            @PathVariable Long id,
+            @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @RequestHeader(name = REQUESTED_WITH, required = false) String requestedWith
+    ) {
+        if (ifMatch == null && isQueued(requestedWith)) {
+            taskWriteBehindService.completeTasks(user.getId(), List.of(id));
+        } else {
+            taskService.completeTask(user.getId(), id, expectedVersion(ifMatch));
         }
+        return new ModelAndView("redirect:/");
     }
 
     @RequestMapping(value = "/delete/{id}", method = RequestMethod.DELETE)
-    public ModelAndView deleteTask(@PathVariable Long id) {
-        try {
-            Task taskById = taskService.getTaskById(id);
-            taskService.deleteTask(taskById);
-            return new ModelAndView("redirect:/");
-        } catch (Exception exception) {
-            return new ModelAndView("redirect:/");
+    public ModelAndView deleteTask(@AuthenticationPrincipal SecurityUser user, @PathVariable Long id) {
+        taskService.deleteTasks(user.getId(), List.of(id));
+        return new ModelAndView("redirect:/");
+    }
+
+    @PostMapping("/bulk/complete")
+    public ModelAndView completeTasks(
+            @AuthenticationPrincipal SecurityUser user,
+            @RequestParam(name = "ids", required = false) List<Long> ids,
+            @RequestHeader(name = REQUESTED_WITH, required = false) String requestedWith
+    ) {
+        if (ids != null && isQueued(requestedWith)) {
+            taskWriteBehindService.completeTasks(user.getId(), ids);
+        } else if (ids != null) {
+            taskService.completeTasks(user.getId(), ids);
+        }
+        return new ModelAndView("redirect:/tasks");
+    }
+
+    @PostMapping("/bulk/reschedule")
+    public ModelAndView rescheduleTasks(
+            @AuthenticationPrincipal SecurityUser user,
+            @RequestParam(name = "ids", required = false) List<Long> ids,
+            @RequestParam(name = "dueDate", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dueDate,
+            @RequestHeader(name = REQUESTED_WITH, required = false) String requestedWith
+    ) {
+        if (ids != null && dueDate != null && isQueued(requestedWith)) {
+            taskWriteBehindService.rescheduleTasks(user.getId(), ids, dueDate);
+        } else if (ids != null && dueDate != null) {
+            taskService.rescheduleTasks(user.getId(), ids, dueDate);
+        }
+        return new ModelAndView("redirect:/tasks");
+    }
+
+    @PostMapping("/bulk/delete")
+    public ModelAndView deleteTasks(
+            @AuthenticationPrincipal SecurityUser user,
+            @RequestParam(name = "ids", required = false) List<Long> ids
+    ) {
+        if (ids != null) {
+            taskService.deleteTasks(user.getId(), ids);
         }
+        return new ModelAndView("redirect:/tasks");
     }
 
     @GetMapping("/pending")
-    public ResponseEntity<List<Task>> getPendingTasks() {
+    public ResponseEntity<CursorPage<TaskSummary>> getPendingTasks(
+            @AuthenticationPrincipal SecurityUser user,
+            @RequestParam(name = "cursor", required = false) String cursor,
+            @RequestParam(name = "size", required = false) Integer size,
+            WebRequest request
+    ) {
         try {
-            return ResponseEntity.ok(taskService.getPendingTasks());
-        } catch (Exception exception) {
-            return ResponseEntity.notFound().build();
+            int pageSize = paginationProperties.resolvePageSize(size);
+            return revalidated(request, user, () -> taskService.getPendingTasksPage(user.getId(), cursor, pageSize));
+        } catch (IllegalArgumentException exception) {
+            return ResponseEntity.badRequest().build();
         }
     }
 
     @GetMapping("/completed")
-    public ResponseEntity<List<Task>> getCompletedTasks() {
+    public ResponseEntity<CursorPage<TaskSummary>> getCompletedTasks(
+            @AuthenticationPrincipal SecurityUser user,
+            @RequestParam(name = "cursor", required = false) String cursor,
+            @RequestParam(name = "size", required = false) Integer size,
+            WebRequest request
+    ) {
         try {
-            return ResponseEntity.ok(taskService.getCompletedTasks());
-        } catch (Exception exception) {
-            return ResponseEntity.notFound().build();
+            int pageSize = paginationProperties.resolvePageSize(size);
+            return revalidated(request, user, () -> taskService.getCompletedTasksPage(user.getId(), cursor, pageSize));
+        } catch (IllegalArgumentException exception) {
+            return ResponseEntity.badRequest().build();
         }
     }
 
     @GetMapping("/today")
-    public ResponseEntity<List<Task>> getTodayTasks() {
+    public ResponseEntity<CursorPage<TaskSummary>> getTodayTasks(
+            @AuthenticationPrincipal SecurityUser user,
+            @RequestParam(name = "cursor", required = false) String cursor,
+            @RequestParam(name = "size", required = false) Integer size,
+            WebRequest request
+    ) {
+        try {
+            int pageSize = paginationProperties.resolvePageSize(size);
+            return revalidated(request, user, () -> taskService.getTodayTasksPage(user.getId(), cursor, pageSize));
+        } catch (IllegalArgumentException exception) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping("/overdue")
+    public ResponseEntity<List<TaskSummary>> getOverdueTasks(@AuthenticationPrincipal SecurityUser user, WebRequest request) {
         try {
-            return ResponseEntity.ok(taskService.getTodayTasks());
+            return revalidated(request, user, () -> taskService.getOverdueTasks(user.getId()));
         } catch (Exception exception) {
             return ResponseEntity.notFound().build();
         }
     }
+
+    @GetMapping("/upcoming")
+    public ResponseEntity<List<TaskSummary>> getUpcomingTasks(
+            @AuthenticationPrincipal SecurityUser user,
+            @RequestParam(name = "days", defaultValue = "7") int days,
+            WebRequest request
+    ) {
+        try {
+            return revalidated(request, user, () -> taskService.getUpcomingTasks(user.getId(), days));
+        } catch (IllegalArgumentException exception) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping("/calendar")
+    public ResponseEntity<List<CalendarDay>> getCalendar(
+            @AuthenticationPrincipal SecurityUser user,
+            @RequestParam(name = "from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(name = "to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            WebRequest request
+    ) {
+        try {
+            return revalidated(request, user, () -> taskCalendarService.getCalendar(user.getId(), from, to));
+        } catch (IllegalArgumentException exception) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping("/calendar/overdue")
+    public ResponseEntity<List<CalendarDay>> getOverdueCalendar(@AuthenticationPrincipal SecurityUser user, WebRequest request) {
+        return revalidated(request, user, () -> taskCalendarService.getOverdue(user.getId()));
+    }
+
+    @GetMapping("/stats")
+    public ResponseEntity<TaskCounts> getTaskStats(@AuthenticationPrincipal SecurityUser user, WebRequest request) {
+        return revalidated(request, user, () -> taskService.getCounts(user.getId()));
+    }
+
+    @PostMapping("/stats/rebuild")
+    public ResponseEntity<TaskCounts> rebuildTaskStats(@AuthenticationPrincipal SecurityUser user) {
+        TaskCounts counts = taskCounterService.rebuild(user.getId());
+        taskDataVersionService.invalidate(user.getId());
+        return ResponseEntity.ok(counts);
+    }
+
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportTasks(@AuthenticationPrincipal SecurityUser user) {
+        StreamingResponseBody body = outputStream -> taskExportService.exportTasks(user.getId(), outputStream);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .header(
+                        HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename("tasks.ndjson").build().toString()
+                )
+                .body(body);
+    }
+
+    @PostMapping(value = "/import", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<ImportReport> importJsonTasks(@AuthenticationPrincipal SecurityUser user, InputStream body) {
+        try {
+            return ResponseEntity.ok(taskImportService.importJson(user.getId(), body));
+        } catch (IOException | IllegalArgumentException exception) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @PostMapping(value = "/import", consumes = "text/csv")
+    public ResponseEntity<ImportReport> importCsvTasks(@AuthenticationPrincipal SecurityUser user, InputStream body) {
+        try {
+            return ResponseEntity.ok(taskImportService.importCsv(user.getId(), body));
+        } catch (IOException | IllegalArgumentException exception) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @PostMapping(value = "/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<ImportReport> importTaskFile(@AuthenticationPrincipal SecurityUser user, @RequestParam("file") MultipartFile file) {
+        String filename = file.getOriginalFilename() == null ? "" : file.getOriginalFilename().toLowerCase();
+        try (InputStream inputStream = file.getInputStream()) {
+            if (filename.endsWith(".csv") || "text/csv".equals(file.getContentType())) {
+                return ResponseEntity.ok(taskImportService.importCsv(user.getId(), inputStream));
+            }
+            return ResponseEntity.ok(taskImportService.importJson(user.getId(), inputStream));
+        } catch (IOException | IllegalArgumentException exception) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * Answers with 304 Not Modified, without running the query, if the user's tasks did not
+     * change since the client received the entity tag sent in {@code If-None-Match}.
+     *
+     * @return The response, or null if the request was answered as not modified
+     */
+    private <T> ResponseEntity<T> revalidated(WebRequest request, SecurityUser user, Supplier<T> body) {
+        if (request.checkNotModified(taskDataVersionService.getETag(user.getId()))) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .body(body.get());
+    }
+
+    /**
+     * Tells whether a completion or reschedule goes to the write-behind queue. Only script
+     * requests are queued: a form post is followed by the redirected page, which would have
+     * to write the queue right away to show the change.
+     */
+    private boolean isQueued(String requestedWith) {
+        return requestedWith != null && taskWriteBehindService.isEnabled();
+    }
+
+    private static String eTag(Task task) {
+        return "\"" + task.getVersion() + "\"";
+    }
+
+    /**
+     * Reads the task version out of an {@code If-Match} header holding a single strong entity tag.
+     * If-Match uses the strong comparison, so a weak tag never matches.
+     *
+     * @return The expected version, or null if the header is missing or matches any version
+     * @throws PreconditionFailedException if the header holds something other than a strong task version tag
+     */
+    private static Long expectedVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.strip().equals("*")) {
+            return null;
+        }
+        String tag = ifMatch.strip();
+        if (tag.startsWith("W/")) {
+            throw new PreconditionFailedException("If-Match requires a strong entity tag: " + ifMatch);
+        }
+        if (tag.length() >= 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+            tag = tag.substring(1, tag.length() - 1);
+        }
+        try {
+            return Long.valueOf(tag);
+        } catch (NumberFormatException exception) {
+            throw new PreconditionFailedException("If-Match does not hold a current entity tag: " + ifMatch);
+        }
+    }
 }
@@ -0,0 +1,24 @@
+package com.karolbystrek.todo.rails.elite.event;
+
+import com.karolbystrek.todo.rails.elite.model.TaskSnapshot;
+
+/**
+ * State of a single task before and after a write.
+ *
+ * @param before State before the write, or null if the task was created
+ * @param after  State after the write, or null if the task was deleted
+ */
+public record TaskChange(TaskSnapshot before, TaskSnapshot after) {
+
+    public static TaskChange created(TaskSnapshot task) {
+        return new TaskChange(null, task);
+    }
+
+    public static TaskChange updated(TaskSnapshot before, TaskSnapshot after) {
+        return new TaskChange(before, after);
+    }
+
+    public static TaskChange deleted(TaskSnapshot task) {
+        return new TaskChange(task, null);
+    }
+}
@@ -0,0 +1,18 @@
+package com.karolbystrek.todo.rails.elite.event;
+
+import java.util.List;
+
+/**
+ * Published inside the writing transaction whenever tasks are created, updated or deleted.
+ *
+ * <p>Listeners that keep derived state in memory should use
+ * {@code @TransactionalEventListener} so rolled back writes are never applied.</p>
+ *
+ * @param changes The changed tasks
+ */
+public record TaskChangedEvent(List<TaskChange> changes) {
+
+    public TaskChangedEvent {
+        changes = List.copyOf(changes);
+    }
+}
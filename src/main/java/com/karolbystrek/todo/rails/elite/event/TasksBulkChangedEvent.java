@@ -0,0 +1,52 @@
+package com.karolbystrek.todo.rails.elite.event;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Published inside the writing transaction when a set-based statement changed tasks of a user.
+ *
+ * <p>The statements never read the rows they change, so the event names the tasks the
+ * statement ran for rather than their states. It may include IDs of other users' tasks
+ * and, for {@link Operation#COMPLETE}, of tasks that were already completed; those were
+ * left unchanged. Like {@link TaskChangedEvent}, listeners keeping derived state in
+ * memory should use {@code @TransactionalEventListener}.</p>
+ *
+ * @param userId    ID of the user owning the changed tasks
+ * @param operation The applied change
+ * @param ids       IDs of the tasks the statement ran for
+ * @param dueDate   The new due date for {@link Operation#RESCHEDULE}, null otherwise
+ */
+public record TasksBulkChangedEvent(Long userId, Operation operation, List<Long> ids, LocalDate dueDate) {
+
+    public TasksBulkChangedEvent {
+        ids = List.copyOf(ids);
+    }
+
+    public static TasksBulkChangedEvent completed(Long userId, List<Long> ids) {
+        return new TasksBulkChangedEvent(userId, Operation.COMPLETE, ids, null);
+    }
+
+    public static TasksBulkChangedEvent rescheduled(Long userId, List<Long> ids, LocalDate dueDate) {
+        return new TasksBulkChangedEvent(userId, Operation.RESCHEDULE, ids, dueDate);
+    }
+
+    public static TasksBulkChangedEvent deleted(Long userId, List<Long> ids) {
+        return new TasksBulkChangedEvent(userId, Operation.DELETE, ids, null);
+    }
+
+    public enum Operation {
+        /**
+         * Pending tasks were marked as completed.
+         */
+        COMPLETE,
+        /**
+         * Tasks were moved to {@link TasksBulkChangedEvent#dueDate()}.
+         */
+        RESCHEDULE,
+        /**
+         * Tasks were deleted.
+         */
+        DELETE
+    }
+}
@@ -0,0 +1,19 @@
+package com.karolbystrek.todo.rails.elite.event;
+
+import com.karolbystrek.todo.rails.elite.model.TaskReminder;
+
+import java.util.List;
+
+/**
+ * Published at the start of a day for the pending tasks that became due or overdue.
+ *
+ * @param due     Pending tasks due today
+ * @param overdue Pending tasks that were due yesterday and are overdue from today on
+ */
+public record TasksDueEvent(List<TaskReminder> due, List<TaskReminder> overdue) {
+
+    public TasksDueEvent {
+        due = List.copyOf(due);
+        overdue = List.copyOf(overdue);
+    }
+}
@@ -1,6 +1,8 @@
 package com.karolbystrek.todo.rails.elite.exceptions;
 
 import jakarta.persistence.EntityNotFoundException;
+import jakarta.validation.ConstraintViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -32,10 +34,31 @@ public class GlobalExceptionHandler {
         return new ErrorResponse(e.getMessage());
     }
 
+    @ExceptionHandler(PreconditionFailedException.class)
+    @ResponseBody
+    @ResponseStatus(HttpStatus.PRECONDITION_FAILED)
+    public ErrorResponse handlePreconditionFailedException(PreconditionFailedException e) {
+        return new ErrorResponse(e.getMessage());
+    }
+
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    @ResponseBody
+    @ResponseStatus(HttpStatus.PRECONDITION_FAILED)
+    public ErrorResponse handleOptimisticLockingFailureException(OptimisticLockingFailureException e) {
+        return new ErrorResponse("The resource has been modified concurrently, reload it and try again");
+    }
+
     @ExceptionHandler(MethodArgumentNotValidException.class)
     @ResponseBody
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     public ErrorResponse handleValidationException(MethodArgumentNotValidException e) {
         return new ErrorResponse("Validation error: " + e.getBindingResult().getAllErrors().getFirst().getDefaultMessage());
     }
+
+    @ExceptionHandler(ConstraintViolationException.class)
+    @ResponseBody
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public ErrorResponse handleConstraintViolationException(ConstraintViolationException e) {
+        return new ErrorResponse("Validation error: " + e.getConstraintViolations().iterator().next().getMessage());
+    }
 }
@@ -0,0 +1,7 @@
+package com.karolbystrek.todo.rails.elite.exceptions;
+
+public class PreconditionFailedException extends RuntimeException {
+    public PreconditionFailedException(String message) {
+        super(message);
+    }
+}
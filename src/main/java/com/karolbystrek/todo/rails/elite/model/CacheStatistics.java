@@ -0,0 +1,44 @@
+package com.karolbystrek.todo.rails.elite.model;
+
+/**
+ * Hit and miss counters of the Hibernate second-level and query caches.
+ *
+ * @param entityHits     Entities served from the second-level cache
+ * @param entityMisses   Entity lookups that had to go to the database
+ * @param entityPuts     Entities stored in the second-level cache
+ * @param entityHitRatio Share of entity lookups served from the cache, between 0 and 1
+ * @param queryHits      Query results served from the query cache
+ * @param queryMisses    Cacheable queries that had to go to the database
+ * @param queryPuts      Query results stored in the query cache
+ * @param queryHitRatio  Share of cacheable queries served from the cache, between 0 and 1
+ */
+public record CacheStatistics(
+        long entityHits,
+        long entityMisses,
+        long entityPuts,
+        double entityHitRatio,
+        long queryHits,
+        long queryMisses,
+        long queryPuts,
+        double queryHitRatio
+) {
+
+    public static CacheStatistics of(
+            long entityHits,
+            long entityMisses,
+            long entityPuts,
+            long queryHits,
+            long queryMisses,
+            long queryPuts
+    ) {
+        return new CacheStatistics(
+                entityHits, entityMisses, entityPuts, ratio(entityHits, entityMisses),
+                queryHits, queryMisses, queryPuts, ratio(queryHits, queryMisses)
+        );
+    }
+
+    private static double ratio(long hits, long misses) {
+        long total = hits + misses;
+        return total == 0 ? 0 : (double) hits / total;
+    }
+}
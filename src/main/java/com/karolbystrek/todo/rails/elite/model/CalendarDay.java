@@ -0,0 +1,15 @@
+package com.karolbystrek.todo.rails.elite.model;
+
+import java.time.LocalDate;
+
+/**
+ * The tasks due on one day of a calendar.
+ *
+ * @param date         The day
+ * @param pending      Number of incomplete tasks due that day
+ * @param completed    Number of completed tasks due that day
+ * @param pendingIds   IDs of the incomplete tasks, in ascending order
+ * @param completedIds IDs of the completed tasks, in ascending order
+ */
+public record CalendarDay(LocalDate date, int pending, int completed, long[] pendingIds, long[] completedIds) {
+}
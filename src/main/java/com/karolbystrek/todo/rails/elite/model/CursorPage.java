@@ -0,0 +1,13 @@
+package com.karolbystrek.todo.rails.elite.model;
+
+import java.util.List;
+
+/**
+ * A single page of a cursor-paginated listing.
+ *
+ * @param items      Items on this page
+ * @param nextCursor Opaque token for fetching the following page, or null on the last page
+ * @param <T>        Type of the listed items
+ */
+public record CursorPage<T>(List<T> items, String nextCursor) {
+}
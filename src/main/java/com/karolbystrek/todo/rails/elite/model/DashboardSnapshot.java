@@ -0,0 +1,13 @@
+package com.karolbystrek.todo.rails.elite.model;
+
+import java.util.List;
+
+/**
+ * Everything the dashboard page renders, loaded at once.
+ *
+ * @param counts       Aggregated task counters
+ * @param pendingTasks All incomplete tasks
+ * @param todayTasks   Incomplete tasks due today
+ */
+public record DashboardSnapshot(TaskCounts counts, List<TaskSummary> pendingTasks, List<TaskSummary> todayTasks) {
+}
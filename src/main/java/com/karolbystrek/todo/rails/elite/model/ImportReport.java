@@ -0,0 +1,19 @@
+package com.karolbystrek.todo.rails.elite.model;
+
+/**
+ * Outcome of a bulk task import.
+ *
+ * @param imported          Number of tasks inserted
+ * @param skippedDuplicates Number of rows skipped because a task with the same title already exists
+ * @param rejectedInvalid   Number of rows rejected by validation
+ * @param elapsedMillis     Wall-clock duration of the import in milliseconds
+ * @param rowsPerSecond     Achieved insert throughput in tasks per second
+ */
+public record ImportReport(
+        long imported,
+        long skippedDuplicates,
+        long rejectedInvalid,
+        long elapsedMillis,
+        double rowsPerSecond
+) {
+}
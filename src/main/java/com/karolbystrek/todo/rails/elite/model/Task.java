@@ -1,26 +1,43 @@
 package com.karolbystrek.todo.rails.elite.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.DynamicUpdate;
 
 import java.time.LocalDate;
 
 @Data
 @NoArgsConstructor
 @Entity
-@Table(name = "tasks")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "tasks")
+@DynamicUpdate
+@Table(
+        name = "tasks",
+        uniqueConstraints = @UniqueConstraint(name = "uk_tasks_user_title", columnNames = {"user_id", "title"}),
+        indexes = {
+                @Index(name = "idx_tasks_user_completed_due_date", columnList = "user_id, completed, due_date"),
+                @Index(name = "idx_tasks_user_due_date", columnList = "user_id, due_date, id")
+        }
+)
 public class Task {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "tasks_seq")
+    @SequenceGenerator(name = "tasks_seq", sequenceName = "tasks_seq", allocationSize = 50)
     private Long id;
 
     @NotNull(message = "Title cannot be null")
     @NotBlank(message = "Title is required")
-    @Column(name = "title", unique = true, nullable = false)
+    @Column(name = "title", nullable = false)
     private String title;
 
     @NotNull(message = "Description cannot be null")
@@ -35,6 +52,17 @@ public class Task {
     @Column(name = "due_date", nullable = false)
     private LocalDate dueDate;
 
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
+
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "user_id", nullable = false, foreignKey = @ForeignKey(name = "fk_tasks_user"))
+    private User user;
+
     public Task(String title, String description, boolean completed, LocalDate dueDate) {
         this.title = title;
         this.description = description;
@@ -0,0 +1,34 @@
+package com.karolbystrek.todo.rails.elite.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A persisted task counter of one user. Each user has their own row per counter,
+ * so concurrent task writes of different users never update the same row.
+ */
+@Data
+@NoArgsConstructor
+@Entity
+@IdClass(TaskCounterId.class)
+@Table(name = "user_task_counters")
+public class TaskCounter {
+
+    @Id
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Id
+    @Column(name = "name", nullable = false, length = 32)
+    private String name;
+
+    @Column(name = "counter_value", nullable = false)
+    private long value;
+
+    public TaskCounter(Long userId, String name, long value) {
+        this.userId = userId;
+        this.name = name;
+        this.value = value;
+    }
+}
@@ -0,0 +1,12 @@
+package com.karolbystrek.todo.rails.elite.model;
+
+import java.io.Serializable;
+
+/**
+ * Composite primary key of {@link TaskCounter}.
+ *
+ * @param userId ID of the user owning the counter
+ * @param name   Name of the counter
+ */
+public record TaskCounterId(Long userId, String name) implements Serializable {
+}
@@ -0,0 +1,12 @@
+package com.karolbystrek.todo.rails.elite.model;
+
+/**
+ * Aggregated task counters computed by a single query.
+ *
+ * @param total        Number of all tasks
+ * @param pending      Number of incomplete tasks
+ * @param pendingToday Number of incomplete tasks due today
+ * @param completed    Number of completed tasks
+ */
+public record TaskCounts(long total, long pending, long pendingToday, long completed) {
+}
@@ -0,0 +1,15 @@
+package com.karolbystrek.todo.rails.elite.model;
+
+import java.time.LocalDate;
+
+/**
+ * The due date and status of a task, as read for the calendar index.
+ *
+ * @param id        ID of the task
+ * @param userId    ID of the user owning the task
+ * @param completed Whether the task is completed
+ * @param dueDate   Due date of the task
+ * @param version   Version of the task this state was read at
+ */
+public record TaskDueDate(Long id, Long userId, boolean completed, LocalDate dueDate, Long version) {
+}
@@ -0,0 +1,18 @@
+package com.karolbystrek.todo.rails.elite.model;
+
+import com.karolbystrek.todo.rails.elite.event.TaskChange;
+
+import java.util.List;
+
+/**
+ * Pushed to the open dashboards of a user whenever their tasks change.
+ *
+ * @param version        Data version of the user the counters were read at, newer notifications have higher versions
+ * @param counts         Current task counters of the user
+ * @param changes        The changed tasks, empty if the notification only carries counters
+ * @param removedIds     IDs of tasks that were completed or deleted by a set-based change; they may
+ *                       include tasks that were already completed or that do not belong to the user
+ * @param changesOmitted True if too many tasks changed at once to list them, so the task list must be reloaded
+ */
+public record TaskNotification(long version, TaskCounts counts, List<TaskChange> changes, List<Long> removedIds, boolean changesOmitted) {
+}
@@ -0,0 +1,13 @@
+package com.karolbystrek.todo.rails.elite.model;
+
+import java.time.LocalDate;
+
+/**
+ * A pending task whose due date a reminder is scheduled for.
+ *
+ * @param taskId  ID of the task
+ * @param userId  ID of the user owning the task
+ * @param dueDate Due date of the task
+ */
+public record TaskReminder(Long taskId, Long userId, LocalDate dueDate) {
+}
@@ -0,0 +1,15 @@
+package com.karolbystrek.todo.rails.elite.model;
+
+import java.util.List;
+
+/**
+ * Pushed to the open dashboards of a user at the start of a day in which some of their tasks
+ * became due or overdue.
+ *
+ * @param version    Data version of the user the counters were read at
+ * @param counts     Current task counters of the user
+ * @param dueIds     IDs of the pending tasks due today
+ * @param overdueIds IDs of the pending tasks that became overdue today
+ */
+public record TaskReminderNotification(long version, TaskCounts counts, List<Long> dueIds, List<Long> overdueIds) {
+}
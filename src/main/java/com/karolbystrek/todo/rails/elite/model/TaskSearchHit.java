@@ -0,0 +1,10 @@
+package com.karolbystrek.todo.rails.elite.model;
+
+/**
+ * A task matching a search query.
+ *
+ * @param task  The matching task, without its description
+ * @param score Relevance of the task for the query, higher is better
+ */
+public record TaskSearchHit(TaskSummary task, double score) {
+}
@@ -0,0 +1,37 @@
+package com.karolbystrek.todo.rails.elite.model;
+
+import java.time.LocalDate;
+
+/**
+ * Immutable copy of the state of a task at one point in time.
+ *
+ * @param id          ID of the task
+ * @param userId      ID of the user owning the task
+ * @param title       Title of the task
+ * @param description Description of the task
+ * @param completed   Whether the task is completed
+ * @param dueDate     Due date of the task
+ * @param version     Version of the task this state was written with
+ */
+public record TaskSnapshot(Long id, Long userId, String title, String description, boolean completed, LocalDate dueDate, Long version) {
+
+    public static TaskSnapshot of(Task task) {
+        return new TaskSnapshot(
+                task.getId(),
+                task.getUser() == null ? null : task.getUser().getId(),
+                task.getTitle(),
+                task.getDescription(),
+                task.isCompleted(),
+                task.getDueDate(),
+                task.getVersion()
+        );
+    }
+
+    public TaskSnapshot withCompleted(boolean completed) {
+        return new TaskSnapshot(id, userId, title, description, completed, dueDate, version);
+    }
+
+    public TaskSnapshot withDueDate(LocalDate dueDate) {
+        return new TaskSnapshot(id, userId, title, description, completed, dueDate, version);
+    }
+}
@@ -0,0 +1,17 @@
+package com.karolbystrek.todo.rails.elite.model;
+
+import java.time.LocalDate;
+
+/**
+ * Read-only row of a task list, without the description.
+ *
+ * <p>Loaded by projection queries that select only these columns, so listing tasks
+ * neither hydrates managed entities nor dirty checks them at flush.</p>
+ *
+ * @param id        ID of the task
+ * @param title     Title of the task
+ * @param completed Whether the task is completed
+ * @param dueDate   Due date of the task
+ */
+public record TaskSummary(Long id, String title, boolean completed, LocalDate dueDate) {
+}
@@ -7,30 +7,50 @@ import org.springframework.security.core.userdetails.UserDetails;
 
 import java.util.Arrays;
 import java.util.Collection;
-
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Immutable snapshot of a {@link User} for Spring Security.
+ *
+ * <p>Authorities are parsed once when the snapshot is created, which makes
+ * instances safe to cache and share between threads.</p>
+ */
 public class SecurityUser implements UserDetails {
 
-    private final User user;
+    private final Long id;
+    private final String username;
+    private final String password;
+    private final Set<GrantedAuthority> authorities;
 
     public SecurityUser(User user) {
-        this.user = user;
+        this.id = user.getId();
+        this.username = user.getUsername();
+        this.password = user.getPassword();
+        this.authorities = Arrays.stream(user.getRoles().split(","))
+                .map(String::strip)
+                .filter(role -> !role.isEmpty())
+                .map(SimpleGrantedAuthority::new)
+                .collect(Collectors.toUnmodifiableSet());
+    }
+
+    public Long getId() {
+        return id;
     }
 
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
-        return Arrays.stream(user.getRoles().split(","))
-                .map(SimpleGrantedAuthority::new)
-                .toList();
+        return authorities;
     }
 
     @Override
     public String getPassword() {
-        return user.getPassword();
+        return password;
     }
 
     @Override
     public String getUsername() {
-        return user.getUsername();
+        return username;
     }
 
 }
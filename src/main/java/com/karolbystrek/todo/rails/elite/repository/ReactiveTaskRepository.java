@@ -0,0 +1,110 @@
+package com.karolbystrek.todo.rails.elite.repository;
+
+import com.karolbystrek.todo.rails.elite.config.ReactiveDataSourceProperties;
+import com.karolbystrek.todo.rails.elite.model.TaskSummary;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import io.r2dbc.spi.Readable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+
+/**
+ * Non-blocking reads of task summaries over R2DBC, for the reactive task API.
+ *
+ * <p>Rows are emitted as the subscriber requests them, so a slow client holds back the
+ * reads instead of filling a buffer. The pool is owned by this repository rather than
+ * exposed as a {@link ConnectionFactory} bean, since Spring Boot backs off from the
+ * JDBC data source the JPA stack runs on as soon as such a bean exists. Reads bypass
+ * the Hibernate caches and the read replicas.</p>
+ */
+@Repository
+@ConditionalOnProperty(prefix = "todo.datasource.reactive", name = "enabled", havingValue = "true")
+public class ReactiveTaskRepository implements AutoCloseable {
+
+    private static final String SELECT_SUMMARIES = "SELECT id, title, completed, due_date FROM tasks WHERE user_id = :userId";
+
+    private final ConnectionPool pool;
+    private final DatabaseClient databaseClient;
+
+    @Autowired
+    public ReactiveTaskRepository(ReactiveDataSourceProperties properties) {
+        this(ConnectionFactories.get(options(properties)), properties.maximumPoolSize());
+    }
+
+    ReactiveTaskRepository(ConnectionFactory connectionFactory, int maximumPoolSize) {
+        this.pool = new ConnectionPool(ConnectionPoolConfiguration.builder(connectionFactory)
+                .name("reactive")
+                .initialSize(0)
+                .maxSize(maximumPoolSize)
+                .build());
+        this.databaseClient = DatabaseClient.create(pool);
+    }
+
+    public Flux<TaskSummary> findSummariesByUserId(Long userId) {
+        return databaseClient.sql(SELECT_SUMMARIES + " ORDER BY due_date, id")
+                .bind("userId", userId)
+                .map(ReactiveTaskRepository::summary)
+                .all();
+    }
+
+    public Flux<TaskSummary> findSummariesByUserIdAndCompleted(Long userId, boolean completed) {
+        return databaseClient.sql(SELECT_SUMMARIES + " AND completed = :completed ORDER BY due_date, id")
+                .bind("userId", userId)
+                .bind("completed", completed)
+                .map(ReactiveTaskRepository::summary)
+                .all();
+    }
+
+    public Flux<TaskSummary> findPendingSummariesByUserIdAndDueDate(Long userId, LocalDate dueDate) {
+        return databaseClient.sql(SELECT_SUMMARIES + " AND completed = FALSE AND due_date = :dueDate ORDER BY id")
+                .bind("userId", userId)
+                .bind("dueDate", dueDate)
+                .map(ReactiveTaskRepository::summary)
+                .all();
+    }
+
+    public Mono<TaskSummary> findSummaryByUserIdAndId(Long userId, Long id) {
+        return databaseClient.sql(SELECT_SUMMARIES + " AND id = :id")
+                .bind("userId", userId)
+                .bind("id", id)
+                .map(ReactiveTaskRepository::summary)
+                .one();
+    }
+
+    /**
+     * Closes the connection pool with the application context.
+     */
+    @Override
+    public void close() {
+        pool.dispose();
+    }
+
+    private static ConnectionFactoryOptions options(ReactiveDataSourceProperties properties) {
+        ConnectionFactoryOptions.Builder options = ConnectionFactoryOptions.parse(properties.url()).mutate();
+        if (properties.username() != null) {
+            options.option(ConnectionFactoryOptions.USER, properties.username());
+        }
+        if (properties.password() != null) {
+            options.option(ConnectionFactoryOptions.PASSWORD, properties.password());
+        }
+        return options.build();
+    }
+
+    private static TaskSummary summary(Readable row) {
+        return new TaskSummary(
+                row.get("id", Long.class),
+                row.get("title", String.class),
+                Boolean.TRUE.equals(row.get("completed", Boolean.class)),
+                row.get("due_date", LocalDate.class)
+        );
+    }
+}
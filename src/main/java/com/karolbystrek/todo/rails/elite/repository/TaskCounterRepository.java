@@ -0,0 +1,49 @@
+package com.karolbystrek.todo.rails.elite.repository;
+
+import com.karolbystrek.todo.rails.elite.model.TaskCounter;
+import com.karolbystrek.todo.rails.elite.model.TaskCounterId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface TaskCounterRepository extends JpaRepository<TaskCounter, TaskCounterId> {
+
+    List<TaskCounter> findByUserId(Long userId);
+
+    @Modifying
+    @Query("update TaskCounter c set c.value = c.value + :delta where c.userId = :userId and c.name = :name")
+    int increment(@Param("userId") Long userId, @Param("name") String name, @Param("delta") long delta);
+
+    @Modifying
+    @Query("""
+            update TaskCounter c
+            set c.value = case c.name when 'pending' then c.value - :completed else c.value + :completed end
+            where c.userId = :userId and c.name in ('pending', 'completed')
+            """)
+    int countCompleted(@Param("userId") Long userId, @Param("completed") long completed);
+
+    @Modifying
+    @Query("""
+            update TaskCounter c
+            set c.value = c.value - (
+                select count(t) from Task t
+                where t.user.id = c.userId and t.id in :ids and (
+                    c.name = 'total'
+                    or c.name = 'pending' and t.completed = false
+                    or c.name = 'completed' and t.completed = true
+                )
+            )
+            where c.userId = :userId
+            """)
+    int countDeleted(@Param("userId") Long userId, @Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Query("delete from TaskCounter c where c.userId = :userId")
+    int deleteByUserId(@Param("userId") Long userId);
+}
@@ -1,12 +1,156 @@
 package com.karolbystrek.todo.rails.elite.repository;
 
 import com.karolbystrek.todo.rails.elite.model.Task;
+import com.karolbystrek.todo.rails.elite.model.TaskCounts;
+import com.karolbystrek.todo.rails.elite.model.TaskDueDate;
+import com.karolbystrek.todo.rails.elite.model.TaskReminder;
+import com.karolbystrek.todo.rails.elite.model.TaskSnapshot;
+import com.karolbystrek.todo.rails.elite.model.TaskSummary;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
 @Repository
 public interface TaskRepository extends JpaRepository<Task, Long> {
-    Optional<Task> findByTitle(String title);
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    Optional<Task> findByUserIdAndTitle(Long userId, String title);
+
+    @Query("select t.title from Task t where t.user.id = :userId and t.title in :titles")
+    Set<String> findExistingTitles(@Param("userId") Long userId, @Param("titles") Collection<String> titles);
+
+    @Query("select t.id from Task t where t.user.id = :userId")
+    List<Long> findIdsByUserId(@Param("userId") Long userId);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    List<TaskSummary> findSummariesByUserIdOrderByDueDateAsc(Long userId);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    List<TaskSummary> findSummariesByUserIdAndCompletedOrderByDueDateAsc(Long userId, boolean completed);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    List<TaskSummary> findSummariesByUserIdAndCompletedFalseAndDueDate(Long userId, LocalDate dueDate);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    List<TaskSummary> findSummariesByUserIdAndCompletedFalseAndDueDateBeforeOrderByDueDateAsc(Long userId, LocalDate dueDate);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    List<TaskSummary> findSummariesByUserIdAndCompletedFalseAndDueDateBetweenOrderByDueDateAsc(Long userId, LocalDate from, LocalDate to);
+
+    Window<TaskSummary> findSummariesByUserIdOrderByDueDateAscIdAsc(Long userId, ScrollPosition position, Limit limit);
+
+    Window<TaskSummary> findSummariesByUserIdAndCompletedOrderByDueDateAscIdAsc(
+            Long userId, boolean completed, ScrollPosition position, Limit limit
+    );
+
+    Window<TaskSummary> findSummariesByUserIdAndCompletedFalseAndDueDateOrderByDueDateAscIdAsc(
+            Long userId, LocalDate dueDate, ScrollPosition position, Limit limit
+    );
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_MODE, value = "IGNORE")
+    })
+    Stream<Task> streamAllByUserIdOrderByDueDateAscIdAsc(Long userId);
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_MODE, value = "IGNORE")
+    })
+    @Query("""
+            select new com.karolbystrek.todo.rails.elite.model.TaskSnapshot(t.id, t.user.id, t.title, t.description, t.completed, t.dueDate, t.version)
+            from Task t
+            """)
+    Stream<TaskSnapshot> streamAllSnapshots();
+
+    @Query("""
+            select new com.karolbystrek.todo.rails.elite.model.TaskSnapshot(t.id, t.user.id, t.title, t.description, t.completed, t.dueDate, t.version)
+            from Task t
+            where t.user.id = :userId and t.id in :ids
+            """)
+    List<TaskSnapshot> findSnapshotsByIdIn(@Param("userId") Long userId, @Param("ids") Collection<Long> ids);
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_MODE, value = "IGNORE")
+    })
+    @Query("""
+            select new com.karolbystrek.todo.rails.elite.model.TaskDueDate(t.id, t.user.id, t.completed, t.dueDate, t.version)
+            from Task t
+            """)
+    Stream<TaskDueDate> streamAllDueDates();
+
+    @Query("""
+            select new com.karolbystrek.todo.rails.elite.model.TaskDueDate(t.id, t.user.id, t.completed, t.dueDate, t.version)
+            from Task t
+            where t.user.id = :userId and t.id in :ids
+            """)
+    List<TaskDueDate> findDueDatesByIdIn(@Param("userId") Long userId, @Param("ids") Collection<Long> ids);
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_MODE, value = "IGNORE")
+    })
+    @Query("""
+            select new com.karolbystrek.todo.rails.elite.model.TaskReminder(t.id, t.user.id, t.dueDate)
+            from Task t
+            where t.completed = false and t.dueDate >= :from
+            """)
+    Stream<TaskReminder> streamPendingRemindersFrom(@Param("from") LocalDate from);
+
+    @Query("""
+            select new com.karolbystrek.todo.rails.elite.model.TaskReminder(t.id, t.user.id, t.dueDate)
+            from Task t
+            where t.user.id = :userId and t.id in :ids and t.completed = false and t.dueDate >= :from
+            """)
+    List<TaskReminder> findPendingRemindersByIdIn(
+            @Param("userId") Long userId,
+            @Param("ids") Collection<Long> ids,
+            @Param("from") LocalDate from
+    );
+
+    @Query("""
+            select new com.karolbystrek.todo.rails.elite.model.TaskCounts(
+                count(t),
+                coalesce(sum(case when t.completed = false then 1L else 0L end), 0L),
+                coalesce(sum(case when t.completed = false and t.dueDate = :today then 1L else 0L end), 0L),
+                coalesce(sum(case when t.completed = true then 1L else 0L end), 0L)
+            )
+            from Task t
+            where t.user.id = :userId
+            """)
+    TaskCounts countTasks(@Param("userId") Long userId, @Param("today") LocalDate today);
+
+    long countByUserIdAndCompletedFalseAndDueDate(Long userId, LocalDate dueDate);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Task t set t.completed = true, t.version = t.version + 1 where t.user.id = :userId and t.id in :ids and t.completed = false")
+    int completeByIdIn(@Param("userId") Long userId, @Param("ids") Collection<Long> ids);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Task t set t.dueDate = :dueDate, t.version = t.version + 1 where t.user.id = :userId and t.id in :ids")
+    int rescheduleByIdIn(
+            @Param("userId") Long userId,
+            @Param("ids") Collection<Long> ids,
+            @Param("dueDate") LocalDate dueDate
+    );
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("delete from Task t where t.user.id = :userId and t.id in :ids")
+    int deleteByIdIn(@Param("userId") Long userId, @Param("ids") Collection<Long> ids);
 }
@@ -2,8 +2,10 @@ package com.karolbystrek.todo.rails.elite.repository;
 
 import com.karolbystrek.todo.rails.elite.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -11,4 +13,7 @@ public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByUsername(String username);
 
     Optional<User> findByEmail(String email);
+
+    @Query("select u.id from User u order by u.id")
+    List<Long> findAllIds();
 }
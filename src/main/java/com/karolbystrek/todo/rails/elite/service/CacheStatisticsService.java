@@ -0,0 +1,45 @@
+package com.karolbystrek.todo.rails.elite.service;
+
+import com.karolbystrek.todo.rails.elite.model.CacheStatistics;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * Reports how well the Hibernate second-level and query caches are working.
+ */
+@Service
+public class CacheStatisticsService {
+
+    private final Statistics statistics;
+
+    @Autowired
+    public CacheStatisticsService(EntityManagerFactory entityManagerFactory) {
+        this.statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    /**
+     * Retrieves the cache counters accumulated since startup or the last reset.
+     *
+     * @return Current cache statistics
+     */
+    public CacheStatistics getStatistics() {
+        return CacheStatistics.of(
+                statistics.getSecondLevelCacheHitCount(),
+                statistics.getSecondLevelCacheMissCount(),
+                statistics.getSecondLevelCachePutCount(),
+                statistics.getQueryCacheHitCount(),
+                statistics.getQueryCacheMissCount(),
+                statistics.getQueryCachePutCount()
+        );
+    }
+
+    /**
+     * Resets all counters to zero.
+     */
+    public void resetStatistics() {
+        statistics.clear();
+    }
+}
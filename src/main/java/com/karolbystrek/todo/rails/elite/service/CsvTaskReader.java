@@ -0,0 +1,155 @@
+package com.karolbystrek.todo.rails.elite.service;
+
+import com.karolbystrek.todo.rails.elite.model.Task;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads tasks one record at a time from CSV input.
+ *
+ * <p>The first record is a header naming the columns {@code title}, {@code description},
+ * {@code completed} and {@code dueDate} (or {@code due_date}) in any order. Fields may be
+ * quoted, with {@code ""} standing for a literal quote. Values that cannot be parsed are
+ * left empty so that bean validation rejects the row.</p>
+ */
+final class CsvTaskReader implements Iterator<Task> {
+
+    private static final String[] COLUMNS = {"title", "description", "completed", "duedate"};
+    private static final int TITLE = 0;
+    private static final int DESCRIPTION = 1;
+    private static final int COMPLETED = 2;
+    private static final int DUE_DATE = 3;
+
+    private final BufferedReader reader;
+    private final int[] columnPositions = new int[COLUMNS.length];
+    private List<String> nextRecord;
+
+    CsvTaskReader(Reader reader) throws IOException {
+        this.reader = new BufferedReader(reader);
+        List<String> header = readRecord();
+        if (header == null) {
+            throw new IllegalArgumentException("CSV input is empty");
+        }
+        for (int column = 0; column < COLUMNS.length; column++) {
+            columnPositions[column] = -1;
+            for (int position = 0; position < header.size(); position++) {
+                String name = header.get(position).replace("_", "").toLowerCase(Locale.ROOT);
+                if (name.equals(COLUMNS[column])) {
+                    columnPositions[column] = position;
+                }
+            }
+        }
+        if (columnPositions[TITLE] < 0) {
+            throw new IllegalArgumentException("CSV header must contain a 'title' column");
+        }
+        nextRecord = readNonBlankRecord();
+    }
+
+    @Override
+    public boolean hasNext() {
+        return nextRecord != null;
+    }
+
+    @Override
+    public Task next() {
+        if (nextRecord == null) {
+            throw new NoSuchElementException();
+        }
+        Task task = toTask(nextRecord);
+        try {
+            nextRecord = readNonBlankRecord();
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+        return task;
+    }
+
+    private Task toTask(List<String> record) {
+        String dueDate = field(record, DUE_DATE);
+        return new Task(
+                field(record, TITLE),
+                field(record, DESCRIPTION),
+                Boolean.parseBoolean(field(record, COMPLETED)),
+                parseDate(dueDate)
+        );
+    }
+
+    private String field(List<String> record, int column) {
+        int position = columnPositions[column];
+        if (position < 0 || position >= record.size()) {
+            return null;
+        }
+        return record.get(position).strip();
+    }
+
+    private static LocalDate parseDate(String value) {
+        if (value == null || value.isEmpty()) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(value);
+        } catch (DateTimeParseException exception) {
+            return null;
+        }
+    }
+
+    private List<String> readNonBlankRecord() throws IOException {
+        List<String> record = readRecord();
+        while (record != null && record.size() == 1 && record.getFirst().isBlank()) {
+            record = readRecord();
+        }
+        return record;
+    }
+
+    private List<String> readRecord() throws IOException {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        boolean readAnything = false;
+        int character;
+        while ((character = reader.read()) != -1) {
+            readAnything = true;
+            if (quoted) {
+                if (character == '"') {
+                    reader.mark(1);
+                    int following = reader.read();
+                    if (following == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        if (following != -1) {
+                            reader.reset();
+                        }
+                    }
+                } else {
+                    field.append((char) character);
+                }
+            } else if (character == '"') {
+                quoted = true;
+            } else if (character == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (character == '\n') {
+                fields.add(field.toString());
+                return fields;
+            } else if (character != '\r') {
+                field.append((char) character);
+            }
+        }
+        if (!readAnything) {
+            return null;
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
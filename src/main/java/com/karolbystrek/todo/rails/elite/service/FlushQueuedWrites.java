@@ -0,0 +1,20 @@
+package com.karolbystrek.todo.rails.elite.service;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a method that needs the queued writes of a user to be committed before it runs,
+ * because it reads that user's tasks or changes tasks a queued write may also change.
+ *
+ * <p>The user is the method's first argument, a {@code Long}. See
+ * {@link TaskWriteBehindAspect}.</p>
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface FlushQueuedWrites {
+}
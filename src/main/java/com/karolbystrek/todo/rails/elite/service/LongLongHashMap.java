@@ -0,0 +1,180 @@
+package com.karolbystrek.todo.rails.elite.service;
+
+import java.util.Arrays;
+import java.util.function.LongPredicate;
+
+/**
+ * A hash map from {@code long} keys to {@code long} values, without boxing.
+ *
+ * <p>Entries live in two parallel arrays with open addressing and linear probing, and
+ * removals shift the following entries back instead of leaving markers, so lookups stay
+ * short however many entries came and went. {@link Long#MIN_VALUE} marks a free slot and
+ * cannot be used as a key. Not thread-safe.</p>
+ */
+final class LongLongHashMap {
+
+    private static final long FREE = Long.MIN_VALUE;
+    private static final int MIN_CAPACITY = 8;
+
+    private long[] keys;
+    private long[] values;
+    private int mask;
+    private int size;
+
+    LongLongHashMap() {
+        allocate(MIN_CAPACITY);
+    }
+
+    /**
+     * Returns the number of entries in the map.
+     *
+     * @return Number of entries
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Tells whether the map holds a key.
+     *
+     * @param key The key to look up
+     * @return True if the key is in the map
+     */
+    boolean containsKey(long key) {
+        return slot(key) >= 0;
+    }
+
+    /**
+     * Looks up the value of a key.
+     *
+     * @param key     The key to look up
+     * @param missing The value returned if the key is not in the map
+     * @return The value of the key, or {@code missing}
+     */
+    long get(long key, long missing) {
+        int slot = slot(key);
+        return slot < 0 ? missing : values[slot];
+    }
+
+    /**
+     * Sets the value of a key.
+     *
+     * @param key   The key, anything but {@link Long#MIN_VALUE}
+     * @param value The value of the key
+     * @throws IllegalArgumentException if the key is {@link Long#MIN_VALUE}
+     */
+    void put(long key, long value) {
+        if (key == FREE) {
+            throw new IllegalArgumentException("Long.MIN_VALUE cannot be a key");
+        }
+        int index = home(key);
+        while (keys[index] != FREE) {
+            if (keys[index] == key) {
+                values[index] = value;
+                return;
+            }
+            index = (index + 1) & mask;
+        }
+        keys[index] = key;
+        values[index] = value;
+        size++;
+        if (size > keys.length >> 1) {
+            resize(keys.length << 1);
+        }
+    }
+
+    /**
+     * Removes a key, releasing the spare capacity once the map is mostly empty.
+     *
+     * @param key The key to remove
+     * @return False if the key was not in the map
+     */
+    boolean remove(long key) {
+        int slot = slot(key);
+        if (slot < 0) {
+            return false;
+        }
+        closeGap(slot);
+        size--;
+        if (keys.length > MIN_CAPACITY && size < keys.length >> 3) {
+            resize(keys.length >> 1);
+        }
+        return true;
+    }
+
+    /**
+     * Removes the entries whose value matches a filter.
+     *
+     * @param filter Tells which values to remove
+     */
+    void removeValuesIf(LongPredicate filter) {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        int remaining = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != FREE && !filter.test(oldValues[i])) {
+                remaining++;
+            }
+        }
+        allocate(capacityFor(remaining));
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != FREE && !filter.test(oldValues[i])) {
+                put(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    private int slot(long key) {
+        if (key == FREE) {
+            return -1;
+        }
+        for (int index = home(key); keys[index] != FREE; index = (index + 1) & mask) {
+            if (keys[index] == key) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Frees a slot, moving back the following entries that would no longer be found past it.
+     */
+    private void closeGap(int gap) {
+        for (int index = (gap + 1) & mask; keys[index] != FREE; index = (index + 1) & mask) {
+            // An entry may fill the gap if the gap lies between its home slot and where it is now
+            if (((index - home(keys[index])) & mask) >= ((index - gap) & mask)) {
+                keys[gap] = keys[index];
+                values[gap] = values[index];
+                gap = index;
+            }
+        }
+        keys[gap] = FREE;
+    }
+
+    private int home(long key) {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != FREE) {
+                put(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        Arrays.fill(keys, FREE);
+        values = new long[capacity];
+        mask = capacity - 1;
+        size = 0;
+    }
+
+    private static int capacityFor(int size) {
+        return Math.max(MIN_CAPACITY, Integer.highestOneBit(size * 2 + 1) << 1);
+    }
+}
@@ -0,0 +1,86 @@
+package com.karolbystrek.todo.rails.elite.service;
+
+import com.karolbystrek.todo.rails.elite.model.TaskSummary;
+import com.karolbystrek.todo.rails.elite.repository.ReactiveTaskRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+
+/**
+ * Reactive variant of the task reads of {@link TaskService}, enabled with
+ * {@code todo.datasource.reactive.enabled=true}.
+ *
+ * <p>The returned publishers run their query when subscribed to. Queued writes of the
+ * user are flushed when the method is called, before that.</p>
+ */
+@Service
+@ConditionalOnProperty(prefix = "todo.datasource.reactive", name = "enabled", havingValue = "true")
+public class ReactiveTaskService {
+
+    private final ReactiveTaskRepository reactiveTaskRepository;
+
+    @Autowired
+    public ReactiveTaskService(ReactiveTaskRepository reactiveTaskRepository) {
+        this.reactiveTaskRepository = reactiveTaskRepository;
+    }
+
+    /**
+     * Retrieves a task of a user.
+     *
+     * @param userId ID of the user owning the task
+     * @param id     ID of the task
+     * @return The task, or empty if the user has no task with the ID
+     */
+    @FlushQueuedWrites
+    public Mono<TaskSummary> getTask(Long userId, Long id) {
+        return reactiveTaskRepository.findSummaryByUserIdAndId(userId, id);
+    }
+
+    /**
+     * Retrieves all tasks of a user.
+     *
+     * @param userId ID of the user owning the tasks
+     * @return The tasks, ordered by due date
+     */
+    @FlushQueuedWrites
+    public Flux<TaskSummary> getAllTasks(Long userId) {
+        return reactiveTaskRepository.findSummariesByUserId(userId);
+    }
+
+    /**
+     * Retrieves the incomplete tasks of a user.
+     *
+     * @param userId ID of the user owning the tasks
+     * @return The incomplete tasks, ordered by due date
+     */
+    @FlushQueuedWrites
+    public Flux<TaskSummary> getPendingTasks(Long userId) {
+        return reactiveTaskRepository.findSummariesByUserIdAndCompleted(userId, false);
+    }
+
+    /**
+     * Retrieves the completed tasks of a user.
+     *
+     * @param userId ID of the user owning the tasks
+     * @return The completed tasks, ordered by due date
+     */
+    @FlushQueuedWrites
+    public Flux<TaskSummary> getCompletedTasks(Long userId) {
+        return reactiveTaskRepository.findSummariesByUserIdAndCompleted(userId, true);
+    }
+
+    /**
+     * Retrieves the incomplete tasks of a user due today.
+     *
+     * @param userId ID of the user owning the tasks
+     * @return The incomplete tasks due today
+     */
+    @FlushQueuedWrites
+    public Flux<TaskSummary> getTodayTasks(Long userId) {
+        return reactiveTaskRepository.findPendingSummariesByUserIdAndDueDate(userId, LocalDate.now());
+    }
+}
@@ -0,0 +1,97 @@
+package com.karolbystrek.todo.rails.elite.service;
+
+import java.util.Arrays;
+
+/**
+ * A set of {@code long} values kept in a sorted array, without boxing.
+ *
+ * <p>Lookups are binary searches and iteration is in ascending order. Adding and
+ * removing shift the values after the position, which is cheap for the small sets
+ * this is meant for. Not thread-safe.</p>
+ */
+final class SortedLongSet {
+
+    private static final long[] EMPTY = new long[0];
+
+    private long[] values = EMPTY;
+    private int size;
+
+    /**
+     * Returns the number of values in the set.
+     *
+     * @return Number of values
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Tells whether the set holds no values.
+     *
+     * @return True if the set is empty
+     */
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Tells whether the set holds a value.
+     *
+     * @param value The value to look up
+     * @return True if the value is in the set
+     */
+    boolean contains(long value) {
+        return Arrays.binarySearch(values, 0, size, value) >= 0;
+    }
+
+    /**
+     * Adds a value to the set.
+     *
+     * @param value The value to add
+     * @return False if the value was already in the set
+     */
+    boolean add(long value) {
+        int index = Arrays.binarySearch(values, 0, size, value);
+        if (index >= 0) {
+            return false;
+        }
+        int position = -index - 1;
+        if (size == values.length) {
+            values = Arrays.copyOf(values, Math.max(4, size + (size >> 1)));
+        }
+        System.arraycopy(values, position, values, position + 1, size - position);
+        values[position] = value;
+        size++;
+        return true;
+    }
+
+    /**
+     * Removes a value from the set, releasing the spare capacity once the set is mostly empty.
+     *
+     * @param value The value to remove
+     * @return False if the value was not in the set
+     */
+    boolean remove(long value) {
+        int index = Arrays.binarySearch(values, 0, size, value);
+        if (index < 0) {
+            return false;
+        }
+        System.arraycopy(values, index + 1, values, index, size - index - 1);
+        size--;
+        if (size == 0) {
+            values = EMPTY;
+        } else if (size < values.length >> 2) {
+            values = Arrays.copyOf(values, size << 1);
+        }
+        return true;
+    }
+
+    /**
+     * Copies the values out of the set.
+     *
+     * @return The values in ascending order
+     */
+    long[] toArray() {
+        return Arrays.copyOf(values, size);
+    }
+}
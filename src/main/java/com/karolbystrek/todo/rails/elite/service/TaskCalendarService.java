@@ -0,0 +1,451 @@
+package com.karolbystrek.todo.rails.elite.service;
+
+import com.karolbystrek.todo.rails.elite.event.TaskChange;
+import com.karolbystrek.todo.rails.elite.event.TaskChangedEvent;
+import com.karolbystrek.todo.rails.elite.event.TasksBulkChangedEvent;
+import com.karolbystrek.todo.rails.elite.model.CalendarDay;
+import com.karolbystrek.todo.rails.elite.model.TaskDueDate;
+import com.karolbystrek.todo.rails.elite.repository.TaskRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Calendar and overdue views of a user's tasks, answered from memory.
+ *
+ * <p>Every user has their own index of day buckets, kept in a sorted array of epoch days
+ * with a parallel array of buckets. A bucket holds the IDs of the pending and of the
+ * completed tasks due that day in two {@link SortedLongSet}s. Like
+ * {@link TaskSearchService}, the index is built from the database in the background once
+ * the application is ready and then kept current from the {@link TaskChangedEvent}s and
+ * {@link TasksBulkChangedEvent}s published for every task write, applied after the write
+ * has committed.</p>
+ *
+ * <p>Writes of the same task may commit in one order and be applied in another, so every
+ * indexed task remembers the version it was indexed at, packed with its day into a
+ * {@link LongLongHashMap}, and older states are ignored. Deleted tasks leave a tombstone
+ * that is swept once it has outlived a full sweep interval, by when the changes committed
+ * before the deletion have long been applied. Set-based changes do not tell the versions
+ * they wrote, so they are applied right away and their tasks are then read back in the
+ * background.</p>
+ */
+@Service
+public class TaskCalendarService {
+
+    static final int MAX_CALENDAR_DAYS = 366;
+    static final int RELOAD_BATCH_SIZE = 1000;
+    static final long TOMBSTONE_SWEEP_MINUTES = 1;
+
+    private final Logger logger;
+    private final TaskRepository taskRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService loader;
+    private volatile Map<Long, UserCalendar> calendars = new ConcurrentHashMap<>();
+    /**
+     * The index being rebuilt next to the one answering reads, or null between rebuilds.
+     */
+    private volatile Map<Long, UserCalendar> rebuilding;
+    /**
+     * Incremented on every sweep, tombstones remember the generation they were left in.
+     */
+    private final AtomicLong tombstoneGeneration = new AtomicLong();
+
+    @Autowired
+    public TaskCalendarService(TaskRepository taskRepository, TransactionTemplate transactionTemplate) {
+        this.logger = LoggerFactory.getLogger(TaskCalendarService.class);
+        this.taskRepository = taskRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.loader = Executors.newSingleThreadExecutor(
+                Thread.ofPlatform().name("task-calendar").daemon().factory()
+        );
+    }
+
+    /**
+     * Builds the index in the background once the application has started.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        loader.execute(() -> {
+            try {
+                rebuild();
+            } catch (RuntimeException exception) {
+                logger.error("Failed to build the calendar index, only tasks changed from now on are indexed", exception);
+            }
+        });
+    }
+
+    /**
+     * Stops reading tasks back for the index.
+     */
+    @PreDestroy
+    public void shutdown() {
+        loader.shutdownNow();
+    }
+
+    /**
+     * Replaces the index with one built from all tasks in the database.
+     *
+     * <p>The new index is built next to the current one, which keeps answering reads until
+     * it is swapped. Changes committed meanwhile are applied to both; rows read by the
+     * rebuild are older than those changes and ignored.</p>
+     *
+     * @return Number of indexed tasks
+     */
+    public synchronized int rebuild() {
+        Map<Long, UserCalendar> rebuilt = new ConcurrentHashMap<>();
+        rebuilding = rebuilt;
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                try (Stream<TaskDueDate> tasks = taskRepository.streamAllDueDates()) {
+                    tasks.forEach(task -> put(rebuilt, task));
+                }
+            });
+            calendars = rebuilt;
+        } finally {
+            rebuilding = null;
+        }
+        int indexed = rebuilt.values().stream().mapToInt(UserCalendar::size).sum();
+        logger.info("Indexed {} tasks of {} users by due date", indexed, rebuilt.size());
+        return indexed;
+    }
+
+    /**
+     * Retrieves the tasks of a user due within a range of days.
+     *
+     * @param userId ID of the user owning the tasks
+     * @param from   First day of the range
+     * @param to     Last day of the range, inclusive
+     * @return The days of the range with at least one task due, in order
+     * @throws IllegalArgumentException if the range is reversed or longer than {@value #MAX_CALENDAR_DAYS} days
+     */
+    @FlushQueuedWrites
+    public List<CalendarDay> getCalendar(Long userId, LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("Calendar range ends before it starts: " + from + " to " + to);
+        }
+        if (ChronoUnit.DAYS.between(from, to) >= MAX_CALENDAR_DAYS) {
+            throw new IllegalArgumentException("Calendar range is longer than " + MAX_CALENDAR_DAYS + " days: " + from + " to " + to);
+        }
+        UserCalendar calendar = calendars.get(userId);
+        return calendar == null ? List.of() : calendar.days(epochDay(from), epochDay(to), false);
+    }
+
+    /**
+     * Retrieves the incomplete tasks of a user whose due date has already passed.
+     *
+     * @param userId ID of the user owning the tasks
+     * @return The past days with at least one incomplete task due, in order, without completed tasks
+     */
+    @FlushQueuedWrites
+    public List<CalendarDay> getOverdue(Long userId) {
+        UserCalendar calendar = calendars.get(userId);
+        return calendar == null ? List.of() : calendar.days(Integer.MIN_VALUE, epochDay(LocalDate.now()) - 1, true);
+    }
+
+    /**
+     * Applies committed task changes to the index.
+     *
+     * @param event The task changes
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void applyChanges(TaskChangedEvent event) {
+        forEachIndex(index -> {
+            for (TaskChange change : event.changes()) {
+                if (change.after() != null) {
+                    put(index, new TaskDueDate(
+                            change.after().id(),
+                            change.after().userId(),
+                            change.after().completed(),
+                            change.after().dueDate(),
+                            change.after().version()
+                    ));
+                } else if (change.before() != null) {
+                    calendar(index, change.before().userId()).delete(change.before().id(), tombstoneGeneration.get());
+                }
+            }
+        });
+    }
+
+    /**
+     * Applies a committed set-based change to the index of its user, and reads the completed
+     * and rescheduled tasks back in the background to pick up their versions. Only the user's
+     * own tasks are in that index, so IDs of other users' tasks are skipped.
+     *
+     * @param event The set-based task change
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void applyBulkChanges(TasksBulkChangedEvent event) {
+        forEachIndex(index -> calendar(index, event.userId()).apply(event, tombstoneGeneration.get()));
+        if (event.operation() != TasksBulkChangedEvent.Operation.DELETE) {
+            try {
+                loader.execute(() -> reload(event.userId(), event.ids()));
+            } catch (RejectedExecutionException exception) {
+                logger.debug("Not reading back the calendar of user {} after shutdown", event.userId());
+            }
+        }
+    }
+
+    /**
+     * Forgets the deletions of tasks made before the previous sweep. Skipped during a
+     * rebuild, which may still read rows of tasks deleted since it started.
+     */
+    @Scheduled(fixedDelay = TOMBSTONE_SWEEP_MINUTES, timeUnit = TimeUnit.MINUTES)
+    public void sweepTombstones() {
+        if (rebuilding != null) {
+            return;
+        }
+        long generation = tombstoneGeneration.getAndIncrement();
+        calendars.values().forEach(calendar -> calendar.sweep(generation));
+    }
+
+    /**
+     * Indexes the current state of the given tasks, read back from the database.
+     *
+     * @param userId ID of the user owning the tasks
+     * @param ids    IDs of the tasks to read back
+     */
+    void reload(Long userId, List<Long> ids) {
+        try {
+            for (int start = 0; start < ids.size(); start += RELOAD_BATCH_SIZE) {
+                List<Long> batch = ids.subList(start, Math.min(start + RELOAD_BATCH_SIZE, ids.size()));
+                List<TaskDueDate> tasks = transactionTemplate.execute(status -> taskRepository.findDueDatesByIdIn(userId, batch));
+                if (tasks != null) {
+                    forEachIndex(index -> tasks.forEach(task -> put(index, task)));
+                }
+            }
+        } catch (RuntimeException exception) {
+            logger.error("Failed to read back {} tasks of user {} for the calendar", ids.size(), userId, exception);
+        }
+    }
+
+    /**
+     * Runs a change against the index answering reads and, during a rebuild, the one being built.
+     */
+    private void forEachIndex(Consumer<Map<Long, UserCalendar>> change) {
+        // Read before the current index, so a rebuild swapped meanwhile is not missed
+        Map<Long, UserCalendar> next = rebuilding;
+        Map<Long, UserCalendar> current = calendars;
+        change.accept(current);
+        if (next != null && next != current) {
+            change.accept(next);
+        }
+    }
+
+    private static void put(Map<Long, UserCalendar> index, TaskDueDate task) {
+        if (task.userId() != null) {
+            calendar(index, task.userId()).put(task);
+        }
+    }
+
+    private static UserCalendar calendar(Map<Long, UserCalendar> index, Long userId) {
+        return index.computeIfAbsent(userId, id -> new UserCalendar());
+    }
+
+    private static int epochDay(LocalDate date) {
+        return Math.toIntExact(date.toEpochDay());
+    }
+
+    /**
+     * The day buckets of a single user.
+     */
+    private static final class UserCalendar {
+
+        private static final int NO_DUE_DATE = Integer.MIN_VALUE;
+        private static final long COMPLETED = 1L << 31;
+        private static final long VERSION_BITS = COMPLETED - 1;
+        /**
+         * Packs to all bits set, which no indexed task does since versions stay below {@link #VERSION_BITS}.
+         */
+        private static final long NOT_INDEXED = -1;
+
+        /**
+         * Epoch days with at least one task due, ascending, up to {@link #dayCount}.
+         */
+        private int[] days = new int[0];
+        private DayBucket[] buckets = new DayBucket[0];
+        private int dayCount;
+        /**
+         * Indexed tasks by ID, each packed into the epoch day it is due in the upper half,
+         * the completed flag and the version it was indexed at in the lower half.
+         */
+        private final LongLongHashMap tasks = new LongLongHashMap();
+        /**
+         * Deleted task IDs and the sweep generation they were deleted in.
+         */
+        private final LongLongHashMap deleted = new LongLongHashMap();
+        private int size;
+
+        synchronized int size() {
+            return size;
+        }
+
+        synchronized void put(TaskDueDate task) {
+            long version = Math.min(task.version() == null ? 0 : task.version(), VERSION_BITS - 1);
+            long current = tasks.get(task.id(), NOT_INDEXED);
+            if (deleted.containsKey(task.id()) || current != NOT_INDEXED && version(current) >= version) {
+                return;
+            }
+            int day = task.dueDate() == null ? NO_DUE_DATE : epochDay(task.dueDate());
+            move(task.id(), current, pack(day, task.completed(), version));
+        }
+
+        synchronized void delete(long id, long generation) {
+            long current = tasks.get(id, NOT_INDEXED);
+            if (current != NOT_INDEXED) {
+                unbucket(id, current);
+                tasks.remove(id);
+            }
+            deleted.put(id, generation);
+        }
+
+        /**
+         * Forgets the deletions made before a sweep generation, by when no older state of
+         * the deleted tasks is still on its way.
+         */
+        synchronized void sweep(long generation) {
+            deleted.removeValuesIf(deletedIn -> deletedIn < generation);
+        }
+
+        /**
+         * Applies a set-based change at the versions the tasks are indexed at, which the
+         * states read back afterwards replace.
+         */
+        synchronized void apply(TasksBulkChangedEvent event, long generation) {
+            for (Long id : event.ids()) {
+                if (event.operation() == TasksBulkChangedEvent.Operation.DELETE) {
+                    delete(id, generation);
+                    continue;
+                }
+                long current = tasks.get(id, NOT_INDEXED);
+                if (current == NOT_INDEXED) {
+                    continue;
+                }
+                move(id, current, switch (event.operation()) {
+                    case COMPLETE -> pack(day(current), true, version(current));
+                    case RESCHEDULE -> pack(epochDay(event.dueDate()), completed(current), version(current));
+                    case DELETE -> throw new IllegalStateException("Deletions are not moved");
+                });
+            }
+        }
+
+        synchronized List<CalendarDay> days(int from, int to, boolean pendingOnly) {
+            List<CalendarDay> result = new ArrayList<>();
+            for (int index = lowerBound(from); index < dayCount && days[index] <= to; index++) {
+                DayBucket bucket = buckets[index];
+                if (pendingOnly && bucket.pending.isEmpty()) {
+                    continue;
+                }
+                SortedLongSet completed = pendingOnly ? new SortedLongSet() : bucket.completed;
+                result.add(new CalendarDay(
+                        LocalDate.ofEpochDay(days[index]),
+                        bucket.pending.size(),
+                        completed.size(),
+                        bucket.pending.toArray(),
+                        completed.toArray()
+                ));
+            }
+            return result;
+        }
+
+        /**
+         * Moves a task from its current packed state, or {@link #NOT_INDEXED}, to the next one.
+         */
+        private void move(long id, long current, long next) {
+            if (current != NOT_INDEXED) {
+                unbucket(id, current);
+            }
+            tasks.put(id, next);
+            if (day(next) == NO_DUE_DATE) {
+                return;
+            }
+            int index = Arrays.binarySearch(days, 0, dayCount, day(next));
+            if (index < 0) {
+                index = -index - 1;
+                if (dayCount == days.length) {
+                    int capacity = Math.max(4, dayCount + (dayCount >> 1));
+                    days = Arrays.copyOf(days, capacity);
+                    buckets = Arrays.copyOf(buckets, capacity);
+                }
+                System.arraycopy(days, index, days, index + 1, dayCount - index);
+                System.arraycopy(buckets, index, buckets, index + 1, dayCount - index);
+                days[index] = day(next);
+                buckets[index] = new DayBucket();
+                dayCount++;
+            }
+            if (buckets[index].ids(completed(next)).add(id)) {
+                size++;
+            }
+        }
+
+        private void unbucket(long id, long task) {
+            int index = day(task) == NO_DUE_DATE ? -1 : Arrays.binarySearch(days, 0, dayCount, day(task));
+            if (index < 0 || !buckets[index].ids(completed(task)).remove(id)) {
+                return;
+            }
+            size--;
+            if (buckets[index].isEmpty()) {
+                System.arraycopy(days, index + 1, days, index, dayCount - index - 1);
+                System.arraycopy(buckets, index + 1, buckets, index, dayCount - index - 1);
+                dayCount--;
+                buckets[dayCount] = null;
+            }
+        }
+
+        private int lowerBound(int day) {
+            int index = Arrays.binarySearch(days, 0, dayCount, day);
+            return index < 0 ? -index - 1 : index;
+        }
+
+        private static long pack(int day, boolean completed, long version) {
+            return ((long) day << 32) | (completed ? COMPLETED : 0) | version;
+        }
+
+        private static int day(long task) {
+            return (int) (task >> 32);
+        }
+
+        private static boolean completed(long task) {
+            return (task & COMPLETED) != 0;
+        }
+
+        private static long version(long task) {
+            return task & VERSION_BITS;
+        }
+    }
+
+    private static final class DayBucket {
+
+        private final SortedLongSet pending = new SortedLongSet();
+        private final SortedLongSet completed = new SortedLongSet();
+
+        SortedLongSet ids(boolean completed) {
+            return completed ? this.completed : pending;
+        }
+
+        boolean isEmpty() {
+            return pending.isEmpty() && completed.isEmpty();
+        }
+    }
+}
@@ -0,0 +1,452 @@
+package com.karolbystrek.todo.rails.elite.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.karolbystrek.todo.rails.elite.config.TaskCounterCacheProperties;
+import com.karolbystrek.todo.rails.elite.event.TaskChange;
+import com.karolbystrek.todo.rails.elite.event.TaskChangedEvent;
+import com.karolbystrek.todo.rails.elite.event.TasksBulkChangedEvent;
+import com.karolbystrek.todo.rails.elite.model.TaskCounter;
+import com.karolbystrek.todo.rails.elite.model.TaskCounts;
+import com.karolbystrek.todo.rails.elite.model.TaskSnapshot;
+import com.karolbystrek.todo.rails.elite.repository.TaskCounterRepository;
+import com.karolbystrek.todo.rails.elite.repository.TaskRepository;
+import com.karolbystrek.todo.rails.elite.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Maintains the task counters shown on the dashboard without counting a user's tasks.
+ *
+ * <p>Every user has a total, pending and completed counter persisted in the
+ * {@code user_task_counters} table, incremented in the same transaction as the
+ * task write. The number of pending tasks due today depends on the date, so it
+ * is not persisted but counted from the {@code (user_id, completed, due_date)}
+ * index, which only touches that user's tasks due today.</p>
+ *
+ * <p>Reads are served from a bounded cache of per-user {@link LongAdder}s, which
+ * are loaded from the persisted counters on a miss and updated once a write has
+ * committed. A miss is only cached if none of the user's writes were in flight
+ * while it was loaded, so a write is never counted twice or missed. Counts of
+ * an earlier day are dropped at midnight and reloaded on the next read.</p>
+ */
+@Service
+public class TaskCounterService {
+
+    static final String TOTAL = "total";
+    static final String PENDING = "pending";
+    static final String COMPLETED = "completed";
+
+    /**
+     * Number of stripes the writes in flight are tracked in, users are spread over them by ID.
+     */
+    static final int WRITE_STRIPES = 64;
+
+    private static final List<String> PERSISTED_COUNTERS = List.of(TOTAL, PENDING, COMPLETED);
+
+    private final Logger logger;
+    private final TaskRepository taskRepository;
+    private final TaskCounterRepository taskCounterRepository;
+    private final UserRepository userRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Cache<Long, UserCounters> counters;
+    private final WriteStripe[] writeStripes;
+
+    @Autowired
+    public TaskCounterService(
+            TaskRepository taskRepository,
+            TaskCounterRepository taskCounterRepository,
+            UserRepository userRepository,
+            TransactionTemplate transactionTemplate,
+            TaskCounterCacheProperties cacheProperties
+    ) {
+        this.logger = LoggerFactory.getLogger(TaskCounterService.class);
+        this.taskRepository = taskRepository;
+        this.taskCounterRepository = taskCounterRepository;
+        this.userRepository = userRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.counters = Caffeine.newBuilder()
+                .maximumSize(cacheProperties.maximumSize())
+                .build();
+        this.writeStripes = new WriteStripe[WRITE_STRIPES];
+        for (int stripe = 0; stripe < WRITE_STRIPES; stripe++) {
+            this.writeStripes[stripe] = new WriteStripe();
+        }
+    }
+
+    /**
+     * Rebuilds the counters from a full recount if none are persisted yet.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        if (taskCounterRepository.count() == 0 && userRepository.count() > 0) {
+            logger.info("Task counters are missing, rebuilding them from a full recount");
+            rebuild();
+        }
+    }
+
+    /**
+     * Returns the task counters of a user, from memory unless they are not cached yet
+     * or were counted on an earlier day.
+     *
+     * @param userId ID of the user owning the tasks
+     * @return The task counters
+     */
+    public TaskCounts getCounts(Long userId) {
+        LocalDate today = LocalDate.now();
+        UserCounters cached = counters.getIfPresent(userId);
+        if (cached != null && cached.day.equals(today)) {
+            return cached.toCounts();
+        }
+        WriteStripe stripe = writeStripe(userId);
+        long generation = stripe.idleGeneration();
+        TaskCounts counts = load(userId, today);
+        if (generation >= 0) {
+            stripe.ifUnchanged(generation, () -> counters.put(userId, new UserCounters(today, counts)));
+        }
+        return counts;
+    }
+
+    /**
+     * Returns the number of users whose counters are cached.
+     *
+     * @return Number of cached users
+     */
+    public long getCachedCount() {
+        return counters.estimatedSize();
+    }
+
+    /**
+     * Drops the counters counted on an earlier day just after midnight, so the number of
+     * pending tasks due today is recounted on the next read.
+     */
+    @Scheduled(cron = "0 0 0 * * *")
+    public void rolloverAtMidnight() {
+        rollover(LocalDate.now());
+    }
+
+    void rollover(LocalDate today) {
+        counters.asMap().values().removeIf(cached -> cached.day.isBefore(today));
+    }
+
+    /**
+     * Creates the counters of a user from a recount of their tasks.
+     *
+     * @param userId ID of the user
+     * @return The recounted task counters
+     */
+    @Transactional
+    public TaskCounts createCounters(Long userId) {
+        evict(userId);
+        TaskCounts counts = taskRepository.countTasks(userId, LocalDate.now());
+        taskCounterRepository.saveAll(PERSISTED_COUNTERS.stream()
+                .map(name -> new TaskCounter(userId, name, valueOf(counts, name)))
+                .toList());
+        return counts;
+    }
+
+    /**
+     * Deletes the counters of a user.
+     *
+     * @param userId ID of the user
+     */
+    @Transactional
+    public void deleteCounters(Long userId) {
+        evict(userId);
+        taskCounterRepository.deleteByUserId(userId);
+    }
+
+    /**
+     * Recounts the tasks of a user and replaces their persisted counters.
+     *
+     * @param userId ID of the user
+     * @return The recounted task counters
+     */
+    @Transactional
+    public TaskCounts rebuild(Long userId) {
+        evict(userId);
+        taskCounterRepository.deleteByUserId(userId);
+        TaskCounts counts = createCounters(userId);
+        logger.info("Rebuilt task counters of user {}: {}", userId, counts);
+        return counts;
+    }
+
+    /**
+     * Recounts the tasks of every user and replaces all persisted counters.
+     *
+     * @return Number of users whose counters were rebuilt
+     */
+    public int rebuild() {
+        Integer users = transactionTemplate.execute(status -> {
+            taskCounterRepository.deleteAllInBatch();
+            List<Long> userIds = userRepository.findAllIds();
+            userIds.forEach(this::createCounters);
+            return userIds.size();
+        });
+        counters.invalidateAll();
+        logger.info("Rebuilt task counters of {} users", users);
+        return users == null ? 0 : users;
+    }
+
+    /**
+     * Increments the persisted counters in the transaction that changed the tasks.
+     *
+     * @param event The task changes
+     */
+    @EventListener
+    @Transactional
+    public void persistChanges(TaskChangedEvent event) {
+        CounterDelta.of(event, null).forEach((userId, delta) -> {
+            trackWrite(userId);
+            increment(userId, TOTAL, delta.total());
+            increment(userId, PENDING, delta.pending());
+            increment(userId, COMPLETED, delta.completed());
+        });
+    }
+
+    /**
+     * Applies committed task changes to the cached counters of their users.
+     *
+     * @param event The task changes
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void applyChanges(TaskChangedEvent event) {
+        LocalDate today = LocalDate.now();
+        CounterDelta.of(event, today).forEach((userId, delta) -> {
+            UserCounters cached = counters.getIfPresent(userId);
+            if (cached == null) {
+                return;
+            }
+            if (cached.day.equals(today)) {
+                cached.add(delta);
+            } else {
+                counters.invalidate(userId);
+            }
+        });
+    }
+
+    /**
+     * Tracks a set-based change as in flight until its transaction completes.
+     *
+     * @param event The set-based task change
+     */
+    @EventListener
+    public void trackBulkChanges(TasksBulkChangedEvent event) {
+        trackWrite(event.userId());
+    }
+
+    /**
+     * Drops the cached counters of a user once a set-based change has committed. The
+     * statement does not tell which of the tasks were due today, so they are reloaded.
+     *
+     * @param event The set-based task change
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void applyBulkChanges(TasksBulkChangedEvent event) {
+        counters.invalidate(event.userId());
+    }
+
+    /**
+     * Counts tasks completed by a set-based update, with a single statement.
+     *
+     * @param userId    ID of the user owning the tasks
+     * @param completed Number of tasks the update changed from pending to completed
+     */
+    @Transactional
+    public void countCompleted(Long userId, int completed) {
+        if (completed != 0 && taskCounterRepository.countCompleted(userId, completed) == 0) {
+            logger.warn("Task counters of user {} do not exist, counters need to be rebuilt", userId);
+        }
+    }
+
+    /**
+     * Uncounts tasks about to be deleted by a set-based delete, with a single statement
+     * that counts them by status. Must run before the delete, in the same transaction.
+     *
+     * @param userId ID of the user owning the tasks
+     * @param ids    IDs of the tasks to be deleted, IDs of other users' tasks are ignored
+     */
+    @Transactional
+    public void countDeleted(Long userId, Collection<Long> ids) {
+        if (!ids.isEmpty() && taskCounterRepository.countDeleted(userId, ids) == 0) {
+            logger.warn("Task counters of user {} do not exist, counters need to be rebuilt", userId);
+        }
+    }
+
+    private TaskCounts load(Long userId, LocalDate today) {
+        Map<String, Long> values = taskCounterRepository.findByUserId(userId).stream()
+                .collect(Collectors.toMap(TaskCounter::getName, TaskCounter::getValue));
+        if (!values.keySet().containsAll(PERSISTED_COUNTERS)) {
+            logger.warn("Task counters of user {} are missing, counting their tasks instead", userId);
+            return taskRepository.countTasks(userId, today);
+        }
+        return new TaskCounts(
+                values.get(TOTAL),
+                values.get(PENDING),
+                taskRepository.countByUserIdAndCompletedFalseAndDueDate(userId, today),
+                values.get(COMPLETED)
+        );
+    }
+
+    private WriteStripe writeStripe(Long userId) {
+        return writeStripes[Math.floorMod(userId.hashCode(), WRITE_STRIPES)];
+    }
+
+    /**
+     * Marks a write of the user's tasks as in flight until the current transaction completes,
+     * after its committed changes have been applied to the cache.
+     */
+    private void trackWrite(Long userId) {
+        WriteStripe stripe = writeStripe(userId);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            stripe.begin(false);
+            return;
+        }
+        stripe.begin(true);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                stripe.end();
+            }
+        });
+    }
+
+    /**
+     * Drops the cached counters of a user whose persisted counters are replaced, and keeps
+     * them from being cached again until the current transaction completes.
+     */
+    private void evict(Long userId) {
+        trackWrite(userId);
+        counters.invalidate(userId);
+    }
+
+    private void increment(Long userId, String name, long delta) {
+        if (delta != 0 && taskCounterRepository.increment(userId, name, delta) == 0) {
+            logger.warn("Task counter '{}' of user {} does not exist, counters need to be rebuilt", name, userId);
+        }
+    }
+
+    private static long valueOf(TaskCounts counts, String name) {
+        return switch (name) {
+            case TOTAL -> counts.total();
+            case PENDING -> counts.pending();
+            case COMPLETED -> counts.completed();
+            default -> throw new IllegalArgumentException("Unknown task counter: " + name);
+        };
+    }
+
+    /**
+     * The cached counters of a single user.
+     */
+    private static final class UserCounters {
+
+        private final LocalDate day;
+        private final LongAdder total = new LongAdder();
+        private final LongAdder pending = new LongAdder();
+        private final LongAdder pendingToday = new LongAdder();
+        private final LongAdder completed = new LongAdder();
+
+        UserCounters(LocalDate day, TaskCounts counts) {
+            this.day = day;
+            total.add(counts.total());
+            pending.add(counts.pending());
+            pendingToday.add(counts.pendingToday());
+            completed.add(counts.completed());
+        }
+
+        void add(CounterDelta delta) {
+            total.add(delta.total());
+            pending.add(delta.pending());
+            pendingToday.add(delta.pendingToday());
+            completed.add(delta.completed());
+        }
+
+        TaskCounts toCounts() {
+            return new TaskCounts(total.sum(), pending.sum(), pendingToday.sum(), completed.sum());
+        }
+    }
+
+    /**
+     * Writes in flight of the users in one stripe. A load of counters may only be cached
+     * if no write was in flight when it started and none began until it is cached.
+     */
+    private static final class WriteStripe {
+
+        private long generation;
+        private int inFlight;
+
+        synchronized void begin(boolean tracked) {
+            generation++;
+            if (tracked) {
+                inFlight++;
+            }
+        }
+
+        synchronized void end() {
+            inFlight--;
+        }
+
+        /**
+         * @return The current generation, or -1 if a write is in flight
+         */
+        synchronized long idleGeneration() {
+            return inFlight == 0 ? generation : -1;
+        }
+
+        synchronized void ifUnchanged(long generation, Runnable action) {
+            if (this.generation == generation) {
+                action.run();
+            }
+        }
+    }
+
+    private record CounterDelta(long total, long pending, long pendingToday, long completed) {
+
+        private static final CounterDelta ZERO = new CounterDelta(0, 0, 0, 0);
+
+        /**
+         * @param today The day to count pending tasks due on, or null to leave {@code pendingToday} at zero
+         */
+        static Map<Long, CounterDelta> of(TaskChangedEvent event, LocalDate today) {
+            Map<Long, CounterDelta> deltas = new LinkedHashMap<>();
+            for (TaskChange change : event.changes()) {
+                plus(deltas, change.after(), 1, today);
+                plus(deltas, change.before(), -1, today);
+            }
+            return deltas;
+        }
+
+        private static void plus(Map<Long, CounterDelta> deltas, TaskSnapshot task, int sign, LocalDate today) {
+            if (task == null) {
+                return;
+            }
+            boolean isPending = !task.completed();
+            boolean isPendingToday = isPending && today != null && today.equals(task.dueDate());
+            CounterDelta delta = deltas.getOrDefault(task.userId(), ZERO);
+            deltas.put(task.userId(), new CounterDelta(
+                    delta.total + sign,
+                    delta.pending + (isPending ? sign : 0),
+                    delta.pendingToday + (isPendingToday ? sign : 0),
+                    delta.completed + (isPending ? 0 : sign)
+            ));
+        }
+    }
+}
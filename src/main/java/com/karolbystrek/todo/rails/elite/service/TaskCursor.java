@@ -0,0 +1,63 @@
+package com.karolbystrek.todo.rails.elite.service;
+
+import com.karolbystrek.todo.rails.elite.model.TaskSummary;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.Map;
+
+/**
+ * Encodes and decodes the opaque continuation tokens used for keyset pagination of tasks.
+ *
+ * <p>A token captures the {@code (dueDate, id)} key of the last task on a page, so the
+ * next page starts right after it without the database having to skip any rows.</p>
+ */
+final class TaskCursor {
+
+    private static final String SEPARATOR = "|";
+
+    private TaskCursor() {
+    }
+
+    /**
+     * Creates the token pointing right after the given task.
+     *
+     * @param task The last task of a page
+     * @return Opaque continuation token
+     */
+    static String encode(TaskSummary task) {
+        String key = task.dueDate() + SEPARATOR + task.id();
+        return Base64.getUrlEncoder()
+                .withoutPadding()
+                .encodeToString(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Converts a token back into a scroll position.
+     *
+     * @param cursor Token previously returned by {@link #encode(TaskSummary)}, or null for the first page
+     * @return Keyset scroll position to continue from
+     * @throws IllegalArgumentException if the token is malformed
+     */
+    static KeysetScrollPosition decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return ScrollPosition.keyset();
+        }
+        try {
+            String key = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = key.indexOf(SEPARATOR);
+            if (separator < 0) {
+                throw new IllegalArgumentException("Invalid cursor: " + cursor);
+            }
+            LocalDate dueDate = LocalDate.parse(key.substring(0, separator));
+            Long id = Long.valueOf(key.substring(separator + 1));
+            return ScrollPosition.forward(Map.of("dueDate", dueDate, "id", id));
+        } catch (DateTimeParseException | NumberFormatException exception) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor, exception);
+        }
+    }
+}
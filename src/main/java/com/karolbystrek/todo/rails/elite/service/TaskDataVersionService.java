@@ -0,0 +1,103 @@
+package com.karolbystrek.todo.rails.elite.service;
+
+import com.karolbystrek.todo.rails.elite.event.TaskChange;
+import com.karolbystrek.todo.rails.elite.event.TaskChangedEvent;
+import com.karolbystrek.todo.rails.elite.event.TasksBulkChangedEvent;
+import com.karolbystrek.todo.rails.elite.model.TaskSnapshot;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Keeps a monotonic version stamp of every user's tasks, so polled list and
+ * dashboard responses can be revalidated without querying the {@code tasks} table.
+ *
+ * <p>The stamp of a user is bumped after every committed task change. Entity tags
+ * also carry the instance start time, so restarts never reuse a tag, and the
+ * current date, because the today and overdue views change at midnight without
+ * any write.</p>
+ */
+@Service
+public class TaskDataVersionService {
+
+    private final String instance;
+    private final ConcurrentMap<Long, AtomicLong> versions;
+
+    public TaskDataVersionService() {
+        this.instance = Long.toString(System.currentTimeMillis(), Character.MAX_RADIX);
+        this.versions = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Returns the current data version of a user.
+     *
+     * @param userId ID of the user owning the tasks
+     * @return Version that changes whenever the user's tasks change
+     */
+    public long getVersion(Long userId) {
+        AtomicLong version = versions.get(userId);
+        return version == null ? 0 : version.get();
+    }
+
+    /**
+     * Returns the entity tag of every view derived from a user's tasks.
+     *
+     * @param userId ID of the user owning the tasks
+     * @return Quoted entity tag
+     */
+    public String getETag(Long userId) {
+        return "\"" + instance + "-" + userId + "-" + getVersion(userId) + "-" + LocalDate.now().toEpochDay() + "\"";
+    }
+
+    /**
+     * Marks the views of a user as changed.
+     *
+     * <p>Call it after the change is committed, otherwise a response rendered from
+     * the old data could be tagged with the new version.</p>
+     *
+     * @param userId ID of the user owning the tasks
+     */
+    public void invalidate(Long userId) {
+        versions.computeIfAbsent(userId, id -> new AtomicLong()).incrementAndGet();
+    }
+
+    /**
+     * Bumps the versions of the users whose tasks changed once the change is committed.
+     * Runs before the other listeners, so they already see the new versions.
+     *
+     * @param event The task changes
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void applyChanges(TaskChangedEvent event) {
+        event.changes().stream()
+                .flatMap(TaskDataVersionService::owners)
+                .distinct()
+                .forEach(this::invalidate);
+    }
+
+    /**
+     * Bumps the version of the user whose tasks a set-based statement changed once the change is committed.
+     *
+     * @param event The set-based task change
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void applyBulkChanges(TasksBulkChangedEvent event) {
+        invalidate(event.userId());
+    }
+
+    private static Stream<Long> owners(TaskChange change) {
+        return Stream.of(change.before(), change.after())
+                .filter(Objects::nonNull)
+                .map(TaskSnapshot::userId);
+    }
+}
@@ -0,0 +1,73 @@
+package com.karolbystrek.todo.rails.elite.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.karolbystrek.todo.rails.elite.model.Task;
+import com.karolbystrek.todo.rails.elite.repository.TaskRepository;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Streams tasks out of the database as newline-delimited JSON.
+ */
+@Service
+public class TaskExportService {
+
+    /**
+     * Number of tasks written between two flushes of the output stream.
+     */
+    static final int FLUSH_INTERVAL = 500;
+
+    private final TaskRepository taskRepository;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+
+    @Autowired
+    public TaskExportService(TaskRepository taskRepository, EntityManager entityManager, ObjectMapper objectMapper) {
+        this.taskRepository = taskRepository;
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Writes every task of a user as one JSON object per line, ordered by due date.
+     *
+     * <p>Rows are read in the order of the user and due date index, so the database
+     * does not sort them first, through a forward-only database cursor. Each task is
+     * detached from the persistence context right after it is written, so memory
+     * use does not grow with the number of exported tasks. Output is flushed
+     * periodically so clients start receiving data before the query completes.</p>
+     *
+     * @param userId       ID of the user owning the tasks
+     * @param outputStream The stream to write to; it is flushed but not closed
+     * @return Number of exported tasks
+     * @throws IOException if writing to the stream fails
+     */
+    @Transactional(readOnly = true)
+    public long exportTasks(Long userId, OutputStream outputStream) throws IOException {
+        long exported = 0;
+        try (Stream<Task> tasks = taskRepository.streamAllByUserIdOrderByDueDateAscIdAsc(userId);
+             JsonGenerator generator = objectMapper.createGenerator(outputStream)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            Iterator<Task> iterator = tasks.iterator();
+            while (iterator.hasNext()) {
+                Task task = iterator.next();
+                generator.writeObject(task);
+                generator.writeRaw('\n');
+                entityManager.detach(task);
+                if (++exported % FLUSH_INTERVAL == 0) {
+                    generator.flush();
+                }
+            }
+            generator.flush();
+        }
+        return exported;
+    }
+}
@@ -0,0 +1,222 @@
+package com.karolbystrek.todo.rails.elite.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.karolbystrek.todo.rails.elite.event.TaskChange;
+import com.karolbystrek.todo.rails.elite.event.TaskChangedEvent;
+import com.karolbystrek.todo.rails.elite.model.ImportReport;
+import com.karolbystrek.todo.rails.elite.model.Task;
+import com.karolbystrek.todo.rails.elite.model.TaskSnapshot;
+import com.karolbystrek.todo.rails.elite.model.User;
+import com.karolbystrek.todo.rails.elite.repository.TaskRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Imports large numbers of tasks from JSON or CSV input.
+ *
+ * <p>Input is parsed incrementally and processed in chunks. Each chunk checks title
+ * uniqueness among the importing user's tasks with a single {@code IN} query and is inserted in its own transaction
+ * through JDBC batching, after which the persistence context is cleared.</p>
+ */
+@Service
+public class TaskImportService {
+
+    /**
+     * Number of tasks checked and inserted per transaction.
+     */
+    static final int CHUNK_SIZE = 500;
+
+    private final Logger logger;
+    private final TaskRepository taskRepository;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    public TaskImportService(
+            TaskRepository taskRepository,
+            EntityManager entityManager,
+            ObjectMapper objectMapper,
+            Validator validator,
+            TransactionTemplate transactionTemplate,
+            ApplicationEventPublisher eventPublisher
+    ) {
+        this.logger = LoggerFactory.getLogger(TaskImportService.class);
+        this.taskRepository = taskRepository;
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.transactionTemplate = transactionTemplate;
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * Imports tasks from a JSON array of task objects.
+     *
+     * @param userId      ID of the user owning the imported tasks
+     * @param inputStream The JSON input
+     * @return Summary of the import
+     * @throws IOException              if the input cannot be read or is not valid JSON
+     * @throws IllegalArgumentException if the input is not a JSON array
+     */
+    public ImportReport importJson(Long userId, InputStream inputStream) throws IOException {
+        try (JsonParser parser = objectMapper.createParser(inputStream)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IllegalArgumentException("Expected a JSON array of tasks");
+            }
+            return importTasks(userId, new JsonTaskIterator(parser));
+        } catch (UncheckedIOException exception) {
+            throw exception.getCause();
+        }
+    }
+
+    /**
+     * Imports tasks from CSV with a header row.
+     *
+     * @param userId      ID of the user owning the imported tasks
+     * @param inputStream The UTF-8 encoded CSV input
+     * @return Summary of the import
+     * @throws IOException              if the input cannot be read
+     * @throws IllegalArgumentException if the header is missing or has no title column
+     */
+    public ImportReport importCsv(Long userId, InputStream inputStream) throws IOException {
+        try (InputStreamReader reader = new InputStreamReader(inputStream, StandardCharsets.UTF_8)) {
+            return importTasks(userId, new CsvTaskReader(reader));
+        } catch (UncheckedIOException exception) {
+            throw exception.getCause();
+        }
+    }
+
+    private ImportReport importTasks(Long userId, Iterator<Task> tasks) {
+        long start = System.nanoTime();
+        long imported = 0;
+        long duplicates = 0;
+        long invalid = 0;
+        Map<String, Task> chunk = new LinkedHashMap<>();
+        while (tasks.hasNext()) {
+            Task task = tasks.next();
+            task.setId(null);
+            if (!validator.validate(task).isEmpty()) {
+                invalid++;
+                continue;
+            }
+            if (chunk.putIfAbsent(titleKey(task.getTitle()), task) != null) {
+                duplicates++;
+                continue;
+            }
+            if (chunk.size() == CHUNK_SIZE) {
+                int inserted = persistChunk(userId, chunk);
+                imported += inserted;
+                duplicates += chunk.size() - inserted;
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            int inserted = persistChunk(userId, chunk);
+            imported += inserted;
+            duplicates += chunk.size() - inserted;
+        }
+        long elapsedNanos = Math.max(System.nanoTime() - start, 1);
+        double rowsPerSecond = imported * 1_000_000_000d / elapsedNanos;
+        logger.info("Imported {} tasks in {} ms ({} rows/s), {} duplicates skipped, {} invalid rows rejected",
+                imported, elapsedNanos / 1_000_000, Math.round(rowsPerSecond), duplicates, invalid);
+        return new ImportReport(imported, duplicates, invalid, elapsedNanos / 1_000_000, rowsPerSecond);
+    }
+
+    private int persistChunk(Long userId, Map<String, Task> chunk) {
+        Integer inserted = transactionTemplate.execute(status -> {
+            Set<String> existingTitles = taskRepository.findExistingTitles(
+                            userId,
+                            chunk.values().stream().map(Task::getTitle).toList()
+                    ).stream()
+                    .map(TaskImportService::titleKey)
+                    .collect(Collectors.toSet());
+            User user = entityManager.getReference(User.class, userId);
+            List<TaskChange> changes = new ArrayList<>(chunk.size());
+            for (Map.Entry<String, Task> entry : chunk.entrySet()) {
+                if (!existingTitles.contains(entry.getKey())) {
+                    entry.getValue().setUser(user);
+                    entityManager.persist(entry.getValue());
+                    changes.add(TaskChange.created(TaskSnapshot.of(entry.getValue())));
+                }
+            }
+            entityManager.flush();
+            entityManager.clear();
+            if (!changes.isEmpty()) {
+                eventPublisher.publishEvent(new TaskChangedEvent(changes));
+            }
+            return changes.size();
+        });
+        return inserted == null ? 0 : inserted;
+    }
+
+    /**
+     * Titles are compared case-insensitively, matching MySQL's default collation
+     * for the unique (user, title) constraint.
+     */
+    private static String titleKey(String title) {
+        return title.toLowerCase(Locale.ROOT);
+    }
+
+    private static final class JsonTaskIterator implements Iterator<Task> {
+
+        private final JsonParser parser;
+        private JsonToken nextToken;
+
+        private JsonTaskIterator(JsonParser parser) throws IOException {
+            this.parser = parser;
+            advance();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextToken == JsonToken.START_OBJECT;
+        }
+
+        @Override
+        public Task next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            try {
+                Task task = parser.readValueAs(Task.class);
+                advance();
+                return task;
+            } catch (IOException exception) {
+                throw new UncheckedIOException(exception);
+            }
+        }
+
+        private void advance() throws IOException {
+            nextToken = parser.nextToken();
+            if (nextToken != JsonToken.START_OBJECT && nextToken != JsonToken.END_ARRAY) {
+                throw new IllegalArgumentException("Expected a JSON array of task objects");
+            }
+        }
+    }
+}
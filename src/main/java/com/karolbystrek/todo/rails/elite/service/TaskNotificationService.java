@@ -0,0 +1,214 @@
+package com.karolbystrek.todo.rails.elite.service;
+
+import com.karolbystrek.todo.rails.elite.event.TaskChange;
+import com.karolbystrek.todo.rails.elite.event.TaskChangedEvent;
+import com.karolbystrek.todo.rails.elite.event.TasksBulkChangedEvent;
+import com.karolbystrek.todo.rails.elite.event.TasksDueEvent;
+import com.karolbystrek.todo.rails.elite.model.TaskNotification;
+import com.karolbystrek.todo.rails.elite.model.TaskReminder;
+import com.karolbystrek.todo.rails.elite.model.TaskReminderNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Pushes task changes, the updated counters and the daily due-date reminders to the
+ * open dashboards of a user as Server-Sent Events.
+ *
+ * <p>Subscriptions are asynchronous requests, so an idle connection holds no thread.
+ * Notifications are sent once the change is committed, from the application task
+ * executor rather than the thread that made the change, so a slow client never
+ * delays a write.</p>
+ */
+@Service
+public class TaskNotificationService {
+
+    static final String EVENT_NAME = "tasks";
+    static final String REMINDER_EVENT_NAME = "reminders";
+
+    /**
+     * Larger changes, such as imports, only push the counters and let the dashboard reload its list.
+     */
+    static final int MAX_CHANGES_PER_NOTIFICATION = 100;
+
+    private final Logger logger;
+    private final TaskCounterService taskCounterService;
+    private final TaskDataVersionService taskDataVersionService;
+    private final AsyncTaskExecutor taskExecutor;
+    private final ConcurrentMap<Long, Set<SseEmitter>> subscribers;
+
+    @Autowired
+    public TaskNotificationService(
+            TaskCounterService taskCounterService,
+            TaskDataVersionService taskDataVersionService,
+            AsyncTaskExecutor taskExecutor
+    ) {
+        this.logger = LoggerFactory.getLogger(TaskNotificationService.class);
+        this.taskCounterService = taskCounterService;
+        this.taskDataVersionService = taskDataVersionService;
+        this.taskExecutor = taskExecutor;
+        this.subscribers = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Opens a stream of task notifications for a user, starting with the current counters.
+     *
+     * @param userId ID of the user owning the tasks
+     * @return The emitter serving the stream until the client disconnects or the async request times out
+     */
+    public SseEmitter subscribe(Long userId) {
+        SseEmitter emitter = new SseEmitter();
+        subscribers.computeIfAbsent(userId, id -> ConcurrentHashMap.newKeySet()).add(emitter);
+        emitter.onCompletion(() -> unsubscribe(userId, emitter));
+        emitter.onTimeout(() -> unsubscribe(userId, emitter));
+        emitter.onError(exception -> unsubscribe(userId, emitter));
+        send(userId, emitter, EVENT_NAME, notification(userId, List.of(), List.of(), false));
+        return emitter;
+    }
+
+    /**
+     * Returns the number of open streams.
+     *
+     * @return Number of subscribed emitters of all users
+     */
+    public int getSubscriberCount() {
+        return subscribers.values().stream().mapToInt(Set::size).sum();
+    }
+
+    /**
+     * Notifies the subscribed users whose tasks changed, once the change is committed.
+     *
+     * @param event The task changes
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void broadcast(TaskChangedEvent event) {
+        Map<Long, List<TaskChange>> changesByUser = new LinkedHashMap<>();
+        for (TaskChange change : event.changes()) {
+            Long userId = change.after() != null ? change.after().userId() : change.before().userId();
+            if (subscribers.containsKey(userId)) {
+                changesByUser.computeIfAbsent(userId, id -> new ArrayList<>()).add(change);
+            }
+        }
+        changesByUser.forEach((userId, changes) -> taskExecutor.execute(() -> publish(
+                userId,
+                changes,
+                List.of(),
+                changes.size() > MAX_CHANGES_PER_NOTIFICATION
+        )));
+    }
+
+    /**
+     * Notifies the user whose tasks a set-based statement changed, once the change is committed.
+     * Completed and deleted tasks are listed by ID only; rescheduled tasks always make the
+     * dashboard reload its list, since the statement does not tell which of them are pending.
+     *
+     * @param event The set-based task change
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void broadcast(TasksBulkChangedEvent event) {
+        Long userId = event.userId();
+        if (!subscribers.containsKey(userId)) {
+            return;
+        }
+        boolean changesOmitted = event.operation() == TasksBulkChangedEvent.Operation.RESCHEDULE
+                || event.ids().size() > MAX_CHANGES_PER_NOTIFICATION;
+        List<Long> removedIds = changesOmitted ? List.of() : event.ids();
+        taskExecutor.execute(() -> publish(userId, List.of(), removedIds, changesOmitted));
+    }
+
+    /**
+     * Reminds the subscribed users of their tasks that became due or overdue today.
+     *
+     * @param event The tasks that became due or overdue
+     */
+    @EventListener
+    public void remind(TasksDueEvent event) {
+        Map<Long, List<Long>> dueByUser = idsBySubscribedUser(event.due());
+        Map<Long, List<Long>> overdueByUser = idsBySubscribedUser(event.overdue());
+        Set<Long> userIds = new LinkedHashSet<>(dueByUser.keySet());
+        userIds.addAll(overdueByUser.keySet());
+        userIds.forEach(userId -> taskExecutor.execute(() -> publishReminders(
+                userId,
+                dueByUser.getOrDefault(userId, List.of()),
+                overdueByUser.getOrDefault(userId, List.of())
+        )));
+    }
+
+    private Map<Long, List<Long>> idsBySubscribedUser(List<TaskReminder> reminders) {
+        Map<Long, List<Long>> idsByUser = new LinkedHashMap<>();
+        for (TaskReminder reminder : reminders) {
+            if (subscribers.containsKey(reminder.userId())) {
+                idsByUser.computeIfAbsent(reminder.userId(), id -> new ArrayList<>()).add(reminder.taskId());
+            }
+        }
+        return idsByUser;
+    }
+
+    private void publishReminders(Long userId, List<Long> dueIds, List<Long> overdueIds) {
+        Set<SseEmitter> emitters = subscribers.get(userId);
+        if (emitters == null || emitters.isEmpty()) {
+            return;
+        }
+        long version = taskDataVersionService.getVersion(userId);
+        TaskReminderNotification notification = new TaskReminderNotification(
+                version,
+                taskCounterService.getCounts(userId),
+                dueIds,
+                overdueIds
+        );
+        emitters.forEach(emitter -> send(userId, emitter, REMINDER_EVENT_NAME, notification));
+    }
+
+    private void publish(Long userId, List<TaskChange> changes, List<Long> removedIds, boolean changesOmitted) {
+        Set<SseEmitter> emitters = subscribers.get(userId);
+        if (emitters == null || emitters.isEmpty()) {
+            return;
+        }
+        TaskNotification notification = notification(userId, changes, removedIds, changesOmitted);
+        emitters.forEach(emitter -> send(userId, emitter, EVENT_NAME, notification));
+    }
+
+    private TaskNotification notification(Long userId, List<TaskChange> changes, List<Long> removedIds, boolean changesOmitted) {
+        // Read the version before the counters, so a higher version never carries older counters
+        long version = taskDataVersionService.getVersion(userId);
+        return new TaskNotification(
+                version,
+                taskCounterService.getCounts(userId),
+                changesOmitted ? List.of() : changes,
+                changesOmitted ? List.of() : removedIds,
+                changesOmitted
+        );
+    }
+
+    private void send(Long userId, SseEmitter emitter, String eventName, Object notification) {
+        try {
+            emitter.send(SseEmitter.event().name(eventName).data(notification, MediaType.APPLICATION_JSON));
+        } catch (IOException | IllegalStateException exception) {
+            logger.debug("Dropping task notification stream of user {}: {}", userId, exception.getMessage());
+            unsubscribe(userId, emitter);
+        }
+    }
+
+    private void unsubscribe(Long userId, SseEmitter emitter) {
+        subscribers.computeIfPresent(userId, (id, emitters) -> {
+            emitters.remove(emitter);
+            return emitters.isEmpty() ? null : emitters;
+        });
+    }
+}
@@ -0,0 +1,315 @@
+package com.karolbystrek.todo.rails.elite.service;
+
+import com.karolbystrek.todo.rails.elite.event.TaskChange;
+import com.karolbystrek.todo.rails.elite.event.TaskChangedEvent;
+import com.karolbystrek.todo.rails.elite.event.TasksBulkChangedEvent;
+import com.karolbystrek.todo.rails.elite.event.TasksDueEvent;
+import com.karolbystrek.todo.rails.elite.model.TaskReminder;
+import com.karolbystrek.todo.rails.elite.model.TaskSnapshot;
+import com.karolbystrek.todo.rails.elite.repository.TaskRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Publishes a {@link TasksDueEvent} at the start of every day for the pending tasks
+ * that become due or overdue that day.
+ *
+ * <p>Pending tasks due today or later sit on a {@link TimingWheel} keyed by task, first
+ * until their due date and then until the day after, when they become overdue. The wheel
+ * is loaded from the database once, in the background after the application is ready,
+ * and then kept current from the {@link TaskChangedEvent}s and {@link TasksBulkChangedEvent}s
+ * published for every task write, so firing the day's reminders never scans the task table.</p>
+ */
+@Service
+public class TaskReminderService {
+
+    static final int REBUILD_BATCH_SIZE = 1000;
+
+    private final Logger logger;
+    private final TaskRepository taskRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final TaskWriteBehindService taskWriteBehindService;
+    private final TimingWheel<Long, TaskReminder> wheel;
+    private final ScheduledExecutorService scheduler;
+    /**
+     * One map per running rebuild or reload of the tasks changed since it started, whose rows
+     * read meanwhile may be stale, mapped to the user they were changed for.
+     */
+    private final List<Map<Long, Long>> changedDuringLoads;
+
+    @Autowired
+    public TaskReminderService(
+            TaskRepository taskRepository,
+            ApplicationEventPublisher eventPublisher,
+            TransactionTemplate transactionTemplate,
+            TaskWriteBehindService taskWriteBehindService
+    ) {
+        this.logger = LoggerFactory.getLogger(TaskReminderService.class);
+        this.taskRepository = taskRepository;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = transactionTemplate;
+        this.taskWriteBehindService = taskWriteBehindService;
+        this.wheel = new TimingWheel<>(LocalDate.now().toEpochDay());
+        this.changedDuringLoads = new ArrayList<>();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("task-reminders").daemon().factory()
+        );
+    }
+
+    /**
+     * Loads the wheel in the background and starts firing reminders once the application has started.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        scheduler.execute(() -> {
+            try {
+                rebuild();
+            } catch (RuntimeException exception) {
+                logger.error("Failed to load task reminders, only tasks changed from now on are scheduled", exception);
+            }
+        });
+        scheduleNextDay();
+    }
+
+    /**
+     * Returns the number of tasks waiting to become due or overdue.
+     *
+     * @return Number of scheduled reminders of all users
+     */
+    public synchronized int getScheduledCount() {
+        return wheel.size();
+    }
+
+    /**
+     * Replaces the scheduled reminders with ones loaded from the pending tasks in the database.
+     *
+     * <p>The tasks are read in batches without blocking task writes. Changes committed
+     * while the wheel is rebuilt are applied right away and take precedence over the rows
+     * read by the rebuild.</p>
+     *
+     * @return Number of scheduled reminders
+     */
+    public int rebuild() {
+        LocalDate from;
+        Map<Long, Long> changed;
+        synchronized (this) {
+            wheel.clear();
+            changed = startLoad();
+            from = LocalDate.ofEpochDay(wheel.getCurrentDay());
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                try (Stream<TaskReminder> reminders = taskRepository.streamPendingRemindersFrom(from)) {
+                    List<TaskReminder> batch = new ArrayList<>(REBUILD_BATCH_SIZE);
+                    reminders.forEach(reminder -> {
+                        batch.add(reminder);
+                        if (batch.size() == REBUILD_BATCH_SIZE) {
+                            scheduleLoaded(batch, changed);
+                            batch.clear();
+                        }
+                    });
+                    scheduleLoaded(batch, changed);
+                }
+            });
+        } finally {
+            finishLoad(changed);
+        }
+        int scheduled = getScheduledCount();
+        logger.info("Scheduled reminders for {} pending tasks", scheduled);
+        return scheduled;
+    }
+
+    /**
+     * Reschedules the reminders of committed task changes.
+     *
+     * @param event The task changes
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void applyChanges(TaskChangedEvent event) {
+        for (TaskChange change : event.changes()) {
+            TaskSnapshot task = change.after() != null ? change.after() : change.before();
+            changedDuringLoads.forEach(changed -> changed.put(task.id(), task.userId()));
+            wheel.remove(task.id());
+            if (change.after() != null && !task.completed() && task.dueDate() != null) {
+                schedule(new TaskReminder(task.id(), task.userId(), task.dueDate()));
+            }
+        }
+    }
+
+    /**
+     * Reschedules the reminders of a committed set-based change.
+     *
+     * <p>Completed and deleted tasks are cancelled, and rescheduled tasks on the wheel are
+     * pending, so they are moved to the new due date. Rescheduled tasks that are not on the
+     * wheel are either completed or already overdue; the statement does not tell which, so
+     * the pending ones are read back in the background.</p>
+     *
+     * @param event The set-based task change
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void applyBulkChanges(TasksBulkChangedEvent event) {
+        boolean rescheduled = event.operation() == TasksBulkChangedEvent.Operation.RESCHEDULE;
+        List<Long> unscheduled = new ArrayList<>();
+        for (Long id : event.ids()) {
+            changedDuringLoads.forEach(changed -> changed.put(id, event.userId()));
+            TaskReminder reminder = wheel.get(id);
+            if (reminder == null) {
+                unscheduled.add(id);
+            } else if (reminder.userId().equals(event.userId())) {
+                wheel.remove(id);
+                if (rescheduled) {
+                    schedule(new TaskReminder(id, event.userId(), event.dueDate()));
+                }
+            }
+        }
+        if (rescheduled && !unscheduled.isEmpty() && event.dueDate().toEpochDay() >= wheel.getCurrentDay()) {
+            try {
+                scheduler.execute(() -> reload(event.userId(), unscheduled));
+            } catch (RejectedExecutionException exception) {
+                logger.debug("Not reloading rescheduled task reminders after shutdown");
+            }
+        }
+    }
+
+    /**
+     * Schedules the reminders of the given tasks that are pending, read back from the database.
+     * Like a rebuild, changes committed while the tasks are read take precedence.
+     *
+     * @param userId ID of the user owning the tasks
+     * @param ids    IDs of the tasks to read back
+     */
+    void reload(Long userId, List<Long> ids) {
+        LocalDate from;
+        Map<Long, Long> changed;
+        synchronized (this) {
+            changed = startLoad();
+            from = LocalDate.ofEpochDay(wheel.getCurrentDay());
+        }
+        try {
+            for (int start = 0; start < ids.size(); start += REBUILD_BATCH_SIZE) {
+                List<Long> batch = ids.subList(start, Math.min(start + REBUILD_BATCH_SIZE, ids.size()));
+                transactionTemplate.executeWithoutResult(status -> scheduleLoaded(taskRepository.findPendingRemindersByIdIn(userId, batch, from), changed));
+            }
+        } catch (RuntimeException exception) {
+            logger.error("Failed to reload the reminders of {} rescheduled tasks of user {}", ids.size(), userId, exception);
+        } finally {
+            finishLoad(changed);
+        }
+    }
+
+    /**
+     * Fires the reminders of every day up to the given one and publishes them.
+     *
+     * @param today The day to advance to
+     * @return The published event, or null if no task became due or overdue
+     */
+    TasksDueEvent advanceTo(LocalDate today) {
+        try {
+            // Queued completions must not be reminded of
+            taskWriteBehindService.flushAll();
+        } catch (RuntimeException exception) {
+            logger.warn("Failed to flush queued task writes before firing task reminders", exception);
+        }
+        List<TaskReminder> due = new ArrayList<>();
+        List<TaskReminder> overdue = new ArrayList<>();
+        synchronized (this) {
+            while (wheel.getCurrentDay() < today.toEpochDay()) {
+                for (TaskReminder reminder : wheel.tick()) {
+                    if (reminder.dueDate().toEpochDay() == wheel.getCurrentDay()) {
+                        due.add(reminder);
+                        schedule(reminder);
+                    } else {
+                        overdue.add(reminder);
+                    }
+                }
+            }
+        }
+        // Tasks due on a skipped day are overdue by now
+        due.removeIf(reminder -> reminder.dueDate().isBefore(today));
+        if (due.isEmpty() && overdue.isEmpty()) {
+            return null;
+        }
+        TasksDueEvent event = new TasksDueEvent(due, overdue);
+        logger.info("{} tasks are due and {} became overdue on {}", due.size(), overdue.size(), today);
+        eventPublisher.publishEvent(event);
+        return event;
+    }
+
+    /**
+     * Stops firing reminders.
+     */
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Starts tracking the tasks changed while a rebuild or reload reads from the database.
+     */
+    private synchronized Map<Long, Long> startLoad() {
+        Map<Long, Long> changed = new HashMap<>();
+        changedDuringLoads.add(changed);
+        return changed;
+    }
+
+    private synchronized void finishLoad(Map<Long, Long> changed) {
+        // By identity, the changes tracked by two loads may be equal
+        changedDuringLoads.removeIf(tracked -> tracked == changed);
+    }
+
+    private synchronized void scheduleLoaded(List<TaskReminder> reminders, Map<Long, Long> changed) {
+        for (TaskReminder reminder : reminders) {
+            if (!reminder.userId().equals(changed.get(reminder.taskId()))) {
+                schedule(reminder);
+            }
+        }
+    }
+
+    /**
+     * Schedules a reminder for its due date, or for the day it becomes overdue if it is due today.
+     */
+    private void schedule(TaskReminder reminder) {
+        long dueDay = reminder.dueDate().toEpochDay();
+        wheel.add(reminder.taskId(), reminder, dueDay > wheel.getCurrentDay() ? dueDay : dueDay + 1);
+    }
+
+    private void scheduleNextDay() {
+        LocalDateTime now = LocalDateTime.now();
+        long delay = Duration.between(now, now.toLocalDate().plusDays(1).atStartOfDay()).toMillis();
+        try {
+            scheduler.schedule(() -> {
+                try {
+                    advanceTo(LocalDate.now());
+                } catch (RuntimeException exception) {
+                    logger.error("Failed to fire task reminders, retrying with the next day", exception);
+                } finally {
+                    scheduleNextDay();
+                }
+            }, delay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException exception) {
+            logger.debug("Not scheduling task reminders after shutdown");
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.karolbystrek.todo.rails.elite.service;
+
+import com.karolbystrek.todo.rails.elite.model.TaskSearchHit;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.stream.Collectors;
+
+/**
+ * Encodes and decodes the opaque continuation tokens used for paginating search results.
+ *
+ * <p>Results are ordered by descending score and then by id, so a token captures the
+ * {@code (score, id)} key of the last hit on a page and the next page starts right after
+ * it. Scores depend on the size of the user's index and on how many postings each query
+ * token matches, so the token also freezes those numbers: later pages are scored like the
+ * first one, and tasks added or removed in between do not shift the others across pages.</p>
+ *
+ * @param score     Score of the last hit of the previous page
+ * @param id        Id of the last hit of the previous page
+ * @param documents Number of indexed tasks the first page was scored with
+ * @param postings  Number of postings each query token matched on the first page, in query order
+ */
+record TaskSearchCursor(double score, long id, int documents, long[] postings) {
+
+    private static final String SEPARATOR = "|";
+    private static final String POSTINGS_SEPARATOR = ",";
+
+    /**
+     * Creates the token pointing right after the given hit.
+     *
+     * @param hit       The last hit of a page
+     * @param documents Number of indexed tasks the page was scored with
+     * @param postings  Number of postings each query token matched
+     * @return Opaque continuation token
+     */
+    static String encode(TaskSearchHit hit, int documents, long[] postings) {
+        String key = hit.score() + SEPARATOR + hit.task().id() + SEPARATOR + documents + SEPARATOR
+                + Arrays.stream(postings).mapToObj(Long::toString).collect(Collectors.joining(POSTINGS_SEPARATOR));
+        return Base64.getUrlEncoder()
+                .withoutPadding()
+                .encodeToString(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Converts a token back into a cursor.
+     *
+     * @param cursor Token previously returned by {@link #encode(TaskSearchHit, int, long[])}, or null for the first page
+     * @return The decoded cursor, or null for the first page
+     * @throws IllegalArgumentException if the token is malformed
+     */
+    static TaskSearchCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String key = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = key.split("\\" + SEPARATOR, -1);
+            if (parts.length != 4 || parts[3].isEmpty()) {
+                throw new IllegalArgumentException("Invalid cursor: " + cursor);
+            }
+            return new TaskSearchCursor(
+                    Double.parseDouble(parts[0]),
+                    Long.parseLong(parts[1]),
+                    Integer.parseInt(parts[2]),
+                    Arrays.stream(parts[3].split(POSTINGS_SEPARATOR)).mapToLong(Long::parseLong).toArray()
+            );
+        } catch (NumberFormatException exception) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor, exception);
+        }
+    }
+
+    /**
+     * Tells whether a hit comes after this cursor in result order.
+     *
+     * @param score Score of the hit
+     * @param id    Id of the hit
+     * @return True if the hit belongs to a later page
+     */
+    boolean precedes(double score, long id) {
+        return score < this.score || (score == this.score && id > this.id);
+    }
+}
@@ -0,0 +1,522 @@
+package com.karolbystrek.todo.rails.elite.service;
+
+import com.karolbystrek.todo.rails.elite.event.TaskChange;
+import com.karolbystrek.todo.rails.elite.event.TaskChangedEvent;
+import com.karolbystrek.todo.rails.elite.event.TasksBulkChangedEvent;
+import com.karolbystrek.todo.rails.elite.model.CursorPage;
+import com.karolbystrek.todo.rails.elite.model.TaskSearchHit;
+import com.karolbystrek.todo.rails.elite.model.TaskSnapshot;
+import com.karolbystrek.todo.rails.elite.model.TaskSummary;
+import com.karolbystrek.todo.rails.elite.repository.TaskRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Full-text search over task titles and descriptions, backed by in-memory inverted indexes.
+ *
+ * <p>Every user has their own index, so a search only ever looks at the tasks of the
+ * user running it. Titles and descriptions are split into lower-cased, accent-free
+ * tokens. Each token maps to the tasks containing it, weighted by how often it occurs,
+ * with title occurrences counting {@value #TITLE_WEIGHT} times. A task matches a query
+ * when it contains every query token, either exactly or, for tokens of at least
+ * {@value #MIN_PREFIX_LENGTH} characters, as the prefix of a longer word. Matches are
+ * ranked by a tf-idf score in which prefix matches count {@value #PREFIX_MATCH_FACTOR}
+ * times as much as exact ones; the idf of a query token comes from the number of postings
+ * it matches. The index keeps the terms of a task, not its description.</p>
+ *
+ * <p>The indexes are built from the database in the background once the application is
+ * ready and then kept current from the {@link TaskChangedEvent}s and
+ * {@link TasksBulkChangedEvent}s published for every task write, applied after the write
+ * has committed.</p>
+ *
+ * <p>Events of two writes to a task may arrive in the opposite order of their commits, so
+ * each document carries the version of the state it was indexed from and states of older
+ * versions are dropped. A deleted task is remembered until two sweeps have passed, so a
+ * late update cannot bring it back. Set-based statements do not report the versions they
+ * wrote; the index applies them to the documents as they are and then reads the changed
+ * tasks back in the background.</p>
+ */
+@Service
+public class TaskSearchService {
+
+    static final int TITLE_WEIGHT = 3;
+    static final int DESCRIPTION_WEIGHT = 1;
+    static final int MIN_PREFIX_LENGTH = 2;
+    static final double PREFIX_MATCH_FACTOR = 0.5;
+    static final int RELOAD_BATCH_SIZE = 1000;
+    static final long TOMBSTONE_SWEEP_MINUTES = 1;
+
+    private static final Pattern TOKEN_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+    private static final Comparator<TaskSearchHit> RESULT_ORDER = Comparator
+            .comparingDouble(TaskSearchHit::score).reversed()
+            .thenComparingLong(hit -> hit.task().id());
+
+    private final Logger logger;
+    private final TaskRepository taskRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService loader;
+    private volatile Map<Long, UserIndex> indexes = new ConcurrentHashMap<>();
+    /**
+     * The indexes being rebuilt next to the ones answering searches, or null between rebuilds.
+     */
+    private volatile Map<Long, UserIndex> rebuilding;
+    /**
+     * Advanced by every sweep; a deleted task is remembered with the generation it was deleted in.
+     */
+    private final AtomicLong tombstoneGeneration = new AtomicLong();
+
+    @Autowired
+    public TaskSearchService(TaskRepository taskRepository, TransactionTemplate transactionTemplate) {
+        this.logger = LoggerFactory.getLogger(TaskSearchService.class);
+        this.taskRepository = taskRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.loader = Executors.newSingleThreadExecutor(
+                Thread.ofPlatform().name("task-search-index").daemon().factory()
+        );
+    }
+
+    /**
+     * Builds the indexes in the background once the application has started.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        loader.execute(() -> {
+            try {
+                rebuild();
+            } catch (RuntimeException exception) {
+                logger.error("Failed to build the search index, only tasks changed from now on are searchable", exception);
+            }
+        });
+    }
+
+    /**
+     * Stops reading tasks back for the indexes.
+     */
+    @PreDestroy
+    public void shutdown() {
+        loader.shutdownNow();
+    }
+
+    /**
+     * Replaces the indexes with ones built from all tasks in the database.
+     *
+     * <p>The new indexes are built next to the current ones, which keep answering searches
+     * until they are swapped. Changes committed meanwhile are applied to both, and the
+     * rows read by the rebuild do not replace the newer versions they wrote.</p>
+     *
+     * @return Number of indexed tasks
+     */
+    public synchronized int rebuild() {
+        Map<Long, UserIndex> rebuilt = new ConcurrentHashMap<>();
+        rebuilding = rebuilt;
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                try (Stream<TaskSnapshot> tasks = taskRepository.streamAllSnapshots()) {
+                    tasks.forEach(task -> index(rebuilt, task.userId()).update(task));
+                }
+            });
+            indexes = rebuilt;
+        } finally {
+            rebuilding = null;
+        }
+        int indexed = rebuilt.values().stream().mapToInt(UserIndex::size).sum();
+        logger.info("Indexed {} tasks of {} users for search", indexed, rebuilt.size());
+        return indexed;
+    }
+
+    /**
+     * Searches the titles and descriptions of a user's tasks.
+     *
+     * @param userId ID of the user owning the tasks
+     * @param query  Free text; every word has to match a whole word or the start of one
+     * @param cursor Continuation token from a previous page of the same query, or null for the first page
+     * @param size   Maximum number of hits to return
+     * @return One page of hits, best matches first
+     * @throws IllegalArgumentException if the cursor is malformed or belongs to another query
+     */
+    @FlushQueuedWrites
+    public CursorPage<TaskSearchHit> search(Long userId, String query, String cursor, int size) {
+        TaskSearchCursor after = TaskSearchCursor.decode(cursor);
+        List<String> tokens = tokenize(query).distinct().toList();
+        if (tokens.isEmpty()) {
+            return new CursorPage<>(List.of(), null);
+        }
+        if (after != null && after.postings().length != tokens.size()) {
+            throw new IllegalArgumentException("Cursor does not belong to the query: " + cursor);
+        }
+        UserIndex index = indexes.get(userId);
+        return index == null ? new CursorPage<>(List.of(), null) : index.search(tokens, after, size);
+    }
+
+    /**
+     * Applies committed task changes to the indexes.
+     *
+     * @param event The task changes
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void applyChanges(TaskChangedEvent event) {
+        forEachIndex(current -> {
+            for (TaskChange change : event.changes()) {
+                if (change.after() != null) {
+                    index(current, change.after().userId()).update(change.after());
+                } else if (change.before() != null) {
+                    index(current, change.before().userId()).delete(change.before().id(), tombstoneGeneration.get());
+                }
+            }
+        });
+    }
+
+    /**
+     * Applies a committed set-based change to the index of its user, then reads the completed
+     * and rescheduled tasks back in the background for the versions the statement wrote. Only
+     * the user's own tasks are in that index, so IDs of other users' tasks are skipped.
+     *
+     * @param event The set-based task change
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void applyBulkChanges(TasksBulkChangedEvent event) {
+        forEachIndex(current -> index(current, event.userId()).apply(event, tombstoneGeneration.get()));
+        if (event.operation() != TasksBulkChangedEvent.Operation.DELETE) {
+            try {
+                loader.execute(() -> reload(event.userId(), event.ids()));
+            } catch (RejectedExecutionException exception) {
+                logger.debug("Not reading back the search index of user {} after shutdown", event.userId());
+            }
+        }
+    }
+
+    /**
+     * Forgets the tasks deleted before the previous sweep. Skipped during a rebuild, which
+     * may still read rows of tasks deleted since it started.
+     */
+    @Scheduled(fixedDelay = TOMBSTONE_SWEEP_MINUTES, timeUnit = TimeUnit.MINUTES)
+    public void sweepTombstones() {
+        if (rebuilding != null) {
+            return;
+        }
+        long generation = tombstoneGeneration.getAndIncrement();
+        indexes.values().forEach(index -> index.sweep(generation));
+    }
+
+    /**
+     * Indexes the current state of the given tasks, read back from the database.
+     *
+     * @param userId ID of the user owning the tasks
+     * @param ids    IDs of the tasks to read back
+     */
+    void reload(Long userId, List<Long> ids) {
+        try {
+            for (int start = 0; start < ids.size(); start += RELOAD_BATCH_SIZE) {
+                List<Long> batch = ids.subList(start, Math.min(start + RELOAD_BATCH_SIZE, ids.size()));
+                List<TaskSnapshot> tasks = transactionTemplate.execute(status -> taskRepository.findSnapshotsByIdIn(userId, batch));
+                if (tasks != null) {
+                    forEachIndex(current -> tasks.forEach(task -> index(current, task.userId()).update(task)));
+                }
+            }
+        } catch (RuntimeException exception) {
+            logger.error("Failed to read back {} tasks of user {} for search", ids.size(), userId, exception);
+        }
+    }
+
+    /**
+     * Splits text into lower-cased tokens without diacritics.
+     *
+     * @param text The text to split, may be null
+     * @return The tokens in order of appearance
+     */
+    static Stream<String> tokenize(String text) {
+        if (text == null) {
+            return Stream.empty();
+        }
+        String normalized = COMBINING_MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        return Arrays.stream(TOKEN_SEPARATOR.split(normalized.toLowerCase(Locale.ROOT)))
+                .filter(token -> !token.isEmpty());
+    }
+
+    /**
+     * Runs a change against the indexes answering searches and, during a rebuild, the ones being built.
+     */
+    private void forEachIndex(Consumer<Map<Long, UserIndex>> change) {
+        // Read before the current indexes, so a rebuild swapped meanwhile is not missed
+        Map<Long, UserIndex> next = rebuilding;
+        Map<Long, UserIndex> current = indexes;
+        change.accept(current);
+        if (next != null && next != current) {
+            change.accept(next);
+        }
+    }
+
+    private static UserIndex index(Map<Long, UserIndex> indexes, Long userId) {
+        return indexes.computeIfAbsent(userId, id -> new UserIndex());
+    }
+
+    /**
+     * An indexed task: its summary, the terms it is posted under and the version it was indexed from.
+     *
+     * @param task    The task without its description
+     * @param terms   The distinct terms of the title and description, sharing the posting keys
+     * @param version Version of the task state the document was built from
+     */
+    private record Document(TaskSummary task, String[] terms, long version) {
+    }
+
+    /**
+     * The inverted index over the tasks of a single user.
+     */
+    private static final class UserIndex {
+
+        private final NavigableMap<String, Map<Long, Integer>> postings = new TreeMap<>();
+        private final Map<Long, Document> documents = new HashMap<>();
+        /**
+         * Deleted task IDs and the sweep generation they were deleted in.
+         */
+        private final LongLongHashMap deleted = new LongLongHashMap();
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+        CursorPage<TaskSearchHit> search(List<String> tokens, TaskSearchCursor after, int size) {
+            lock.readLock().lock();
+            try {
+                List<TokenMatch> matches = new ArrayList<>(tokens.size());
+                for (String token : tokens) {
+                    matches.add(new TokenMatch(token, matchingTerms(token)));
+                }
+                int documentCount = after == null ? documents.size() : after.documents();
+                long[] postingCounts = after == null
+                        ? matches.stream().mapToLong(TokenMatch::postingCount).toArray()
+                        : after.postings();
+                Map<Long, Double> scores = score(matches, documentCount, postingCounts);
+                PriorityQueue<TaskSearchHit> best = new PriorityQueue<>(size + 1, RESULT_ORDER.reversed());
+                for (Map.Entry<Long, Double> entry : scores.entrySet()) {
+                    double score = entry.getValue();
+                    long id = entry.getKey();
+                    if (after != null && !after.precedes(score, id)) {
+                        continue;
+                    }
+                    TaskSearchHit worst = best.size() > size ? best.peek() : null;
+                    if (worst != null && (score < worst.score() || score == worst.score() && id > worst.task().id())) {
+                        continue;
+                    }
+                    best.add(new TaskSearchHit(documents.get(id).task(), score));
+                    if (best.size() > size + 1) {
+                        best.poll();
+                    }
+                }
+                List<TaskSearchHit> hits = new ArrayList<>(best);
+                hits.sort(RESULT_ORDER);
+                if (hits.size() <= size) {
+                    return new CursorPage<>(hits, null);
+                }
+                List<TaskSearchHit> page = hits.subList(0, size);
+                return new CursorPage<>(List.copyOf(page), TaskSearchCursor.encode(page.getLast(), documentCount, postingCounts));
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        int size() {
+            lock.readLock().lock();
+            try {
+                return documents.size();
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        /**
+         * Indexes a task state, unless the task was deleted or is indexed at the same or a newer version.
+         */
+        void update(TaskSnapshot task) {
+            long version = task.version() == null ? 0 : task.version();
+            lock.writeLock().lock();
+            try {
+                Document current = documents.get(task.id());
+                if (!deleted.containsKey(task.id()) && (current == null || current.version() < version)) {
+                    index(task, version);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void delete(long id, long generation) {
+            lock.writeLock().lock();
+            try {
+                Document previous = documents.remove(id);
+                if (previous != null) {
+                    unindex(id, previous);
+                }
+                deleted.put(id, generation);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        /**
+         * Applies a set-based change to the indexed tasks, keeping their versions so the
+         * states read back afterwards replace them. Only fields that are not searched change.
+         */
+        void apply(TasksBulkChangedEvent event, long generation) {
+            lock.writeLock().lock();
+            try {
+                for (Long id : event.ids()) {
+                    if (event.operation() == TasksBulkChangedEvent.Operation.DELETE) {
+                        delete(id, generation);
+                        continue;
+                    }
+                    Document document = documents.get(id);
+                    if (document == null) {
+                        continue;
+                    }
+                    TaskSummary task = document.task();
+                    TaskSummary changed = switch (event.operation()) {
+                        case COMPLETE -> new TaskSummary(task.id(), task.title(), true, task.dueDate());
+                        case RESCHEDULE -> new TaskSummary(task.id(), task.title(), task.completed(), event.dueDate());
+                        case DELETE -> throw new IllegalStateException("Deletions are not changed in place");
+                    };
+                    documents.put(id, new Document(changed, document.terms(), document.version()));
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        /**
+         * Forgets the deletions made before a sweep generation.
+         */
+        void sweep(long generation) {
+            lock.writeLock().lock();
+            try {
+                deleted.removeValuesIf(deletedIn -> deletedIn < generation);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        private Map<Long, Double> score(List<TokenMatch> matches, int documentCount, long[] postingCounts) {
+            List<Integer> order = new ArrayList<>(matches.size());
+            for (int i = 0; i < matches.size(); i++) {
+                order.add(i);
+            }
+            // Start from the most selective token, so the candidate set shrinks as early as possible.
+            order.sort(Comparator.comparingLong(i -> matches.get(i).postingCount()));
+
+            Map<Long, Double> scores = null;
+            for (int i : order) {
+                double idf = Math.log1p((double) documentCount / Math.max(1, postingCounts[i]));
+                Map<Long, Double> tokenScores = scoreToken(matches.get(i), idf, scores == null ? null : scores.keySet());
+                if (scores != null) {
+                    Map<Long, Double> previous = scores;
+                    tokenScores.replaceAll((id, score) -> score + previous.get(id));
+                }
+                scores = tokenScores;
+                if (scores.isEmpty()) {
+                    break;
+                }
+            }
+            return scores;
+        }
+
+        private List<Map.Entry<String, Map<Long, Integer>>> matchingTerms(String token) {
+            if (token.length() < MIN_PREFIX_LENGTH) {
+                Map<Long, Integer> exact = postings.get(token);
+                return exact == null ? List.of() : List.of(Map.entry(token, exact));
+            }
+            return List.copyOf(postings.subMap(token, true, token + Character.MAX_VALUE, false).entrySet());
+        }
+
+        private Map<Long, Double> scoreToken(TokenMatch match, double idf, Collection<Long> candidates) {
+            Map<Long, Double> scores = new HashMap<>();
+            for (Map.Entry<String, Map<Long, Integer>> term : match.terms()) {
+                Map<Long, Integer> weights = term.getValue();
+                double termScore = idf * (term.getKey().equals(match.token()) ? 1 : PREFIX_MATCH_FACTOR);
+                if (candidates != null && candidates.size() < weights.size()) {
+                    for (Long id : candidates) {
+                        Integer weight = weights.get(id);
+                        if (weight != null) {
+                            scores.merge(id, termScore * (1 + Math.log(weight)), Math::max);
+                        }
+                    }
+                } else {
+                    for (Map.Entry<Long, Integer> posting : weights.entrySet()) {
+                        if (candidates == null || candidates.contains(posting.getKey())) {
+                            scores.merge(posting.getKey(), termScore * (1 + Math.log(posting.getValue())), Math::max);
+                        }
+                    }
+                }
+            }
+            return scores;
+        }
+
+        private void index(TaskSnapshot task, long version) {
+            Document previous = documents.remove(task.id());
+            if (previous != null) {
+                unindex(task.id(), previous);
+            }
+            Map<String, Integer> weights = new HashMap<>();
+            tokenize(task.title()).forEach(term -> weights.merge(term, TITLE_WEIGHT, Integer::sum));
+            tokenize(task.description()).forEach(term -> weights.merge(term, DESCRIPTION_WEIGHT, Integer::sum));
+            String[] terms = new String[weights.size()];
+            int next = 0;
+            for (Map.Entry<String, Integer> weight : weights.entrySet()) {
+                postings.computeIfAbsent(weight.getKey(), key -> new HashMap<>()).put(task.id(), weight.getValue());
+                terms[next++] = postings.ceilingKey(weight.getKey());
+            }
+            documents.put(task.id(), new Document(new TaskSummary(task.id(), task.title(), task.completed(), task.dueDate()), terms, version));
+        }
+
+        private void unindex(Long id, Document document) {
+            for (String term : document.terms()) {
+                Map<Long, Integer> weights = postings.get(term);
+                if (weights != null && weights.remove(id) != null && weights.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+    }
+
+    /**
+     * The index terms a single query token matches.
+     *
+     * @param token The query token
+     * @param terms The token itself and the longer terms it is a prefix of, with their postings
+     */
+    private record TokenMatch(String token, List<Map.Entry<String, Map<Long, Integer>>> terms) {
+
+        long postingCount() {
+            return terms.stream().mapToLong(term -> term.getValue().size()).sum();
+        }
+    }
+}
@@ -1,77 +1,150 @@
 package com.karolbystrek.todo.rails.elite.service;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.karolbystrek.todo.rails.elite.event.TaskChange;
+import com.karolbystrek.todo.rails.elite.event.TaskChangedEvent;
+import com.karolbystrek.todo.rails.elite.event.TasksBulkChangedEvent;
 import com.karolbystrek.todo.rails.elite.exceptions.ResourceAlreadyExistsException;
 import com.karolbystrek.todo.rails.elite.exceptions.ResourceNotFoundException;
+import com.karolbystrek.todo.rails.elite.model.CursorPage;
+import com.karolbystrek.todo.rails.elite.model.DashboardSnapshot;
 import com.karolbystrek.todo.rails.elite.model.Task;
+import com.karolbystrek.todo.rails.elite.model.TaskCounts;
+import com.karolbystrek.todo.rails.elite.model.TaskSnapshot;
+import com.karolbystrek.todo.rails.elite.model.TaskSummary;
 import com.karolbystrek.todo.rails.elite.repository.TaskRepository;
+import com.karolbystrek.todo.rails.elite.repository.UserRepository;
+import io.micrometer.core.annotation.Timed;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.ConstraintViolationException;
+import jakarta.validation.Validator;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Window;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.validation.annotation.Validated;
 
 import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.ToIntFunction;
 
 @Service
+@Validated
+@Timed("todo.service")
 public class TaskService {
 
+    /**
+     * Maximum number of ids bound into a single bulk statement.
+     */
+    static final int BULK_CHUNK_SIZE = 1000;
+
     private final Logger logger;
     private final TaskRepository taskRepository;
+    private final UserRepository userRepository;
+    private final TaskCounterService taskCounterService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Validator validator;
 
     /**
-     * Constructs a TaskService with the required repository.
+     * Constructs a TaskService with the required dependencies.
      *
-     * @param taskRepository The repository for task operations
+     * @param taskRepository     The repository for task operations
+     * @param userRepository     The repository for the users owning the tasks
+     * @param taskCounterService The service maintaining the task counters
+     * @param eventPublisher     The publisher of task change events
+     * @param validator          The validator checking the fields changed by a patch
      */
-    public TaskService(TaskRepository taskRepository) {
+    public TaskService(
+            TaskRepository taskRepository,
+            UserRepository userRepository,
+            TaskCounterService taskCounterService,
+            ApplicationEventPublisher eventPublisher,
+            Validator validator
+    ) {
         this.logger = LoggerFactory.getLogger(TaskService.class);
         this.taskRepository = taskRepository;
+        this.userRepository = userRepository;
+        this.taskCounterService = taskCounterService;
+        this.eventPublisher = eventPublisher;
+        this.validator = validator;
     }
 
     /**
-     * Creates a new task if it doesn't already exist.
+     * Creates a new task if the user doesn't already have one with the same title.
      *
-     * @param task The task to be added
+     * @param userId ID of the user owning the task
+     * @param task   The task to be added
      * @return The saved task with generated ID
      * @throws RuntimeException if a task with the same title already exists
      */
-    public Task addTask(@NotNull(message = "Task cannot be null") Task task) throws ResourceAlreadyExistsException {
-        if (taskRepository.findByTitle(task.getTitle()).isPresent()) {
+    @Transactional
+    public Task addTask(
+            @NotNull(message = "User id cannot be null") Long userId,
+            @NotNull(message = "Task cannot be null") Task task
+    ) throws ResourceAlreadyExistsException {
+        if (taskRepository.findByUserIdAndTitle(userId, task.getTitle()).isPresent()) {
             logger.error("Task with title '{}' already exists", task.getTitle());
             throw new ResourceAlreadyExistsException("Task with title '" + task.getTitle() + "' already exists");
         }
-        return taskRepository.save(task);
+        task.setUser(userRepository.getReferenceById(userId));
+        Task savedTask = taskRepository.save(task);
+        publish(List.of(TaskChange.created(TaskSnapshot.of(savedTask))));
+        return savedTask;
     }
 
     /**
-     * Retrieves a task by its ID.
+     * Retrieves a task of a user by its ID.
      *
-     * @param id The ID of the task to retrieve
+     * @param userId ID of the user owning the task
+     * @param id     The ID of the task to retrieve
      * @return The found task
-     * @throws RuntimeException if no task is found with the given ID
+     * @throws RuntimeException if the user has no task with the given ID
      */
-    public Task getTaskById(@NotNull(message = "Id cannot be null") Long id) throws ResourceNotFoundException {
+    @FlushQueuedWrites
+    @Transactional(readOnly = true)
+    public Task getTaskById(
+            @NotNull(message = "User id cannot be null") Long userId,
+            @NotNull(message = "Id cannot be null") Long id
+    ) throws ResourceNotFoundException {
         return taskRepository.findById(id)
+                .filter(task -> task.getUser().getId().equals(userId))
                 .orElseThrow(
                         () -> new ResourceNotFoundException("Task not found with id: " + id)
                 );
     }
 
     /**
-     * Retrieves a task by its title.
+     * Retrieves a task of a user by its title.
      *
-     * @param title The title of the task to retrieve
+     * @param userId ID of the user owning the task
+     * @param title  The title of the task to retrieve
      * @return The found task
-     * @throws RuntimeException if no task is found with the given title
+     * @throws RuntimeException if the user has no task with the given title
      */
+    @FlushQueuedWrites
+    @Transactional(readOnly = true)
     public Task getTaskByTitle(
+            @NotNull(message = "User id cannot be null") Long userId,
             @NotNull(message = "Title cannot be null")
             @NotBlank(message = "Title cannot be blank")
             String title
     ) throws ResourceNotFoundException {
-        return taskRepository.findByTitle(title)
+        return taskRepository.findByUserIdAndTitle(userId, title)
                 .orElseThrow(
                         () -> new ResourceNotFoundException("Task not found with title: " + title)
                 );
@@ -79,101 +152,511 @@ public class TaskService {
 
 
     /**
-     * Retrieves all tasks in the system.
+     * Retrieves all tasks of a user ordered by due date.
      *
-     * @return List of all tasks or empty list if no tasks exist
+     * @param userId ID of the user owning the tasks
+     * @return List of all tasks or empty list if the user has no tasks
      */
-    public List<Task> getAllTasks() {
-        if (taskRepository.findAll().isEmpty()) {
-            return List.of();
-        }
-        return taskRepository.findAll();
+    @FlushQueuedWrites
+    @Transactional(readOnly = true)
+    public List<TaskSummary> getAllTasks(Long userId) {
+        return taskRepository.findSummariesByUserIdOrderByDueDateAsc(userId);
     }
 
     /**
      * Updates an existing task's details.
      *
-     * @param task The task with updated information
+     * @param userId ID of the user owning the task
+     * @param task   The task with updated information
      * @return The updated task
      * @throws RuntimeException if the task to update is not found
      */
-    public Task updateTask(@NotNull(message = "Task cannot be null") Task task) throws ResourceNotFoundException {
-        Optional<Task> existingTask = taskRepository.findByTitle(task.getTitle());
+    @FlushQueuedWrites
+    @Transactional
+    public Task updateTask(
+            @NotNull(message = "User id cannot be null") Long userId,
+            @NotNull(message = "Task cannot be null") Task task
+    ) throws ResourceNotFoundException {
+        Optional<Task> existingTask = taskRepository.findByUserIdAndTitle(userId, task.getTitle());
         if (existingTask.isEmpty()) {
             logger.error("Task with title '{}' does not exist", task.getTitle());
             throw new ResourceNotFoundException("Task not found with title: " + task.getTitle());
         }
         Task taskToUpdate = existingTask.get();
+        TaskSnapshot before = TaskSnapshot.of(taskToUpdate);
         taskToUpdate.setTitle(task.getTitle());
         taskToUpdate.setDescription(task.getDescription());
         taskToUpdate.setCompleted(task.isCompleted());
         taskToUpdate.setDueDate(task.getDueDate());
-        return taskRepository.save(taskToUpdate);
+        // Flushed so the published state carries the incremented version
+        Task savedTask = taskRepository.saveAndFlush(taskToUpdate);
+        publish(List.of(TaskChange.updated(before, TaskSnapshot.of(savedTask))));
+        return savedTask;
+    }
+
+    /**
+     * Updates a task of a user by its ID, provided it still has the expected version.
+     *
+     * <p>The current state usually comes from the second-level cache and the change is
+     * written with a single {@code UPDATE ... WHERE id = ? AND version = ?}, so a write
+     * committed concurrently makes this update fail instead of being overwritten.</p>
+     *
+     * @param userId          ID of the user owning the task
+     * @param id              ID of the task to update
+     * @param expectedVersion Version the caller based the change on, or null to update the current version
+     * @param task            The task with updated information
+     * @return The updated task with its new version
+     * @throws ResourceNotFoundException              if the user has no task with the given ID
+     * @throws ResourceAlreadyExistsException         if the user already has another task with the new title
+     * @throws ObjectOptimisticLockingFailureException if the task has changed since the expected version
+     */
+    @FlushQueuedWrites
+    @Transactional
+    public Task updateTask(
+            @NotNull(message = "User id cannot be null") Long userId,
+            @NotNull(message = "Id cannot be null") Long id,
+            Long expectedVersion,
+            @NotNull(message = "Task cannot be null") Task task
+    ) throws ResourceNotFoundException, ResourceAlreadyExistsException {
+        return modify(userId, id, expectedVersion, existingTask -> {
+            if (!existingTask.getTitle().equals(task.getTitle()) && taskRepository.findByUserIdAndTitle(userId, task.getTitle())
+                    .filter(other -> !other.getId().equals(id))
+                    .isPresent()) {
+                logger.error("Task with title '{}' already exists", task.getTitle());
+                throw new ResourceAlreadyExistsException("Task with title '" + task.getTitle() + "' already exists");
+            }
+            existingTask.setTitle(task.getTitle());
+            existingTask.setDescription(task.getDescription());
+            existingTask.setCompleted(task.isCompleted());
+            existingTask.setDueDate(task.getDueDate());
+        });
     }
 
     /**
-     * Deletes a task from the system.
+     * Applies a JSON Merge Patch (RFC 7396) to a task of a user, provided it still has the expected version.
      *
-     * @param task The task to be deleted
+     * <p>Only the fields present in the patch are validated and changed. Tasks are
+     * dynamically updated, so the flushed {@code UPDATE} only sets the changed columns
+     * and the version. A rename is checked by the unique title constraint instead of a
+     * lookup by title.</p>
+     *
+     * @param userId          ID of the user owning the task
+     * @param id              ID of the task to patch
+     * @param expectedVersion Version the caller based the change on, or null to patch the current version
+     * @param patch           JSON object with the new values of {@code title}, {@code description},
+     *                        {@code completed} and {@code dueDate}
+     * @return The patched task with its new version
+     * @throws IllegalArgumentException               if the patch is not an object, has an unknown field or a value of the wrong type
+     * @throws ConstraintViolationException           if a changed field is invalid, for example a removed title
+     * @throws ResourceNotFoundException              if the user has no task with the given ID
+     * @throws ResourceAlreadyExistsException         if the user already has another task with the new title
+     * @throws ObjectOptimisticLockingFailureException if the task has changed since the expected version
+     */
+    @FlushQueuedWrites
+    @Transactional
+    public Task patchTask(
+            @NotNull(message = "User id cannot be null") Long userId,
+            @NotNull(message = "Id cannot be null") Long id,
+            Long expectedVersion,
+            @NotNull(message = "Patch cannot be null") JsonNode patch
+    ) throws ResourceNotFoundException, ResourceAlreadyExistsException {
+        Map<String, Object> changes = readPatch(patch);
+        return modify(userId, id, expectedVersion, existingTask -> changes.forEach((field, value) -> {
+            switch (field) {
+                case "title" -> existingTask.setTitle((String) value);
+                case "description" -> existingTask.setDescription((String) value);
+                case "completed" -> existingTask.setCompleted((Boolean) value);
+                case "dueDate" -> existingTask.setDueDate((LocalDate) value);
+                default -> throw new IllegalStateException("Unexpected patched field: " + field);
+            }
+        }));
+    }
+
+    /**
+     * Marks a task of a user as completed, provided it still has the expected version.
+     *
+     * @param userId          ID of the user owning the task
+     * @param id              ID of the task to complete
+     * @param expectedVersion Version the caller based the change on, or null to complete the current version
+     * @return The completed task with its new version
+     * @throws ResourceNotFoundException              if the user has no task with the given ID
+     * @throws ObjectOptimisticLockingFailureException if the task has changed since the expected version
+     */
+    @FlushQueuedWrites
+    @Transactional
+    public Task completeTask(
+            @NotNull(message = "User id cannot be null") Long userId,
+            @NotNull(message = "Id cannot be null") Long id,
+            Long expectedVersion
+    ) throws ResourceNotFoundException {
+        return modify(userId, id, expectedVersion, existingTask -> existingTask.setCompleted(true));
+    }
+
+    /**
+     * Deletes a task of a user.
+     *
+     * @param userId ID of the user owning the task
+     * @param task   The task to be deleted
      * @throws RuntimeException if the task to delete is not found
      */
-    public void deleteTask(@NotNull(message = "Task cannot be null") Task task) throws ResourceNotFoundException {
-        Optional<Task> taskByTitle = taskRepository.findByTitle(task.getTitle());
+    @Transactional
+    public void deleteTask(
+            @NotNull(message = "User id cannot be null") Long userId,
+            @NotNull(message = "Task cannot be null") Task task
+    ) throws ResourceNotFoundException {
+        Optional<Task> taskByTitle = taskRepository.findByUserIdAndTitle(userId, task.getTitle());
         if (taskByTitle.isEmpty()) {
             logger.error("Task with title '{}' does not exist", task.getTitle());
             throw new ResourceNotFoundException("Task not found with title: " + task.getTitle());
         }
-        taskRepository.delete(task);
+        taskRepository.delete(taskByTitle.get());
+        publish(List.of(TaskChange.deleted(TaskSnapshot.of(taskByTitle.get()))));
+    }
+
+    /**
+     * Marks the given tasks of a user as completed with set-based updates.
+     *
+     * <p>The counters are moved by the number of updated rows, so completing a chunk
+     * of tasks takes one update of the tasks and one of the counters.</p>
+     *
+     * @param userId ID of the user owning the tasks
+     * @param ids    IDs of the tasks to complete, IDs of other users' tasks are ignored
+     * @return Number of tasks that changed from pending to completed
+     */
+    @FlushQueuedWrites
+    @Transactional
+    public int completeTasks(
+            @NotNull(message = "User id cannot be null") Long userId,
+            @NotNull(message = "Ids cannot be null") Collection<Long> ids
+    ) {
+        List<Long> distinctIds = ids.stream().distinct().toList();
+        int completed = inChunks(distinctIds, chunk -> taskRepository.completeByIdIn(userId, chunk));
+        taskCounterService.countCompleted(userId, completed);
+        publish(completed, TasksBulkChangedEvent.completed(userId, distinctIds));
+        return completed;
     }
 
     /**
-     * Retrieves all incomplete tasks.
+     * Moves the given tasks of a user to a new due date with set-based updates.
      *
+     * @param userId  ID of the user owning the tasks
+     * @param ids     IDs of the tasks to reschedule, IDs of other users' tasks are ignored
+     * @param dueDate The new due date
+     * @return Number of rescheduled tasks
+     */
+    @FlushQueuedWrites
+    @Transactional
+    public int rescheduleTasks(
+            @NotNull(message = "User id cannot be null") Long userId,
+            @NotNull(message = "Ids cannot be null") Collection<Long> ids,
+            @NotNull(message = "Due date cannot be null") LocalDate dueDate
+    ) {
+        List<Long> distinctIds = ids.stream().distinct().toList();
+        int rescheduled = inChunks(distinctIds, chunk -> taskRepository.rescheduleByIdIn(userId, chunk, dueDate));
+        publish(rescheduled, TasksBulkChangedEvent.rescheduled(userId, distinctIds, dueDate));
+        return rescheduled;
+    }
+
+    /**
+     * Deletes the given tasks of a user with set-based deletes.
+     *
+     * <p>Each chunk is uncounted by a single counter update that counts the tasks by
+     * status, and then deleted.</p>
+     *
+     * @param userId ID of the user owning the tasks
+     * @param ids    IDs of the tasks to delete, IDs of other users' tasks are ignored
+     * @return Number of deleted tasks
+     */
+    @Transactional
+    public int deleteTasks(
+            @NotNull(message = "User id cannot be null") Long userId,
+            @NotNull(message = "Ids cannot be null") Collection<Long> ids
+    ) {
+        List<Long> distinctIds = ids.stream().distinct().toList();
+        int deleted = inChunks(distinctIds, chunk -> {
+            taskCounterService.countDeleted(userId, chunk);
+            return taskRepository.deleteByIdIn(userId, chunk);
+        });
+        publish(deleted, TasksBulkChangedEvent.deleted(userId, distinctIds));
+        return deleted;
+    }
+
+    /**
+     * Deletes all tasks of a user with set-based deletes.
+     *
+     * @param userId ID of the user owning the tasks
+     * @return Number of deleted tasks
+     */
+    @Transactional
+    public int deleteAllTasks(@NotNull(message = "User id cannot be null") Long userId) {
+        return deleteTasks(userId, taskRepository.findIdsByUserId(userId));
+    }
+
+    /**
+     * Retrieves all incomplete tasks ordered by due date.
+     *
+     * @param userId ID of the user owning the tasks
      * @return List of pending tasks or empty list if none exist
      */
-    public List<Task> getPendingTasks() {
-        List<Task> allTasks = getAllTasks();
-        if (allTasks.isEmpty()) {
-            return List.of();
-        }
-        return allTasks.stream()
-                .filter(task -> !task.isCompleted())
-                .toList();
+    @FlushQueuedWrites
+    @Transactional(readOnly = true)
+    public List<TaskSummary> getPendingTasks(Long userId) {
+        return taskRepository.findSummariesByUserIdAndCompletedOrderByDueDateAsc(userId, false);
     }
 
     /**
-     * Retrieves all completed tasks.
+     * Retrieves all completed tasks ordered by due date.
      *
+     * @param userId ID of the user owning the tasks
      * @return List of completed tasks or empty list if none exist
      */
-    public List<Task> getCompletedTasks() {
-        List<Task> allTasks = getAllTasks();
-        if (allTasks.isEmpty()) {
-            return List.of();
-        }
-        return allTasks.stream()
-                .filter(Task::isCompleted)
-                .toList();
+    @FlushQueuedWrites
+    @Transactional(readOnly = true)
+    public List<TaskSummary> getCompletedTasks(Long userId) {
+        return taskRepository.findSummariesByUserIdAndCompletedOrderByDueDateAsc(userId, true);
     }
 
     /**
      * Retrieves all incomplete tasks due today.
      *
+     * @param userId ID of the user owning the tasks
      * @return List of today's incomplete tasks or empty list if none exist
      */
-    public List<Task> getTodayTasks() {
-        List<Task> allTasks = getAllTasks();
-        if (allTasks.isEmpty()) {
-            return List.of();
+    @FlushQueuedWrites
+    @Transactional(readOnly = true)
+    public List<TaskSummary> getTodayTasks(Long userId) {
+        return taskRepository.findSummariesByUserIdAndCompletedFalseAndDueDate(userId, LocalDate.now());
+    }
+
+    /**
+     * Retrieves all incomplete tasks whose due date has already passed.
+     *
+     * @param userId ID of the user owning the tasks
+     * @return List of overdue tasks or empty list if none exist
+     */
+    @FlushQueuedWrites
+    @Transactional(readOnly = true)
+    public List<TaskSummary> getOverdueTasks(Long userId) {
+        return taskRepository.findSummariesByUserIdAndCompletedFalseAndDueDateBeforeOrderByDueDateAsc(userId, LocalDate.now());
+    }
+
+    /**
+     * Retrieves all incomplete tasks due between today and the given number of days ahead.
+     *
+     * @param userId ID of the user owning the tasks
+     * @param days Number of days ahead of today to include
+     * @return List of upcoming tasks or empty list if none exist
+     * @throws IllegalArgumentException if the number of days is negative
+     */
+    @FlushQueuedWrites
+    @Transactional(readOnly = true)
+    public List<TaskSummary> getUpcomingTasks(Long userId, int days) {
+        if (days < 0) {
+            throw new IllegalArgumentException("Number of days cannot be negative: " + days);
         }
-        return allTasks.stream()
-                .filter(
-                        task -> !task.isCompleted()
-                )
+        LocalDate today = LocalDate.now();
+        return taskRepository.findSummariesByUserIdAndCompletedFalseAndDueDateBetweenOrderByDueDateAsc(userId, today, today.plusDays(days));
+    }
+
+    /**
+     * Retrieves one page of all tasks ordered by due date.
+     *
+     * @param userId   ID of the user owning the tasks
+     * @param cursor   Continuation token from the previous page, or null for the first page
+     * @param pageSize Maximum number of tasks on the page
+     * @return The requested page of tasks
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    @FlushQueuedWrites
+    @Transactional(readOnly = true)
+    public CursorPage<TaskSummary> getTasksPage(Long userId, String cursor, int pageSize) {
+        return toPage(taskRepository.findSummariesByUserIdOrderByDueDateAscIdAsc(userId, TaskCursor.decode(cursor), Limit.of(pageSize)));
+    }
+
+    /**
+     * Retrieves one page of incomplete tasks ordered by due date.
+     *
+     * @param userId   ID of the user owning the tasks
+     * @param cursor   Continuation token from the previous page, or null for the first page
+     * @param pageSize Maximum number of tasks on the page
+     * @return The requested page of pending tasks
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    @FlushQueuedWrites
+    @Transactional(readOnly = true)
+    public CursorPage<TaskSummary> getPendingTasksPage(Long userId, String cursor, int pageSize) {
+        return toPage(taskRepository.findSummariesByUserIdAndCompletedOrderByDueDateAscIdAsc(userId, false, TaskCursor.decode(cursor), Limit.of(pageSize)));
+    }
+
+    /**
+     * Retrieves one page of completed tasks ordered by due date.
+     *
+     * @param userId   ID of the user owning the tasks
+     * @param cursor   Continuation token from the previous page, or null for the first page
+     * @param pageSize Maximum number of tasks on the page
+     * @return The requested page of completed tasks
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    @FlushQueuedWrites
+    @Transactional(readOnly = true)
+    public CursorPage<TaskSummary> getCompletedTasksPage(Long userId, String cursor, int pageSize) {
+        return toPage(taskRepository.findSummariesByUserIdAndCompletedOrderByDueDateAscIdAsc(userId, true, TaskCursor.decode(cursor), Limit.of(pageSize)));
+    }
+
+    /**
+     * Retrieves one page of incomplete tasks due today.
+     *
+     * @param userId   ID of the user owning the tasks
+     * @param cursor   Continuation token from the previous page, or null for the first page
+     * @param pageSize Maximum number of tasks on the page
+     * @return The requested page of today's tasks
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    @FlushQueuedWrites
+    @Transactional(readOnly = true)
+    public CursorPage<TaskSummary> getTodayTasksPage(Long userId, String cursor, int pageSize) {
+        return toPage(taskRepository.findSummariesByUserIdAndCompletedFalseAndDueDateOrderByDueDateAscIdAsc(
+                userId, LocalDate.now(), TaskCursor.decode(cursor), Limit.of(pageSize)
+        ));
+    }
+
+    /**
+     * Retrieves the task counters of a user.
+     *
+     * @param userId ID of the user owning the tasks
+     * @return The task counters
+     */
+    @FlushQueuedWrites
+    public TaskCounts getCounts(Long userId) {
+        return taskCounterService.getCounts(userId);
+    }
+
+    /**
+     * Retrieves everything the dashboard displays: the task counters together
+     * with the pending and today's task lists.
+     *
+     * <p>Counters are maintained incrementally by {@link TaskCounterService} and
+     * the pending tasks come from a single filtered query; today's tasks are
+     * derived from the pending list instead of being queried again.</p>
+     *
+     * @param userId ID of the user owning the tasks
+     * @return Snapshot of the dashboard data
+     */
+    @FlushQueuedWrites
+    @Transactional(readOnly = true)
+    public DashboardSnapshot getDashboardSnapshot(Long userId) {
+        LocalDate today = LocalDate.now();
+        TaskCounts counts = taskCounterService.getCounts(userId);
+        List<TaskSummary> pendingTasks = counts.pending() == 0 ? List.of() : taskRepository.findSummariesByUserIdAndCompletedOrderByDueDateAsc(userId, false);
+        List<TaskSummary> todayTasks = pendingTasks.stream()
                 .filter(
-                        task -> task.getDueDate()
-                                .isEqual(LocalDate.now())
+                        task -> task.dueDate()
+                                .isEqual(today)
                 )
                 .toList();
+        return new DashboardSnapshot(counts, pendingTasks, todayTasks);
+    }
+
+    /**
+     * Applies a change to a single task, checked against the version the caller expects.
+     * Hibernate adds the version to the {@code WHERE} clause of the flushed update, which
+     * also catches writes committed after the task was read.
+     */
+    private Task modify(Long userId, Long id, Long expectedVersion, Consumer<Task> change) {
+        Task task = getTaskById(userId, id);
+        if (expectedVersion != null && !expectedVersion.equals(task.getVersion())) {
+            logger.warn("Task {} is at version {}, not at the expected version {}", id, task.getVersion(), expectedVersion);
+            throw new ObjectOptimisticLockingFailureException(Task.class, id);
+        }
+        TaskSnapshot before = TaskSnapshot.of(task);
+        change.accept(task);
+        if (before.equals(TaskSnapshot.of(task))) {
+            return task;
+        }
+        Task savedTask;
+        try {
+            savedTask = taskRepository.saveAndFlush(task);
+        } catch (DataIntegrityViolationException exception) {
+            logger.error("Task with title '{}' already exists", task.getTitle());
+            throw new ResourceAlreadyExistsException("Task with title '" + task.getTitle() + "' already exists");
+        }
+        publish(List.of(TaskChange.updated(before, TaskSnapshot.of(savedTask))));
+        return savedTask;
+    }
+
+    /**
+     * Reads the fields of a merge patch into their Java values and validates them
+     * against the constraints of the corresponding task properties.
+     */
+    private Map<String, Object> readPatch(JsonNode patch) {
+        if (patch == null || !patch.isObject()) {
+            throw new IllegalArgumentException("A task patch must be a JSON object");
+        }
+        Map<String, Object> changes = new LinkedHashMap<>();
+        patch.fields().forEachRemaining(field -> changes.put(field.getKey(), readPatchValue(field.getKey(), field.getValue())));
+        Set<ConstraintViolation<Task>> violations = new HashSet<>();
+        changes.forEach((field, value) -> violations.addAll(validator.validateValue(Task.class, field, value)));
+        if (!violations.isEmpty()) {
+            throw new ConstraintViolationException(violations);
+        }
+        return changes;
+    }
+
+    private static Object readPatchValue(String field, JsonNode value) {
+        return switch (field) {
+            case "title", "description" -> {
+                if (!value.isNull() && !value.isTextual()) {
+                    throw new IllegalArgumentException("Task field '" + field + "' must be a string");
+                }
+                yield value.textValue();
+            }
+            case "completed" -> {
+                if (!value.isBoolean()) {
+                    throw new IllegalArgumentException("Task field 'completed' must be a boolean");
+                }
+                yield value.booleanValue();
+            }
+            case "dueDate" -> {
+                if (value.isNull()) {
+                    yield null;
+                }
+                try {
+                    yield LocalDate.parse(value.asText());
+                } catch (DateTimeParseException exception) {
+                    throw new IllegalArgumentException("Task field 'dueDate' must be an ISO date", exception);
+                }
+            }
+            default -> throw new IllegalArgumentException("Task field '" + field + "' cannot be patched");
+        };
+    }
+
+    private CursorPage<TaskSummary> toPage(Window<TaskSummary> window) {
+        List<TaskSummary> tasks = window.getContent();
+        String nextCursor = window.hasNext() && !tasks.isEmpty() ? TaskCursor.encode(tasks.getLast()) : null;
+        return new CursorPage<>(tasks, nextCursor);
+    }
+
+    /**
+     * Runs a bulk statement over the ids in chunks, so no statement binds more than
+     * {@value #BULK_CHUNK_SIZE} ids, and returns the total number of affected rows.
+     */
+    private static int inChunks(List<Long> ids, ToIntFunction<List<Long>> statement) {
+        int affected = 0;
+        for (int from = 0; from < ids.size(); from += BULK_CHUNK_SIZE) {
+            affected += statement.applyAsInt(ids.subList(from, Math.min(from + BULK_CHUNK_SIZE, ids.size())));
+        }
+        return affected;
+    }
+
+    private void publish(List<TaskChange> changes) {
+        if (!changes.isEmpty()) {
+            eventPublisher.publishEvent(new TaskChangedEvent(changes));
+        }
+    }
+
+    private void publish(int affected, TasksBulkChangedEvent event) {
+        if (affected > 0) {
+            eventPublisher.publishEvent(event);
+        }
     }
 }
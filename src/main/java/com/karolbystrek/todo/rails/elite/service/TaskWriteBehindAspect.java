@@ -0,0 +1,37 @@
+package com.karolbystrek.todo.rails.elite.service;
+
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.annotation.Before;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Writes the queued commands of a user before a method marked with {@link FlushQueuedWrites}
+ * is called for that user, so its reads see them and its writes are applied after them.
+ * Other calls, such as adding or deleting tasks, leave the queue alone.
+ *
+ * <p>Runs ahead of the transaction advice: the queued commands have to be committed
+ * before a read-only transaction starts, possibly on a replica. It still has to run
+ * after the interceptor exposing the invocation, which binds the user id argument.</p>
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+@ConditionalOnProperty(prefix = "todo.tasks.write-behind", name = "enabled", havingValue = "true")
+public class TaskWriteBehindAspect {
+
+    private final TaskWriteBehindService taskWriteBehindService;
+
+    @Autowired
+    public TaskWriteBehindAspect(TaskWriteBehindService taskWriteBehindService) {
+        this.taskWriteBehindService = taskWriteBehindService;
+    }
+
+    @Before("@annotation(com.karolbystrek.todo.rails.elite.service.FlushQueuedWrites) && args(userId, ..)")
+    public void flushPendingWrites(Long userId) {
+        taskWriteBehindService.flush(userId);
+    }
+}
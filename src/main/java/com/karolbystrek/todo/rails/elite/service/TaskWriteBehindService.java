@@ -0,0 +1,273 @@
+package com.karolbystrek.todo.rails.elite.service;
+
+import com.karolbystrek.todo.rails.elite.config.WriteBehindProperties;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Queues task completions and reschedules in memory and writes them in batches.
+ *
+ * <p>Commands on the same task collapse into one pending write, which is applied
+ * with the set-based updates of {@link TaskService} once enough tasks are queued or
+ * the maximum delay has passed. A user's queue is also flushed before the reads of that
+ * user's tasks and the writes that could conflict with it, marked with
+ * {@link FlushQueuedWrites}, so reads see the queued commands. Queued commands survive a
+ * graceful shutdown, but a crash loses up to the maximum delay of them.</p>
+ *
+ * <p>Each user's commands are written in a transaction of their own, so a failing write
+ * does not hold back other users. Failed commands stay queued for the next flush until
+ * they have failed the maximum number of attempts in a row, then they are dropped and logged.</p>
+ *
+ * <p>When write-behind is disabled, commands are applied right away.</p>
+ */
+@Service
+public class TaskWriteBehindService {
+
+    private final Logger logger;
+    private final ObjectProvider<TaskService> taskService;
+    private final TaskDataVersionService taskDataVersionService;
+    private final TransactionTemplate transactionTemplate;
+    private final WriteBehindProperties properties;
+    private final ConcurrentMap<Long, PendingWrites> pendingWrites;
+    private final AtomicInteger pendingCount;
+    private final AtomicBoolean flushRequested;
+    private final ScheduledExecutorService flusher;
+
+    @Autowired
+    public TaskWriteBehindService(
+            ObjectProvider<TaskService> taskService,
+            TaskDataVersionService taskDataVersionService,
+            TransactionTemplate transactionTemplate,
+            WriteBehindProperties properties
+    ) {
+        this.logger = LoggerFactory.getLogger(TaskWriteBehindService.class);
+        this.taskService = taskService;
+        this.taskDataVersionService = taskDataVersionService;
+        this.transactionTemplate = transactionTemplate;
+        this.properties = properties;
+        this.pendingWrites = new ConcurrentHashMap<>();
+        this.pendingCount = new AtomicInteger();
+        this.flushRequested = new AtomicBoolean();
+        if (properties.enabled()) {
+            long delay = properties.maxDelay().toMillis();
+            this.flusher = Executors.newSingleThreadScheduledExecutor(
+                    Thread.ofPlatform().name("task-write-behind").daemon().factory()
+            );
+            this.flusher.scheduleWithFixedDelay(this::flushAll, delay, delay, TimeUnit.MILLISECONDS);
+        } else {
+            this.flusher = null;
+        }
+    }
+
+    /**
+     * Tells whether commands are queued instead of written right away.
+     *
+     * @return True if write-behind is enabled
+     */
+    public boolean isEnabled() {
+        return flusher != null;
+    }
+
+    /**
+     * Returns the number of tasks with a queued write.
+     *
+     * @return Number of queued tasks of all users
+     */
+    public int getPendingCount() {
+        return pendingCount.get();
+    }
+
+    /**
+     * Marks the given tasks of a user as completed.
+     *
+     * @param userId ID of the user owning the tasks
+     * @param ids    IDs of the tasks to complete, IDs of other users' tasks are ignored
+     */
+    public void completeTasks(Long userId, Collection<Long> ids) {
+        if (!isEnabled()) {
+            taskService.getObject().completeTasks(userId, ids);
+            return;
+        }
+        enqueue(userId, ids, new PendingWrite(true, null));
+    }
+
+    /**
+     * Moves the given tasks of a user to a new due date.
+     *
+     * @param userId  ID of the user owning the tasks
+     * @param ids     IDs of the tasks to reschedule, IDs of other users' tasks are ignored
+     * @param dueDate The new due date
+     */
+    public void rescheduleTasks(Long userId, Collection<Long> ids, LocalDate dueDate) {
+        if (!isEnabled()) {
+            taskService.getObject().rescheduleTasks(userId, ids, dueDate);
+            return;
+        }
+        enqueue(userId, ids, new PendingWrite(false, dueDate));
+    }
+
+    /**
+     * Writes the queued commands of a user and waits for them to be committed.
+     *
+     * @param userId ID of the user owning the tasks
+     * @return Number of written tasks
+     * @throws RuntimeException if the write fails, the commands stay queued unless they ran out of attempts
+     */
+    public int flush(Long userId) {
+        PendingWrites pending = pendingWrites.get(userId);
+        if (pending == null) {
+            return 0;
+        }
+        pending.lock.lock();
+        try {
+            // Empty when called again from the TaskService calls of this flush
+            if (pending.tasks.isEmpty()) {
+                return 0;
+            }
+            Map<Long, PendingWrite> drained = new LinkedHashMap<>(pending.tasks);
+            pending.tasks.clear();
+            try {
+                transactionTemplate.executeWithoutResult(status -> apply(userId, drained));
+            } catch (RuntimeException exception) {
+                if (++pending.failedAttempts < properties.maxAttempts()) {
+                    pending.tasks.putAll(drained);
+                } else {
+                    logger.error("Dropped queued writes of user {} after {} failed attempts: {}",
+                            userId, pending.failedAttempts, drained);
+                    forget(userId, pending, drained.size());
+                }
+                throw exception;
+            }
+            forget(userId, pending, drained.size());
+            return drained.size();
+        } finally {
+            pending.lock.unlock();
+        }
+    }
+
+    /**
+     * Writes the queued commands of all users, each user in a transaction of its own.
+     *
+     * @return Number of written tasks
+     */
+    public int flushAll() {
+        int flushed = 0;
+        for (Long userId : pendingWrites.keySet()) {
+            try {
+                flushed += flush(userId);
+            } catch (RuntimeException exception) {
+                logger.error("Failed to flush queued writes of user {}", userId, exception);
+            }
+        }
+        return flushed;
+    }
+
+    /**
+     * Stops the periodic flush and writes everything still queued.
+     */
+    @PreDestroy
+    public void drain() throws InterruptedException {
+        if (flusher == null) {
+            return;
+        }
+        flusher.shutdown();
+        if (!flusher.awaitTermination(properties.maxDelay().toMillis() * 10, TimeUnit.MILLISECONDS)) {
+            logger.warn("Write-behind flush did not stop in time");
+        }
+        logger.info("Drained {} queued task writes", flushAll());
+    }
+
+    private void enqueue(Long userId, Collection<Long> ids, PendingWrite write) {
+        while (true) {
+            PendingWrites pending = pendingWrites.computeIfAbsent(userId, id -> new PendingWrites());
+            pending.lock.lock();
+            try {
+                if (pendingWrites.get(userId) != pending) {
+                    // Flushed and removed since it was looked up
+                    continue;
+                }
+                for (Long id : ids) {
+                    PendingWrite previous = pending.tasks.get(id);
+                    pending.tasks.put(id, previous == null ? write : previous.then(write));
+                    if (previous == null) {
+                        pendingCount.incrementAndGet();
+                    }
+                }
+            } finally {
+                pending.lock.unlock();
+            }
+            break;
+        }
+        // Conditional requests must not be answered from before the queued change
+        taskDataVersionService.invalidate(userId);
+        if (pendingCount.get() >= properties.maxBatchSize() && flushRequested.compareAndSet(false, true)) {
+            flusher.execute(() -> {
+                flushRequested.set(false);
+                flushAll();
+            });
+        }
+    }
+
+    /**
+     * Removes the user's drained commands from the queue, called with the user's lock held.
+     */
+    private void forget(Long userId, PendingWrites pending, int drained) {
+        pendingCount.addAndGet(-drained);
+        pending.failedAttempts = 0;
+        pendingWrites.remove(userId, pending);
+    }
+
+    private void apply(Long userId, Map<Long, PendingWrite> writes) {
+        TaskService tasks = taskService.getObject();
+        List<Long> completed = new ArrayList<>();
+        Map<LocalDate, List<Long>> rescheduled = new LinkedHashMap<>();
+        writes.forEach((id, write) -> {
+            if (write.complete()) {
+                completed.add(id);
+            }
+            if (write.dueDate() != null) {
+                rescheduled.computeIfAbsent(write.dueDate(), date -> new ArrayList<>()).add(id);
+            }
+        });
+        if (!completed.isEmpty()) {
+            tasks.completeTasks(userId, completed);
+        }
+        rescheduled.forEach((dueDate, ids) -> tasks.rescheduleTasks(userId, ids, dueDate));
+    }
+
+    private static final class PendingWrites {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Map<Long, PendingWrite> tasks = new LinkedHashMap<>();
+        private int failedAttempts;
+    }
+
+    /**
+     * Collapsed commands on one task: whether it gets completed and its latest new due date.
+     */
+    private record PendingWrite(boolean complete, LocalDate dueDate) {
+
+        PendingWrite then(PendingWrite next) {
+            return new PendingWrite(complete || next.complete, next.dueDate != null ? next.dueDate : dueDate);
+        }
+    }
+}
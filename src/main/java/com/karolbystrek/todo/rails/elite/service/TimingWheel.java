@@ -0,0 +1,191 @@
+package com.karolbystrek.todo.rails.elite.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A hierarchical timing wheel of timers that expire on a day.
+ *
+ * <p>Level {@code n} has {@value #SLOTS} slots, each covering {@code 64^n} days, so the
+ * {@value #LEVELS} levels span about 45,000 years; later timers wait in an overflow list.
+ * A timer goes into the lowest level whose slot is unambiguous from the current day and
+ * moves down a level each time the wheel below it wraps around, so adding, removing and
+ * expiring a timer take amortized constant time no matter how many timers are scheduled.</p>
+ *
+ * <p>Not thread-safe.</p>
+ *
+ * @param <K> Type of the keys identifying the timers
+ * @param <V> Type of the values handed out when a timer expires
+ */
+class TimingWheel<K, V> {
+
+    static final int LEVELS = 4;
+    static final int SLOTS = 64;
+
+    private static final int SLOT_BITS = Integer.numberOfTrailingZeros(SLOTS);
+
+    private final int levelCount;
+    private final List<List<Map<K, Timer<V>>>> levels;
+    private final Map<K, Timer<V>> overflow;
+    private final Map<K, Map<K, Timer<V>>> slotsByKey;
+    private long currentDay;
+
+    /**
+     * Creates an empty wheel.
+     *
+     * @param currentDay The current day, as an epoch day
+     */
+    TimingWheel(long currentDay) {
+        this(currentDay, LEVELS);
+    }
+
+    /**
+     * Creates an empty wheel with fewer levels, whose overflow list is reached sooner.
+     *
+     * @param currentDay The current day, as an epoch day
+     * @param levelCount Number of levels, up to {@value #LEVELS}
+     */
+    TimingWheel(long currentDay, int levelCount) {
+        if (levelCount < 1 || levelCount > LEVELS) {
+            throw new IllegalArgumentException("A timing wheel has 1 to " + LEVELS + " levels: " + levelCount);
+        }
+        this.levelCount = levelCount;
+        this.levels = new ArrayList<>(levelCount);
+        for (int level = 0; level < levelCount; level++) {
+            List<Map<K, Timer<V>>> slots = new ArrayList<>(SLOTS);
+            for (int slot = 0; slot < SLOTS; slot++) {
+                slots.add(new HashMap<>());
+            }
+            this.levels.add(slots);
+        }
+        this.overflow = new HashMap<>();
+        this.slotsByKey = new HashMap<>();
+        this.currentDay = currentDay;
+    }
+
+    /**
+     * Returns the day the wheel has advanced to.
+     *
+     * @return The current day, as an epoch day
+     */
+    long getCurrentDay() {
+        return currentDay;
+    }
+
+    /**
+     * Returns the number of scheduled timers.
+     *
+     * @return Number of timers that have not expired or been removed
+     */
+    int size() {
+        return slotsByKey.size();
+    }
+
+    /**
+     * Schedules a timer, replacing any timer with the same key.
+     *
+     * @param key   Key identifying the timer
+     * @param value Value handed out when the timer expires
+     * @param day   The day the timer expires on, as an epoch day
+     * @return False if the day is not after the current day, in which case no timer is scheduled
+     */
+    boolean add(K key, V value, long day) {
+        remove(key);
+        if (day <= currentDay) {
+            return false;
+        }
+        insert(key, new Timer<>(value, day));
+        return true;
+    }
+
+    /**
+     * Looks up a scheduled timer.
+     *
+     * @param key Key identifying the timer
+     * @return The value of the timer, or null if no timer with the key is scheduled
+     */
+    V get(K key) {
+        Map<K, Timer<V>> slot = slotsByKey.get(key);
+        return slot == null ? null : slot.get(key).value();
+    }
+
+    /**
+     * Cancels a timer.
+     *
+     * @param key Key identifying the timer
+     * @return The value of the cancelled timer, or null if no timer with the key was scheduled
+     */
+    V remove(K key) {
+        Map<K, Timer<V>> slot = slotsByKey.remove(key);
+        return slot == null ? null : slot.remove(key).value();
+    }
+
+    /**
+     * Removes all timers.
+     */
+    void clear() {
+        levels.forEach(slots -> slots.forEach(Map::clear));
+        overflow.clear();
+        slotsByKey.clear();
+    }
+
+    /**
+     * Advances the wheel to the next day.
+     *
+     * @return Values of the timers expiring on the new current day
+     */
+    List<V> tick() {
+        currentDay++;
+        if ((currentDay & mask(levelCount)) == 0) {
+            cascade(overflow);
+        }
+        for (int level = levelCount - 1; level > 0; level--) {
+            if ((currentDay & mask(level)) == 0) {
+                cascade(levels.get(level).get(slotIndex(currentDay, level)));
+            }
+        }
+        Map<K, Timer<V>> slot = levels.get(0).get(slotIndex(currentDay, 0));
+        List<V> expired = new ArrayList<>(slot.size());
+        slot.forEach((key, timer) -> {
+            slotsByKey.remove(key);
+            expired.add(timer.value());
+        });
+        slot.clear();
+        return expired;
+    }
+
+    private void cascade(Map<K, Timer<V>> slot) {
+        if (slot.isEmpty()) {
+            return;
+        }
+        List<Map.Entry<K, Timer<V>>> timers = new ArrayList<>(slot.entrySet());
+        slot.clear();
+        timers.forEach(entry -> insert(entry.getKey(), entry.getValue()));
+    }
+
+    private void insert(K key, Timer<V> timer) {
+        Map<K, Timer<V>> slot = overflow;
+        for (int level = 0; level < levelCount; level++) {
+            // The slot is unambiguous once the timer shares all higher digits with the current day
+            if ((timer.day() >> ((level + 1) * SLOT_BITS)) == (currentDay >> ((level + 1) * SLOT_BITS))) {
+                slot = levels.get(level).get(slotIndex(timer.day(), level));
+                break;
+            }
+        }
+        slot.put(key, timer);
+        slotsByKey.put(key, slot);
+    }
+
+    private static int slotIndex(long day, int level) {
+        return (int) ((day >> (level * SLOT_BITS)) & (SLOTS - 1));
+    }
+
+    private static long mask(int level) {
+        return (1L << (level * SLOT_BITS)) - 1;
+    }
+
+    private record Timer<V>(V value, long day) {
+    }
+}
@@ -4,27 +4,47 @@ import com.karolbystrek.todo.rails.elite.exceptions.ResourceAlreadyExistsExcepti
 import com.karolbystrek.todo.rails.elite.exceptions.ResourceNotFoundException;
 import com.karolbystrek.todo.rails.elite.model.User;
 import com.karolbystrek.todo.rails.elite.repository.UserRepository;
+import com.karolbystrek.todo.rails.elite.service.security.UserDetailsCache;
+import io.micrometer.core.annotation.Timed;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.util.List;
+import java.util.Optional;
 
 @Service
+@Timed("todo.service")
 public class UserService {
     private final UserRepository userRepository;
     private final BCryptPasswordEncoder passwordEncoder;
+    private final UserDetailsCache userDetailsCache;
+    private final TaskService taskService;
+    private final TaskCounterService taskCounterService;
 
     @Autowired
-    public UserService(UserRepository userRepository, BCryptPasswordEncoder passwordEncoder) {
+    public UserService(
+            UserRepository userRepository,
+            BCryptPasswordEncoder passwordEncoder,
+            UserDetailsCache userDetailsCache,
+            TaskService taskService,
+            TaskCounterService taskCounterService
+    ) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
+        this.userDetailsCache = userDetailsCache;
+        this.taskService = taskService;
+        this.taskCounterService = taskCounterService;
     }
 
-    // add a user
+    // add a user together with their task counters
+    @Transactional
     public User addUser(@NotNull(message = "User cannot be null") User user) throws ResourceAlreadyExistsException {
         if (userRepository.findByUsername(user.getUsername()).isPresent()) {
             throw new ResourceAlreadyExistsException("User with username '" + user.getUsername() + "' already exists");
@@ -36,10 +56,13 @@ public class UserService {
 
         String password = user.getPassword();
         user.setPassword(passwordEncoder.encode(password));
-        return userRepository.save(user);
+        User savedUser = userRepository.save(user);
+        taskCounterService.createCounters(savedUser.getId());
+        return savedUser;
     }
 
     // get a user by username
+    @Transactional(readOnly = true)
     public User getUserByUsername(
             @NotNull(message = "Username cannot be null")
             @NotBlank(message = "Username cannot be blank")
@@ -52,6 +75,7 @@ public class UserService {
     }
 
     // get a user by email
+    @Transactional(readOnly = true)
     public User getUserByEmail(
             @NotNull(message = "Email cannot be null")
             @NotBlank(message = "Email cannot be blank")
@@ -65,6 +89,7 @@ public class UserService {
     }
 
     // get a user by id
+    @Transactional(readOnly = true)
     public User getUserById(
             @NotNull(message = "Id cannot be null")
             Long id
@@ -80,21 +105,43 @@ public class UserService {
         if (userRepository.findByUsername(user.getUsername()).isEmpty()) {
             throw new ResourceNotFoundException("User not found with username: " + user.getUsername());
         }
-        return userRepository.save(user);
+        User savedUser = userRepository.save(user);
+        evictAfterCommit(user.getUsername());
+        return savedUser;
     }
 
-    // delete a user
+    // delete a user together with their tasks and task counters
+    @Transactional
     public void deleteUser(@NotNull(message = "User cannot be null") User user) throws ResourceNotFoundException {
-        if (userRepository.findByUsername(user.getUsername()).isEmpty()) {
+        Optional<User> existingUser = userRepository.findByUsername(user.getUsername());
+        if (existingUser.isEmpty()) {
             throw new ResourceNotFoundException("User not found with username: " + user.getUsername());
         }
-        userRepository.delete(user);
+        taskService.deleteAllTasks(existingUser.get().getId());
+        taskCounterService.deleteCounters(existingUser.get().getId());
+        userRepository.delete(existingUser.get());
+        evictAfterCommit(user.getUsername());
     }
 
+    @Transactional(readOnly = true)
     public List<User> getAllUsers() throws ResourceNotFoundException {
         if (userRepository.findAll().isEmpty()) {
             throw new ResourceNotFoundException("No users found");
         }
         return userRepository.findAll();
     }
+
+    // evict cached user details once the change is committed, so a concurrent login cannot cache the old row again
+    private void evictAfterCommit(String username) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            userDetailsCache.evict(username);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                userDetailsCache.evict(username);
+            }
+        });
+    }
 }
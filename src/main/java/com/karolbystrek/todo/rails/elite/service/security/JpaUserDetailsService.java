@@ -12,14 +12,20 @@ import org.springframework.stereotype.Service;
 public class JpaUserDetailsService implements UserDetailsService {
 
     private final UserRepository userRepository;
+    private final UserDetailsCache userDetailsCache;
 
     @Autowired
-    public JpaUserDetailsService(UserRepository userRepository) {
+    public JpaUserDetailsService(UserRepository userRepository, UserDetailsCache userDetailsCache) {
         this.userRepository = userRepository;
+        this.userDetailsCache = userDetailsCache;
     }
 
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
+        return userDetailsCache.get(username, this::loadFromRepository);
+    }
+
+    private UserDetails loadFromRepository(String username) {
         return userRepository.findByUsername(username)
                 .map(SecurityUser::new)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found: " + username));
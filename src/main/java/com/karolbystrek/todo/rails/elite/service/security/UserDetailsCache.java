@@ -0,0 +1,59 @@
+package com.karolbystrek.todo.rails.elite.service.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.karolbystrek.todo.rails.elite.config.UserCacheProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Function;
+
+/**
+ * Bounded, time-limited cache of {@link UserDetails} keyed by username.
+ *
+ * <p>Entries expire after the configured time to live, so changes made outside
+ * of {@code UserService} are picked up eventually; changes made through it are
+ * evicted immediately.</p>
+ */
+@Component
+public class UserDetailsCache {
+
+    private final Cache<String, UserDetails> cache;
+
+    @Autowired
+    public UserDetailsCache(UserCacheProperties properties) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.maximumSize())
+                .expireAfterWrite(properties.timeToLive())
+                .build();
+    }
+
+    /**
+     * Returns the cached user details, loading and caching them on a miss.
+     * Failed loads are not cached.
+     *
+     * @param username The username to look up
+     * @param loader   Loads the user details on a cache miss
+     * @return The user details
+     */
+    public UserDetails get(String username, Function<String, UserDetails> loader) {
+        return cache.get(username, loader);
+    }
+
+    /**
+     * Removes the cached details of a user.
+     *
+     * @param username The username whose entry should be removed
+     */
+    public void evict(String username) {
+        cache.invalidate(username);
+    }
+
+    /**
+     * Removes all cached user details.
+     */
+    public void evictAll() {
+        cache.invalidateAll();
+    }
+}
@@ -6,6 +6,10 @@ const sidebarToggle = document.querySelector(".sidebar-toggle")
 
 const searchButton = document.querySelector(".search-box")
 
+const searchInput = document.querySelector(".search-box input")
+
+const searchResults = document.querySelector(".search-results")
+
 const darkModeSwitch = document.querySelector(".dark-mode-toggle-switch")
 
 const darkModeText = document.querySelector(".mode-text")
@@ -18,7 +22,126 @@ searchButton.addEventListener("click", () => {
     sidebar.classList.remove("close")
 })
 
+let searchTimeout
+let latestSearch = 0
+
+searchInput.addEventListener("input", () => {
+    clearTimeout(searchTimeout)
+    searchTimeout = setTimeout(searchTasks, 200)
+})
+
+async function searchTasks() {
+    const query = searchInput.value.trim()
+    const search = ++latestSearch
+    if (!query) {
+        searchResults.replaceChildren()
+        return
+    }
+    const response = await fetch(`/api/tasks/search?size=10&q=${encodeURIComponent(query)}`)
+    if (!response.ok || search !== latestSearch) {
+        return
+    }
+    const page = await response.json()
+    searchResults.replaceChildren(...page.items.map(({task}) => {
+        const item = document.createElement("li")
+        const link = document.createElement("a")
+        const icon = document.createElement("i")
+        const title = document.createElement("span")
+        item.className = "nav-link"
+        link.href = `/api/tasks/update/${task.id}`
+        icon.className = task.completed ? "bx bx-check-circle icon" : "bx bx-circle icon"
+        title.className = "text nev-text"
+        title.textContent = task.title
+        link.append(icon, title)
+        item.append(link)
+        return item
+    }))
+}
+
 darkModeSwitch.addEventListener("click", () => {
     const isDark = body.classList.toggle("dark");
     darkModeText.innerText = isDark ? "Light Mode" : "Dark Mode";
-});
\ No newline at end of file
+});
+const taskTableBody = document.querySelector("#table-body")
+
+const taskRowTemplate = document.querySelector("#task-row-template")
+
+const taskCounters = {
+    pendingToday: document.querySelector("#tasks-pending-today"),
+    pending: document.querySelector("#tasks-pending-total"),
+    completed: document.querySelector("#tasks-completed-total")
+}
+
+let latestTaskVersion = -1
+
+if (taskTableBody && taskRowTemplate) {
+    // Complete and delete without reloading the dashboard, the pushed notification updates it
+    taskTableBody.addEventListener("submit", async (event) => {
+        const form = event.target
+        const isDelete = form.classList.contains("delete-task-form")
+        if (!isDelete && !form.classList.contains("complete-task-form")) {
+            return
+        }
+        event.preventDefault()
+        const response = await fetch(form.action, {
+            method: isDelete ? "DELETE" : "POST",
+            headers: {"X-Requested-With": "fetch"},
+            redirect: "manual"
+        })
+        if (response.type !== "opaqueredirect" && !response.ok) {
+            form.submit()
+        }
+    })
+
+    const taskEvents = new EventSource("/api/tasks/events")
+    taskEvents.addEventListener("tasks", (event) => applyTaskNotification(JSON.parse(event.data)))
+    taskEvents.addEventListener("reminders", (event) => applyReminderNotification(JSON.parse(event.data)))
+}
+
+function applyReminderNotification(notification) {
+    updateCounters(notification)
+}
+
+function applyTaskNotification(notification) {
+    if (!updateCounters(notification)) {
+        return
+    }
+    if (notification.changesOmitted) {
+        window.location.reload()
+        return
+    }
+    notification.removedIds.forEach((id) => taskTableBody.querySelector(`tr[data-task-id="${id}"]`)?.remove())
+    notification.changes.forEach(({before, after}) => {
+        const id = (after ?? before).id
+        taskTableBody.querySelector(`tr[data-task-id="${id}"]`)?.remove()
+        if (after && !after.completed) {
+            insertTaskRow(after)
+        }
+    })
+}
+
+// Shows the counts of a notification unless a newer one was already shown, and tells whether it was shown
+function updateCounters(notification) {
+    if (notification.version < latestTaskVersion) {
+        return false
+    }
+    latestTaskVersion = notification.version
+    taskCounters.pendingToday.textContent = notification.counts.pendingToday
+    taskCounters.pending.textContent = notification.counts.pending
+    taskCounters.completed.textContent = notification.counts.completed
+    return true
+}
+
+function insertTaskRow(task) {
+    const row = taskRowTemplate.content.firstElementChild.cloneNode(true)
+    row.dataset.taskId = task.id
+    row.dataset.dueDate = task.dueDate
+    row.querySelector(".task-title").textContent = task.title
+    row.querySelector(".task-status").textContent = "pending"
+    row.querySelector(".task-due-date").textContent = task.dueDate
+    row.querySelector(".edit-task-form").action = `/api/tasks/update/${task.id}`
+    row.querySelector(".complete-task-form").action = `/api/tasks/complete/${task.id}`
+    row.querySelector(".delete-task-form").action = `/api/tasks/delete/${task.id}`
+    const next = [...taskTableBody.rows].find((other) => other.dataset.dueDate > task.dueDate)
+    taskTableBody.insertBefore(row, next ?? null)
+}
@@ -0,0 +1,75 @@
+package com.karolbystrek.todo.rails.elite.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class ConcurrencyLimitedDataSourceTest {
+    @Mock
+    private DataSource targetDataSource;
+
+    @Mock
+    private Connection targetConnection;
+
+    private ConcurrencyLimitedDataSource dataSource;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        MockitoAnnotations.openMocks(this);
+        when(targetDataSource.getConnection()).thenReturn(targetConnection);
+        dataSource = new ConcurrencyLimitedDataSource(targetDataSource, 2, Duration.ofMillis(50));
+    }
+
+    @Test
+    void getConnection_Failure_LimitReached() throws SQLException {
+        Connection first = dataSource.getConnection();
+        dataSource.getConnection();
+
+        assertEquals(2, dataSource.getActiveConnections());
+        assertThrows(SQLTransientConnectionException.class, () -> dataSource.getConnection());
+
+        first.close();
+        assertNotNull(dataSource.getConnection());
+        verify(targetDataSource, times(3)).getConnection();
+    }
+
+    @Test
+    void close_ReleasesPermitOnlyOnce() throws SQLException {
+        Connection connection = dataSource.getConnection();
+
+        connection.close();
+        connection.close();
+
+        assertEquals(0, dataSource.getActiveConnections());
+        verify(targetConnection, times(2)).close();
+    }
+
+    @Test
+    void getConnection_Failure_TargetThrowsReleasesPermit() throws SQLException {
+        when(targetDataSource.getConnection()).thenThrow(new SQLException("Pool exhausted"));
+
+        assertThrows(SQLException.class, () -> dataSource.getConnection());
+
+        assertEquals(0, dataSource.getActiveConnections());
+    }
+
+    @Test
+    void connectionProxy_DelegatesOtherMethods() throws SQLException {
+        when(targetConnection.getAutoCommit()).thenReturn(true);
+        Connection connection = dataSource.getConnection();
+
+        assertTrue(connection.getAutoCommit());
+        assertEquals(connection, connection);
+        assertNotEquals(targetConnection, connection);
+    }
+}
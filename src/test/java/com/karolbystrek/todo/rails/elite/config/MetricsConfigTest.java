@@ -0,0 +1,66 @@
+package com.karolbystrek.todo.rails.elite.config;
+
+import com.karolbystrek.todo.rails.elite.model.User;
+import com.karolbystrek.todo.rails.elite.model.security.SecurityUser;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureObservability(tracing = false)
+public class MetricsConfigTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void prometheusEndpoint_ExposesRequestServiceSqlPoolAndJvmMetrics() throws Exception {
+        User owner = new User("metrics", "password", "metrics@example.com", "USER");
+        owner.setId(1L);
+        mockMvc.perform(get("/api/tasks/all").with(user(new SecurityUser(owner)))).andExpect(status().isOk());
+
+        String metrics = mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+
+        assertTrue(metrics.contains("http_server_requests_seconds_bucket{"), "request histogram");
+        assertTrue(metrics.contains("uri=\"/api/tasks/all\""), "request uri tag");
+        assertTrue(metrics.contains("todo_service_seconds_bucket{"), "service timer histogram");
+        assertTrue(metrics.contains("class=\"com.karolbystrek.todo.rails.elite.service.TaskService\""), "service class tag");
+        assertTrue(metrics.contains("todo_http_sql_statements_count{"), "statements per request");
+        assertTrue(metrics.contains("hibernate_query_executions_total"), "hibernate statistics");
+        assertTrue(metrics.contains("hibernate_second_level_cache_requests_total"), "hibernate cache statistics");
+        assertTrue(metrics.contains("hikaricp_connections_active"), "connection pool gauges");
+        assertTrue(metrics.contains("todo_datasource_limiter_active"), "concurrency limiter gauges");
+        assertTrue(metrics.contains("jvm_gc_"), "garbage collection metrics");
+    }
+
+    @Test
+    void prometheusEndpoint_Failure_RemoteRequest() throws Exception {
+        mockMvc.perform(get("/actuator/prometheus").with(request -> {
+                    request.setRemoteAddr("10.0.0.1");
+                    return request;
+                }))
+                .andExpect(status().is3xxRedirection());
+    }
+
+    @Test
+    void healthEndpoint_IsPublic() throws Exception {
+        mockMvc.perform(get("/actuator/health").with(request -> {
+                    request.setRemoteAddr("10.0.0.1");
+                    return request;
+                }))
+                .andExpect(status().isOk());
+    }
+}
@@ -0,0 +1,120 @@
+package com.karolbystrek.todo.rails.elite.config;
+
+import com.karolbystrek.todo.rails.elite.model.User;
+import com.karolbystrek.todo.rails.elite.model.security.SecurityUser;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReplicaRoutingDataSourceTest {
+
+    private EmbeddedDatabase primary;
+    private EmbeddedDatabase replica;
+    private ReadYourWritesTracker tracker;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate readWriteTransaction;
+    private TransactionTemplate readOnlyTransaction;
+
+    @BeforeEach
+    void setUp() {
+        primary = database("primary");
+        replica = database("replica");
+        tracker = new ReadYourWritesTracker(Duration.ofMinutes(1));
+        ReplicaRoutingDataSource dataSource = new ReplicaRoutingDataSource(primary, List.of(replica), tracker);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        readWriteTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+        primary.shutdown();
+        replica.shutdown();
+    }
+
+    @Test
+    void readOnlyTransaction_ReadsFromReplica() {
+        signIn(1L);
+
+        assertEquals("replica", readOnlyTransaction.execute(status -> server()));
+    }
+
+    @Test
+    void readWriteTransaction_ReadsFromPrimary() {
+        signIn(1L);
+
+        assertEquals("primary", readWriteTransaction.execute(status -> server()));
+        assertEquals("primary", server());
+    }
+
+    @Test
+    void readOnlyTransaction_AnonymousReadsFromPrimary() {
+        assertEquals("primary", readOnlyTransaction.execute(status -> server()));
+    }
+
+    @Test
+    void readOnlyTransaction_AfterOwnWriteReadsFromPrimary() {
+        signIn(1L);
+        readWriteTransaction.executeWithoutResult(status -> jdbcTemplate.update("UPDATE server SET name = 'written'"));
+
+        assertTrue(tracker.isPinned(1L));
+        assertEquals("written", readOnlyTransaction.execute(status -> server()));
+
+        signIn(2L);
+
+        assertEquals("replica", readOnlyTransaction.execute(status -> server()));
+    }
+
+    @Test
+    void readWriteTransaction_Failure_RollbackDoesNotPin() {
+        signIn(1L);
+
+        assertThrows(IllegalStateException.class, () -> readWriteTransaction.executeWithoutResult(status -> {
+            jdbcTemplate.update("UPDATE server SET name = 'written'");
+            throw new IllegalStateException("Rolled back");
+        }));
+
+        assertFalse(tracker.isPinned(1L));
+        assertEquals("replica", readOnlyTransaction.execute(status -> server()));
+    }
+
+    private String server() {
+        return jdbcTemplate.queryForObject("SELECT name FROM server", String.class);
+    }
+
+    private static void signIn(Long userId) {
+        User user = new User("user" + userId, "password", "user" + userId + "@example.com", "USER");
+        user.setId(userId);
+        SecurityUser principal = new SecurityUser(user);
+        SecurityContextHolder.getContext().setAuthentication(
+                UsernamePasswordAuthenticationToken.authenticated(principal, null, principal.getAuthorities())
+        );
+    }
+
+    private static EmbeddedDatabase database(String name) {
+        EmbeddedDatabase database = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true)
+                .build();
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(database);
+        jdbcTemplate.execute("CREATE TABLE server (name VARCHAR(20))");
+        jdbcTemplate.update("INSERT INTO server (name) VALUES (?)", name);
+        return database;
+    }
+}
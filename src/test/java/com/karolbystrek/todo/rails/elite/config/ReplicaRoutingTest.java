@@ -0,0 +1,113 @@
+package com.karolbystrek.todo.rails.elite.config;
+
+import com.karolbystrek.todo.rails.elite.model.Task;
+import com.karolbystrek.todo.rails.elite.model.TaskSummary;
+import com.karolbystrek.todo.rails.elite.model.User;
+import com.karolbystrek.todo.rails.elite.model.security.SecurityUser;
+import com.karolbystrek.todo.rails.elite.repository.UserRepository;
+import com.karolbystrek.todo.rails.elite.service.TaskCounterService;
+import com.karolbystrek.todo.rails.elite.service.TaskService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:routing-primary;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "todo.datasource.replicas.enabled=true",
+        "todo.datasource.replicas.urls=" + ReplicaRoutingTest.REPLICA_URL,
+        "todo.datasource.replicas.username=sa",
+        "todo.datasource.replicas.password=",
+        "todo.datasource.replicas.read-your-writes-window=1h"
+})
+public class ReplicaRoutingTest {
+
+    static final String REPLICA_URL = "jdbc:h2:mem:routing-replica;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TaskService taskService;
+
+    @Autowired
+    private TaskCounterService taskCounterService;
+
+    private User owner;
+
+    @BeforeEach
+    void setUp() {
+        owner = userRepository.findByUsername("routed").orElseGet(() -> {
+            User user = userRepository.save(new User("routed", "password", "routed@example.com", "USER"));
+            taskCounterService.createCounters(user.getId());
+            return user;
+        });
+        taskService.deleteAllTasks(owner.getId());
+        taskService.addTask(owner.getId(), new Task("Primary task", "Only the primary has this title.", false, LocalDate.now()));
+        replicate();
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void readOnlyTransaction_ReadsFromReplicaUntilOwnWrite() {
+        assertInstanceOf(JpaTransactionManager.class, transactionManager);
+        signIn(owner);
+
+        assertEquals(List.of("Replica task"), titles(taskService.getAllTasks(owner.getId())));
+
+        taskService.addTask(owner.getId(), new Task("Own task", "Written by the signed-in user.", false, LocalDate.now().plusDays(1)));
+
+        assertEquals(List.of("Primary task", "Own task"), titles(taskService.getAllTasks(owner.getId())));
+    }
+
+    @Test
+    void readOnlyTransaction_AnonymousReadsFromPrimary() {
+        assertEquals(List.of("Primary task"), titles(taskService.getAllTasks(owner.getId())));
+    }
+
+    /**
+     * Copies the primary to the replica, renaming the replicated tasks so reads tell where they ran.
+     */
+    private void replicate() {
+        // Outside a transaction and signed out, so this reads the primary
+        List<String> script = new JdbcTemplate(dataSource).queryForList("SCRIPT", String.class);
+        JdbcTemplate replica = new JdbcTemplate(new DriverManagerDataSource(REPLICA_URL, "sa", ""));
+        replica.execute("DROP ALL OBJECTS");
+        script.forEach(replica::execute);
+        replica.update("UPDATE tasks SET title = 'Replica task'");
+    }
+
+    private static List<String> titles(List<TaskSummary> tasks) {
+        return tasks.stream().map(TaskSummary::title).toList();
+    }
+
+    private static void signIn(User user) {
+        SecurityUser principal = new SecurityUser(user);
+        SecurityContextHolder.getContext().setAuthentication(
+                UsernamePasswordAuthenticationToken.authenticated(principal, null, principal.getAuthorities())
+        );
+    }
+}
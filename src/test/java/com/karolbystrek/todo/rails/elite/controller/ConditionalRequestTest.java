@@ -0,0 +1,115 @@
+package com.karolbystrek.todo.rails.elite.controller;
+
+import com.karolbystrek.todo.rails.elite.model.Task;
+import com.karolbystrek.todo.rails.elite.model.User;
+import com.karolbystrek.todo.rails.elite.model.security.SecurityUser;
+import com.karolbystrek.todo.rails.elite.repository.UserRepository;
+import com.karolbystrek.todo.rails.elite.service.TaskService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class ConditionalRequestTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TaskService taskService;
+
+    private User owner;
+
+    @BeforeEach
+    void setUp() {
+        owner = userRepository.findByUsername("conditional")
+                .orElseGet(() -> userRepository.save(new User("conditional", "password", "conditional@example.com", "USER")));
+    }
+
+    @Test
+    void getPendingTasks_NotModifiedUntilTasksChange() throws Exception {
+        String eTag = mockMvc.perform(get("/api/tasks/pending").with(owner()))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache, private"))
+                .andReturn()
+                .getResponse()
+                .getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/api/tasks/pending").with(owner()).header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        taskService.addTask(owner.getId(), new Task("Conditional task", "Changes the data version.", false, LocalDate.now()));
+
+        String changedETag = mockMvc.perform(get("/api/tasks/pending").with(owner()).header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getHeader(HttpHeaders.ETAG);
+        assertNotEquals(eTag, changedETag);
+    }
+
+    @Test
+    void getHomePage_NotModified() throws Exception {
+        String eTag = mockMvc.perform(get("/").with(owner()))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/").with(owner()).header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void getPendingTasks_TagsAreNotSharedBetweenUsers() throws Exception {
+        User other = new User("conditional-other", "password", "conditional-other@example.com", "USER");
+        other.setId(owner.getId() + 1000);
+        String eTag = mockMvc.perform(get("/api/tasks/pending").with(owner()))
+                .andReturn()
+                .getResponse()
+                .getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/api/tasks/pending").with(user(new SecurityUser(other))).header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void replaceTask_Failure_WeakETag() throws Exception {
+        Task task = taskService.addTask(owner.getId(), new Task("Weak tag task", "Is not replaced.", false, LocalDate.now()));
+
+        mockMvc.perform(put("/api/tasks/" + task.getId())
+                        .with(owner())
+                        .header(HttpHeaders.IF_MATCH, "W/\"" + task.getVersion() + "\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"title\":\"Replaced\",\"description\":\"Replaced.\",\"completed\":false,\"dueDate\":\"" + LocalDate.now() + "\"}"))
+                .andExpect(status().isPreconditionFailed());
+
+        assertEquals("Weak tag task", taskService.getTaskById(owner.getId(), task.getId()).getTitle());
+    }
+
+    private RequestPostProcessor owner() {
+        return user(new SecurityUser(owner));
+    }
+}
@@ -0,0 +1,125 @@
+package com.karolbystrek.todo.rails.elite.controller;
+
+import com.karolbystrek.todo.rails.elite.model.Task;
+import com.karolbystrek.todo.rails.elite.model.User;
+import com.karolbystrek.todo.rails.elite.model.security.SecurityUser;
+import com.karolbystrek.todo.rails.elite.repository.UserRepository;
+import com.karolbystrek.todo.rails.elite.service.TaskService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:reactive;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "todo.datasource.reactive.enabled=true",
+        "todo.datasource.reactive.url=r2dbc:h2:mem:///reactive?options=MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "todo.datasource.reactive.username=sa"
+})
+@AutoConfigureMockMvc
+public class ReactiveTaskControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TaskService taskService;
+
+    private User owner;
+
+    @BeforeEach
+    void setUp() {
+        owner = userRepository.findByUsername("reactive")
+                .orElseGet(() -> userRepository.save(new User("reactive", "password", "reactive@example.com", "USER")));
+        taskService.deleteAllTasks(owner.getId());
+    }
+
+    @AfterEach
+    void tearDown() {
+        // The second-level cache is shared by every test context, and this one has its own database
+        taskService.deleteAllTasks(owner.getId());
+        userRepository.findByUsername("reactive-other").ifPresent(other -> taskService.deleteAllTasks(other.getId()));
+    }
+
+    @Test
+    void streamTasks_StreamsPendingTasksAsNdjson() throws Exception {
+        LocalDate today = LocalDate.now();
+        taskService.addTask(owner.getId(), new Task("Later task", "Due tomorrow.", false, today.plusDays(1)));
+        taskService.addTask(owner.getId(), new Task("Today task", "Due today.", false, today));
+        taskService.addTask(owner.getId(), new Task("Done task", "Already completed.", true, today));
+
+        MvcResult result = mockMvc.perform(get("/api/reactive/tasks").param("status", "pending").with(owner()))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String[] lines = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andReturn()
+                .getResponse()
+                .getContentAsString()
+                .split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].contains("\"title\":\"Today task\""), lines[0]);
+        assertTrue(lines[1].contains("\"title\":\"Later task\""), lines[1]);
+    }
+
+    @Test
+    void streamTasks_Failure_UnknownStatus() throws Exception {
+        mockMvc.perform(get("/api/reactive/tasks").param("status", "archived").with(owner()))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void getTaskById_Success() throws Exception {
+        Task task = taskService.addTask(owner.getId(), new Task("Single task", "Read reactively.", false, LocalDate.now()));
+
+        MvcResult result = mockMvc.perform(get("/api/reactive/tasks/" + task.getId()).with(owner()))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.title").value("Single task"))
+                .andExpect(jsonPath("$.completed").value(false));
+    }
+
+    @Test
+    void getTaskById_Failure_OtherUsersTask() throws Exception {
+        User other = userRepository.findByUsername("reactive-other")
+                .orElseGet(() -> userRepository.save(new User("reactive-other", "password", "reactive-other@example.com", "USER")));
+        Task task = taskService.addTask(other.getId(), new Task("Foreign task", "Not the owner's.", false, LocalDate.now()));
+
+        MvcResult result = mockMvc.perform(get("/api/reactive/tasks/" + task.getId()).with(owner()))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isNotFound());
+    }
+
+    private RequestPostProcessor owner() {
+        return user(new SecurityUser(owner));
+    }
+}
@@ -0,0 +1,81 @@
+package com.karolbystrek.todo.rails.elite.controller;
+
+import com.karolbystrek.todo.rails.elite.event.TasksDueEvent;
+import com.karolbystrek.todo.rails.elite.model.TaskReminder;
+import com.karolbystrek.todo.rails.elite.model.User;
+import com.karolbystrek.todo.rails.elite.model.security.SecurityUser;
+import com.karolbystrek.todo.rails.elite.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class TaskEventsTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    private User owner;
+
+    @BeforeEach
+    void setUp() {
+        owner = userRepository.findByUsername("reminded")
+                .orElseGet(() -> userRepository.save(new User("reminded", "password", "reminded@example.com", "USER")));
+    }
+
+    @Test
+    void streamTaskEvents_DeliversReminders() throws Exception {
+        MockHttpServletResponse response = mockMvc.perform(get("/api/tasks/events").with(owner()))
+                .andExpect(request().asyncStarted())
+                .andReturn()
+                .getResponse();
+        LocalDate today = LocalDate.now();
+
+        eventPublisher.publishEvent(new TasksDueEvent(
+                List.of(new TaskReminder(101L, owner.getId(), today), new TaskReminder(102L, owner.getId() + 1000, today)),
+                List.of(new TaskReminder(103L, owner.getId(), today.minusDays(1)))
+        ));
+
+        // The event is written in parts, so wait for the end of its data
+        String events = awaitContent(response, "\"overdueIds\":[103]}");
+        assertTrue(events.contains("event:reminders"), events);
+        assertTrue(events.contains("\"dueIds\":[101]"), events);
+    }
+
+    private static String awaitContent(MockHttpServletResponse response, String expected) throws Exception {
+        // Reminders are sent from the application task executor
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        String content = response.getContentAsString();
+        while (!content.contains(expected) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            content = response.getContentAsString();
+        }
+        assertTrue(content.contains(expected), content);
+        return content;
+    }
+
+    private RequestPostProcessor owner() {
+        return user(new SecurityUser(owner));
+    }
+}
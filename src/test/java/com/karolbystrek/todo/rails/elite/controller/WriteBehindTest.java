@@ -0,0 +1,149 @@
+package com.karolbystrek.todo.rails.elite.controller;
+
+import com.karolbystrek.todo.rails.elite.model.Task;
+import com.karolbystrek.todo.rails.elite.model.User;
+import com.karolbystrek.todo.rails.elite.model.security.SecurityUser;
+import com.karolbystrek.todo.rails.elite.repository.TaskRepository;
+import com.karolbystrek.todo.rails.elite.repository.UserRepository;
+import com.karolbystrek.todo.rails.elite.service.TaskCounterService;
+import com.karolbystrek.todo.rails.elite.service.TaskService;
+import com.karolbystrek.todo.rails.elite.service.TaskWriteBehindService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:writebehind;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "todo.tasks.write-behind.enabled=true",
+        "todo.tasks.write-behind.max-delay=1h"
+})
+@AutoConfigureMockMvc
+public class WriteBehindTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TaskRepository taskRepository;
+
+    @Autowired
+    private TaskService taskService;
+
+    @Autowired
+    private TaskCounterService taskCounterService;
+
+    @Autowired
+    private TaskWriteBehindService taskWriteBehindService;
+
+    private User owner;
+
+    @BeforeEach
+    void setUp() {
+        owner = userRepository.findByUsername("write-behind").orElseGet(() -> {
+            User user = userRepository.save(new User("write-behind", "password", "write-behind@example.com", "USER"));
+            taskCounterService.createCounters(user.getId());
+            return user;
+        });
+        taskService.deleteAllTasks(owner.getId());
+    }
+
+    @Test
+    void completeTask_ScriptRequestQueuedUntilTheNextRead() throws Exception {
+        Task task = taskService.addTask(owner.getId(), new Task("Queued task", "Completed behind the scenes.", false, LocalDate.now()));
+
+        queueCompletion(task);
+        taskService.addTask(owner.getId(), new Task("Added task", "Does not wait for the queue.", false, LocalDate.now()));
+
+        assertEquals(1, taskWriteBehindService.getPendingCount());
+        assertFalse(taskRepository.findById(task.getId()).orElseThrow().isCompleted());
+
+        mockMvc.perform(get("/api/tasks/today").with(owner()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(1));
+
+        assertEquals(0, taskWriteBehindService.getPendingCount());
+        assertTrue(taskRepository.findById(task.getId()).orElseThrow().isCompleted());
+        assertEquals(1, taskCounterService.getCounts(owner.getId()).completed());
+    }
+
+    @Test
+    void getTaskStats_SeesQueuedWrites() throws Exception {
+        Task task = taskService.addTask(owner.getId(), new Task("Counted task", "Completed behind the scenes.", false, LocalDate.now()));
+        queueCompletion(task);
+
+        mockMvc.perform(get("/api/tasks/stats").with(owner()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.pendingToday").value(0))
+                .andExpect(jsonPath("$.completed").value(1));
+
+        assertEquals(0, taskWriteBehindService.getPendingCount());
+    }
+
+    @Test
+    void searchTasks_SeesQueuedWrites() throws Exception {
+        Task task = taskService.addTask(owner.getId(), new Task("Searched task", "Completed behind the scenes.", false, LocalDate.now()));
+        queueCompletion(task);
+
+        mockMvc.perform(get("/api/tasks/search").param("q", "searched").with(owner()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].task.completed").value(true));
+
+        assertEquals(0, taskWriteBehindService.getPendingCount());
+    }
+
+    @Test
+    void completeTask_FormPostIsWrittenRightAway() throws Exception {
+        Task task = taskService.addTask(owner.getId(), new Task("Form task", "Completed from a form.", false, LocalDate.now()));
+
+        mockMvc.perform(post("/api/tasks/complete/" + task.getId()).with(owner()).with(csrf()))
+                .andExpect(status().is3xxRedirection());
+        mockMvc.perform(post("/api/tasks/bulk/reschedule").param("ids", task.getId().toString()).param("dueDate", LocalDate.now().plusDays(1).toString())
+                        .with(owner()).with(csrf()))
+                .andExpect(status().is3xxRedirection());
+
+        assertEquals(0, taskWriteBehindService.getPendingCount());
+        Task written = taskRepository.findById(task.getId()).orElseThrow();
+        assertTrue(written.isCompleted());
+        assertEquals(LocalDate.now().plusDays(1), written.getDueDate());
+    }
+
+    @Test
+    void completeTask_ConditionalRequestIsWrittenRightAway() throws Exception {
+        Task task = taskService.addTask(owner.getId(), new Task("Versioned task", "Completed at a known version.", false, LocalDate.now()));
+
+        mockMvc.perform(post("/api/tasks/complete/" + task.getId()).with(owner()).with(csrf()).header("If-Match", "\"" + task.getVersion() + "\""))
+                .andExpect(status().is3xxRedirection());
+
+        assertEquals(0, taskWriteBehindService.getPendingCount());
+        assertTrue(taskRepository.findById(task.getId()).orElseThrow().isCompleted());
+    }
+
+    private void queueCompletion(Task task) throws Exception {
+        mockMvc.perform(post("/api/tasks/complete/" + task.getId()).with(owner()).with(csrf()).header("X-Requested-With", "fetch"))
+                .andExpect(status().is3xxRedirection());
+        assertEquals(1, taskWriteBehindService.getPendingCount());
+    }
+
+    private RequestPostProcessor owner() {
+        return user(new SecurityUser(owner));
+    }
+}
@@ -0,0 +1,89 @@
+package com.karolbystrek.todo.rails.elite.loadtest;
+
+import java.util.Arrays;
+
+/**
+ * Latency samples of one endpoint. Not thread safe: every client records into its
+ * own instance and the instances are merged once the run is over.
+ */
+final class LatencyHistogram {
+
+    /**
+     * Upper bounds, in milliseconds, of the buckets printed in the report.
+     */
+    static final long[] BUCKET_BOUNDS_MILLIS = {1, 2, 5, 10, 20, 50, 100, 200, 500, 1_000, 2_000, 5_000};
+
+    private long[] samples = new long[1024];
+    private int count;
+    private long errors;
+
+    void record(long nanos, boolean error) {
+        if (count == samples.length) {
+            samples = Arrays.copyOf(samples, count * 2);
+        }
+        samples[count++] = nanos;
+        if (error) {
+            errors++;
+        }
+    }
+
+    void merge(LatencyHistogram other) {
+        if (count + other.count > samples.length) {
+            samples = Arrays.copyOf(samples, Math.max(samples.length * 2, count + other.count));
+        }
+        System.arraycopy(other.samples, 0, samples, count, other.count);
+        count += other.count;
+        errors += other.errors;
+    }
+
+    Summary summarize(double seconds) {
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        long[] buckets = new long[BUCKET_BOUNDS_MILLIS.length + 1];
+        int bucket = 0;
+        for (long sample : sorted) {
+            while (bucket < BUCKET_BOUNDS_MILLIS.length && sample > BUCKET_BOUNDS_MILLIS[bucket] * 1_000_000) {
+                bucket++;
+            }
+            buckets[bucket]++;
+        }
+        return new Summary(
+                count,
+                errors,
+                count / seconds,
+                millis(percentile(sorted, 0.50)),
+                millis(percentile(sorted, 0.95)),
+                millis(percentile(sorted, 0.99)),
+                millis(count == 0 ? 0 : sorted[count - 1]),
+                buckets
+        );
+    }
+
+    private static long percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(quantile * sorted.length) - 1)];
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000d;
+    }
+
+    /**
+     * Latency statistics of one endpoint; times in milliseconds.
+     *
+     * @param buckets Number of samples per bucket of {@link #BUCKET_BOUNDS_MILLIS}, plus one overflow bucket
+     */
+    record Summary(
+            long requests,
+            long errors,
+            double throughput,
+            double p50,
+            double p95,
+            double p99,
+            double max,
+            long[] buckets
+    ) {
+    }
+}
@@ -0,0 +1,232 @@
+package com.karolbystrek.todo.rails.elite.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.karolbystrek.todo.rails.elite.loadtest.LoadTestOptions.Scenario;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * One simulated user. Logs in through the form login, then keeps picking
+ * scenarios according to the mix until the run is stopped. Like a polling
+ * browser, it revalidates pages it has seen with their entity tags.
+ */
+final class LoadClient implements Runnable {
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(60);
+    private static final List<String> API_READS = List.of(
+            "/api/tasks/all", "/api/tasks/pending", "/api/tasks/today", "/api/tasks/overdue", "/api/tasks/stats",
+            "/api/tasks/search?q=seeded+12", "/api/reactive/tasks?status=pending",
+            "/api/tasks/calendar?from=" + LocalDate.now() + "&to=" + LocalDate.now().plusDays(30), "/api/tasks/calendar/overdue"
+    );
+
+    private final int id;
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper;
+    private final URI baseUri;
+    private final String username;
+    private final String password;
+    private final int userIndex;
+    private final int users;
+    private final int ownSeededTasks;
+    private final Scenario[] scenarios;
+    private final int[] cumulativeWeights;
+    private final AtomicBoolean recording;
+    private final AtomicBoolean running;
+    private final Map<String, LatencyHistogram> histograms = new HashMap<>();
+    private final Map<String, String> eTags = new HashMap<>();
+    private String sessionCookie;
+    private long createdTasks;
+
+    LoadClient(
+            int id,
+            HttpClient httpClient,
+            ObjectMapper objectMapper,
+            URI baseUri,
+            int userIndex,
+            String username,
+            String password,
+            LoadTestOptions options,
+            AtomicBoolean recording,
+            AtomicBoolean running
+    ) {
+        this.id = id;
+        this.httpClient = httpClient;
+        this.objectMapper = objectMapper;
+        this.baseUri = baseUri;
+        this.username = username;
+        this.password = password;
+        this.userIndex = userIndex;
+        this.users = options.users();
+        this.ownSeededTasks = (options.tasks() - userIndex + users - 1) / users;
+        this.scenarios = options.mix().keySet().toArray(Scenario[]::new);
+        this.cumulativeWeights = new int[scenarios.length];
+        int total = 0;
+        for (int i = 0; i < scenarios.length; i++) {
+            total += options.mix().get(scenarios[i]);
+            cumulativeWeights[i] = total;
+        }
+        this.recording = recording;
+        this.running = running;
+    }
+
+    Map<String, LatencyHistogram> histograms() {
+        return histograms;
+    }
+
+    @Override
+    public void run() {
+        login();
+        while (running.get()) {
+            switch (nextScenario()) {
+                case DASHBOARD -> get("GET /", "/");
+                case TASKS -> get("GET /tasks", "/tasks");
+                case API -> readApi();
+                case CRUD -> crud();
+                case LOGIN -> login();
+            }
+        }
+    }
+
+    private Scenario nextScenario() {
+        int pick = ThreadLocalRandom.current().nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (pick < cumulativeWeights[i]) {
+                return scenarios[i];
+            }
+        }
+        return scenarios[scenarios.length - 1];
+    }
+
+    private void login() {
+        HttpResponse<String> response = send("POST /login", form("/login", Map.of("username", username, "password", password)).build());
+        if (response == null) {
+            return;
+        }
+        response.headers().allValues("Set-Cookie").stream()
+                .filter(cookie -> cookie.startsWith("JSESSIONID="))
+                .findFirst()
+                .ifPresent(cookie -> sessionCookie = cookie.substring(0, cookie.indexOf(';')));
+    }
+
+    private void readApi() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (ownSeededTasks > 0 && random.nextInt(API_READS.size() + 1) == 0) {
+            long taskId = userIndex + 1L + (long) users * random.nextInt(ownSeededTasks);
+            get("GET /api/tasks/{id}", "/api/tasks/" + taskId);
+        } else {
+            String path = API_READS.get(random.nextInt(API_READS.size()));
+            get("GET " + path, path);
+        }
+    }
+
+    /**
+     * Walks one task through its whole life cycle, so the data set size stays stable.
+     */
+    private void crud() {
+        String title = "Load task " + id + "-" + createdTasks++;
+        String dueDate = LocalDate.now().plusDays(ThreadLocalRandom.current().nextInt(30)).toString();
+        send("POST /api/tasks/add", form("/api/tasks/add", Map.of(
+                "title", title, "description", "Created by the load test", "dueDate", dueDate
+        )).build());
+        HttpResponse<String> created = get("GET /api/tasks/title/{title}", "/api/tasks/title/" + encode(title).replace("+", "%20"));
+        if (created == null || created.statusCode() != 200) {
+            return;
+        }
+        long taskId;
+        long version;
+        try {
+            JsonNode task = objectMapper.readTree(created.body());
+            taskId = task.get("id").asLong();
+            version = task.get("version").asLong();
+        } catch (IOException exception) {
+            return;
+        }
+        send("POST /api/tasks/update", form("/api/tasks/update", Map.of(
+                "id", String.valueOf(taskId), "version", String.valueOf(version),
+                "title", title, "description", "Updated by the load test", "dueDate", dueDate
+        )).build());
+        send("POST /api/tasks/complete/{id}", request("/api/tasks/complete/" + taskId)
+                .POST(HttpRequest.BodyPublishers.noBody())
+                .build());
+        send("DELETE /api/tasks/delete/{id}", request("/api/tasks/delete/" + taskId).DELETE().build());
+    }
+
+    private HttpResponse<String> get(String endpoint, String path) {
+        HttpRequest.Builder request = request(path).GET();
+        String eTag = eTags.get(path);
+        if (eTag != null) {
+            request.header("If-None-Match", eTag);
+        }
+        HttpResponse<String> response = send(endpoint, request.build());
+        if (response != null) {
+            response.headers().firstValue("ETag").ifPresent(value -> eTags.put(path, value));
+        }
+        return response;
+    }
+
+    private HttpRequest.Builder request(String path) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(baseUri.resolve(path)).timeout(REQUEST_TIMEOUT);
+        if (sessionCookie != null) {
+            builder.header("Cookie", sessionCookie);
+        }
+        return builder;
+    }
+
+    private HttpRequest.Builder form(String path, Map<String, String> fields) {
+        StringBuilder body = new StringBuilder();
+        fields.forEach((name, value) -> {
+            if (!body.isEmpty()) {
+                body.append('&');
+            }
+            body.append(encode(name)).append('=').append(encode(value));
+        });
+        return request(path)
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString(body.toString()));
+    }
+
+    private HttpResponse<String> send(String endpoint, HttpRequest request) {
+        long start = System.nanoTime();
+        HttpResponse<String> response = null;
+        try {
+            response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        } catch (IOException exception) {
+            // Counted as an error below
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            running.set(false);
+        }
+        long elapsed = System.nanoTime() - start;
+        if (recording.get()) {
+            histograms.computeIfAbsent(endpoint, key -> new LatencyHistogram()).record(elapsed, isError(endpoint, response));
+        }
+        return response;
+    }
+
+    private static boolean isError(String endpoint, HttpResponse<String> response) {
+        if (response == null || response.statusCode() >= 400) {
+            return true;
+        }
+        String location = response.headers().firstValue("Location").orElse("");
+        return endpoint.equals("POST /login") && location.contains("error")
+                || endpoint.equals("POST /api/tasks/add") && location.endsWith("/tasks/add");
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+}
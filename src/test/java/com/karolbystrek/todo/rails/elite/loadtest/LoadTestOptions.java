@@ -0,0 +1,115 @@
+package com.karolbystrek.todo.rails.elite.loadtest;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Command line options of the load test.
+ *
+ * @param users    Number of users seeded and logged in by the clients
+ * @param tasks    Number of tasks seeded before the run
+ * @param clients  Number of concurrent clients, each running on its own virtual thread
+ * @param warmup   How long to run before measuring
+ * @param duration How long to measure
+ * @param mix      Relative weight of each scenario
+ * @param report   File the JSON report is written to
+ */
+record LoadTestOptions(
+        int users,
+        int tasks,
+        int clients,
+        Duration warmup,
+        Duration duration,
+        Map<Scenario, Integer> mix,
+        Path report
+) {
+
+    private static final String USAGE = """
+            Options (all optional):
+              --users=100                 users to seed, clients log in round robin
+              --tasks=10000               tasks to seed
+              --clients=200               concurrent clients
+              --warmup=10s                warm-up before measuring
+              --duration=60s              measured run time
+              --mix=dashboard:30,tasks:10,api:40,crud:15,login:5
+                                          relative weight of each scenario
+              --report=target/loadtest/report.json
+            """;
+
+    private static final Set<String> NAMES = Set.of("users", "tasks", "clients", "warmup", "duration", "mix", "report");
+
+    static LoadTestOptions parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            if (arg.equals("--help") || !arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException(USAGE);
+            }
+            int separator = arg.indexOf('=');
+            String name = arg.substring(2, separator);
+            if (!NAMES.contains(name)) {
+                throw new IllegalArgumentException("Unknown option --" + name + "\n\n" + USAGE);
+            }
+            values.put(name, arg.substring(separator + 1));
+        }
+        int users = Integer.parseInt(values.getOrDefault("users", "100"));
+        if (users < 1) {
+            throw new IllegalArgumentException("At least one user is needed to own the seeded tasks");
+        }
+        return new LoadTestOptions(
+                users,
+                Integer.parseInt(values.getOrDefault("tasks", "10000")),
+                Integer.parseInt(values.getOrDefault("clients", "200")),
+                parseDuration(values.getOrDefault("warmup", "10s")),
+                parseDuration(values.getOrDefault("duration", "60s")),
+                parseMix(values.getOrDefault("mix", "dashboard:30,tasks:10,api:40,crud:15,login:5")),
+                Path.of(values.getOrDefault("report", "target/loadtest/report.json"))
+        );
+    }
+
+    private static Duration parseDuration(String value) {
+        return Duration.parse("PT" + value.toUpperCase(Locale.ROOT));
+    }
+
+    private static Map<Scenario, Integer> parseMix(String value) {
+        Map<Scenario, Integer> mix = new EnumMap<>(Scenario.class);
+        for (String entry : value.split(",")) {
+            String[] parts = entry.split(":");
+            mix.put(Scenario.valueOf(parts[0].strip().toUpperCase(Locale.ROOT)), Integer.parseInt(parts[1].strip()));
+        }
+        if (mix.values().stream().mapToInt(Integer::intValue).sum() <= 0) {
+            throw new IllegalArgumentException("The scenario mix needs at least one positive weight");
+        }
+        return mix;
+    }
+
+    /**
+     * Units of work a client picks from according to the mix.
+     */
+    enum Scenario {
+        /**
+         * Renders the dashboard at {@code /}.
+         */
+        DASHBOARD,
+        /**
+         * Renders the first page of {@code /tasks}.
+         */
+        TASKS,
+        /**
+         * One of the JSON reads under {@code /api/tasks}.
+         */
+        API,
+        /**
+         * Adds, reads, updates, completes and deletes one task.
+         */
+        CRUD,
+        /**
+         * Logs in again through the form login.
+         */
+        LOGIN
+    }
+}
@@ -0,0 +1,72 @@
+package com.karolbystrek.todo.rails.elite.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.karolbystrek.todo.rails.elite.loadtest.LatencyHistogram.Summary;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Prints the per-endpoint results as a table with latency histograms and writes them as JSON.
+ */
+final class LoadTestReport {
+
+    private static final int BAR_WIDTH = 40;
+
+    private LoadTestReport() {
+    }
+
+    static void print(PrintStream out, LoadTestOptions options, Map<String, Summary> summaries) {
+        out.printf("%nLoad test: %d clients, %d users, %d tasks, %s measured after %s warm-up, mix %s%n%n",
+                options.clients(), options.users(), options.tasks(), options.duration(), options.warmup(), options.mix());
+        out.printf("%-34s %9s %7s %9s %9s %9s %9s %9s%n",
+                "Endpoint", "Requests", "Errors", "Req/s", "p50 ms", "p95 ms", "p99 ms", "max ms");
+        for (Map.Entry<String, Summary> entry : summaries.entrySet()) {
+            printRow(out, entry.getKey(), entry.getValue());
+        }
+        long requests = summaries.values().stream().mapToLong(Summary::requests).sum();
+        long errors = summaries.values().stream().mapToLong(Summary::errors).sum();
+        out.printf("%-34s %9d %7d %9.1f%n%n", "Total", requests, errors, requests / (double) options.duration().toSeconds());
+
+        for (Map.Entry<String, Summary> entry : summaries.entrySet()) {
+            out.println(entry.getKey());
+            long[] buckets = entry.getValue().buckets();
+            long largest = Math.max(1, Arrays.stream(buckets).max().orElse(1));
+            for (int i = 0; i < buckets.length; i++) {
+                String label = i < LatencyHistogram.BUCKET_BOUNDS_MILLIS.length
+                        ? "<= " + LatencyHistogram.BUCKET_BOUNDS_MILLIS[i] + " ms"
+                        : " > " + LatencyHistogram.BUCKET_BOUNDS_MILLIS[i - 1] + " ms";
+                out.printf("  %-11s %9d %s%n", label, buckets[i], "#".repeat((int) (buckets[i] * BAR_WIDTH / largest)));
+            }
+        }
+    }
+
+    static void write(ObjectMapper objectMapper, LoadTestOptions options, Map<String, Summary> summaries) throws IOException {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("options", Map.of(
+                "users", options.users(),
+                "tasks", options.tasks(),
+                "clients", options.clients(),
+                "warmup", options.warmup().toString(),
+                "duration", options.duration().toString(),
+                "mix", options.mix()
+        ));
+        report.put("bucketBoundsMillis", LatencyHistogram.BUCKET_BOUNDS_MILLIS);
+        report.put("endpoints", summaries);
+        if (options.report().getParent() != null) {
+            Files.createDirectories(options.report().getParent());
+        }
+        objectMapper.writer(SerializationFeature.INDENT_OUTPUT).writeValue(options.report().toFile(), report);
+    }
+
+    private static void printRow(PrintStream out, String endpoint, Summary summary) {
+        out.printf("%-34s %9d %7d %9.1f %9.1f %9.1f %9.1f %9.1f%n",
+                endpoint, summary.requests(), summary.errors(), summary.throughput(),
+                summary.p50(), summary.p95(), summary.p99(), summary.max());
+    }
+}
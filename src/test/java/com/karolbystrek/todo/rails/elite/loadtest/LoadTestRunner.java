@@ -0,0 +1,138 @@
+package com.karolbystrek.todo.rails.elite.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.karolbystrek.todo.rails.elite.Application;
+import com.karolbystrek.todo.rails.elite.loadtest.LatencyHistogram.Summary;
+import com.karolbystrek.todo.rails.elite.service.TaskCounterService;
+import com.karolbystrek.todo.rails.elite.service.TaskSearchService;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * HTTP load test against the full application, including the real security filter chain.
+ *
+ * <p>Starts the application on a random port with the {@code h2} profile, seeds users
+ * and tasks, and runs the configured scenario mix from many concurrent clients. Each
+ * client is a virtual thread with its own session. Run it with
+ * {@code mvn -Ploadtest -DskipTests verify -Dloadtest.args="--clients=200 --duration=60s"};
+ * see {@link LoadTestOptions} for all options.</p>
+ */
+public final class LoadTestRunner {
+
+    static final String PASSWORD = "load-test-password";
+
+    private static final int INSERT_BATCH_SIZE = 10_000;
+
+    private LoadTestRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options;
+        try {
+            options = LoadTestOptions.parse(args);
+        } catch (IllegalArgumentException exception) {
+            System.err.println(exception.getMessage());
+            System.exit(2);
+            return;
+        }
+        // DevTools would otherwise relaunch main with the application arguments instead of the load test options.
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(Application.class)
+                .profiles("h2")
+                .run("--server.port=0", "--logging.level.root=WARN", "--todo.datasource.reactive.enabled=true")) {
+            seed(context, options);
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            ObjectMapper objectMapper = context.getBean(ObjectMapper.class);
+            Map<String, Summary> summaries = run(URI.create("http://localhost:" + port), objectMapper, options);
+            LoadTestReport.print(System.out, options, summaries);
+            LoadTestReport.write(objectMapper, options, summaries);
+            System.out.println("\nReport written to " + options.report().toAbsolutePath());
+        }
+    }
+
+    private static void seed(ConfigurableApplicationContext context, LoadTestOptions options) {
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        String passwordHash = context.getBean(BCryptPasswordEncoder.class).encode(PASSWORD);
+        List<Object[]> users = new ArrayList<>(options.users());
+        for (int i = 0; i < options.users(); i++) {
+            users.add(new Object[]{username(i), passwordHash, username(i) + "@example.com", "USER"});
+        }
+        jdbcTemplate.batchUpdate("insert into users (username, password, email, roles) values (?, ?, ?, ?)", users);
+        List<Long> userIds = jdbcTemplate.queryForList("select id from users order by id", Long.class);
+
+        LocalDate today = LocalDate.now();
+        // Tasks are dealt to the users round robin, so task i + 1 belongs to user i % users; see LoadClient.
+        List<Object[]> batch = new ArrayList<>(INSERT_BATCH_SIZE);
+        for (int i = 0; i < options.tasks(); i++) {
+            batch.add(new Object[]{
+                    i + 1L, userIds.get(i % userIds.size()), "Task " + i, "Seeded task " + i, i % 3 == 0,
+                    Date.valueOf(today.plusDays(i % 61 - 30))
+            });
+            if (batch.size() == INSERT_BATCH_SIZE || i == options.tasks() - 1) {
+                jdbcTemplate.batchUpdate(
+                        "insert into tasks (id, user_id, title, description, completed, due_date, version) values (?, ?, ?, ?, ?, ?, 0)",
+                        batch
+                );
+                batch.clear();
+            }
+        }
+        // Seeded ids bypass the pooled sequence, so move it past them before tasks are added over HTTP.
+        jdbcTemplate.execute("alter sequence tasks_seq restart with " + (options.tasks() + 100L));
+        context.getBean(TaskCounterService.class).rebuild();
+        context.getBean(TaskSearchService.class).rebuild();
+    }
+
+    private static Map<String, Summary> run(URI baseUri, ObjectMapper objectMapper, LoadTestOptions options)
+            throws InterruptedException {
+        HttpClient httpClient = HttpClient.newBuilder()
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+        AtomicBoolean recording = new AtomicBoolean();
+        AtomicBoolean running = new AtomicBoolean(true);
+        List<LoadClient> clients = new ArrayList<>(options.clients());
+        for (int i = 0; i < options.clients(); i++) {
+            clients.add(new LoadClient(
+                    i, httpClient, objectMapper, baseUri, i % options.users(), username(i % options.users()),
+                    PASSWORD, options, recording, running
+            ));
+        }
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            clients.forEach(executor::submit);
+            Thread.sleep(options.warmup());
+            recording.set(true);
+            Thread.sleep(options.duration());
+            recording.set(false);
+            running.set(false);
+        }
+        Map<String, LatencyHistogram> merged = new TreeMap<>();
+        for (LoadClient client : clients) {
+            client.histograms().forEach(
+                    (endpoint, histogram) -> merged.computeIfAbsent(endpoint, key -> new LatencyHistogram()).merge(histogram)
+            );
+        }
+        double seconds = options.duration().toNanos() / 1_000_000_000d;
+        Map<String, Summary> summaries = new TreeMap<>();
+        merged.forEach((endpoint, histogram) -> summaries.put(endpoint, histogram.summarize(seconds)));
+        return summaries;
+    }
+
+    private static String username(int index) {
+        return "loaduser" + index;
+    }
+}
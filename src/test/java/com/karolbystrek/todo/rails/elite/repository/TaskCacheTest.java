@@ -0,0 +1,128 @@
+package com.karolbystrek.todo.rails.elite.repository;
+
+import com.karolbystrek.todo.rails.elite.model.Task;
+import com.karolbystrek.todo.rails.elite.model.TaskSummary;
+import com.karolbystrek.todo.rails.elite.model.User;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class TaskCacheTest {
+
+    @Autowired
+    private TaskRepository taskRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private Statistics statistics;
+
+    private Long userId;
+
+    private Long taskId;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        User user = userRepository.save(new User("reader", "password", "reader@example.com", "USER"));
+        Task task = new Task("Cached Task", "Read many times.", false, LocalDate.now());
+        task.setUser(user);
+        userId = user.getId();
+        taskId = taskRepository.save(task).getId();
+        entityManagerFactory.getCache().evictAll();
+        statistics.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        taskRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void findById_SecondReadIsServedFromCache() {
+        transactionTemplate.executeWithoutResult(status -> taskRepository.findById(taskId));
+        transactionTemplate.executeWithoutResult(status -> taskRepository.findById(taskId));
+
+        assertEquals(1, statistics.getSecondLevelCacheMissCount());
+        assertEquals(1, statistics.getSecondLevelCacheHitCount());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void findByUserIdAndTitle_SecondQueryIsServedFromQueryCache() {
+        transactionTemplate.executeWithoutResult(status -> taskRepository.findByUserIdAndTitle(userId, "Cached Task"));
+        transactionTemplate.executeWithoutResult(status -> taskRepository.findByUserIdAndTitle(userId, "Cached Task"));
+
+        assertEquals(1, statistics.getQueryCacheMissCount());
+        assertEquals(1, statistics.getQueryCacheHitCount());
+    }
+
+    @Test
+    void bulkUpdate_InvalidatesCachedEntitiesAndQueries() {
+        transactionTemplate.executeWithoutResult(status -> taskRepository.findById(taskId));
+        transactionTemplate.executeWithoutResult(status -> taskRepository.findSummariesByUserIdAndCompletedOrderByDueDateAsc(userId, false));
+
+        transactionTemplate.executeWithoutResult(status -> taskRepository.completeByIdIn(userId, List.of(taskId)));
+
+        Task reloaded = transactionTemplate.execute(status -> taskRepository.findById(taskId).orElseThrow());
+        List<TaskSummary> pending = transactionTemplate.execute(status -> taskRepository.findSummariesByUserIdAndCompletedOrderByDueDateAsc(userId, false));
+        assertTrue(reloaded.isCompleted());
+        assertTrue(pending.isEmpty());
+    }
+
+    @Test
+    void entityUpdate_RefreshesCachedEntity() {
+        transactionTemplate.executeWithoutResult(status -> taskRepository.findById(taskId));
+
+        transactionTemplate.executeWithoutResult(status -> {
+            Task task = taskRepository.findById(taskId).orElseThrow();
+            task.setDescription("Updated description.");
+        });
+
+        entityManager.clear();
+        Task reloaded = transactionTemplate.execute(status -> taskRepository.findById(taskId).orElseThrow());
+        assertEquals("Updated description.", reloaded.getDescription());
+    }
+
+    @Test
+    void entityUpdate_OfCachedTaskIsASingleStatement() {
+        transactionTemplate.executeWithoutResult(status -> taskRepository.findById(taskId));
+        statistics.clear();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            Task task = taskRepository.findById(taskId).orElseThrow();
+            task.setCompleted(true);
+        });
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(1, statistics.getEntityUpdateCount());
+    }
+}
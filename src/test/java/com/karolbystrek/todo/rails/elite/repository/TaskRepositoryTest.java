@@ -0,0 +1,366 @@
+package com.karolbystrek.todo.rails.elite.repository;
+
+import com.karolbystrek.todo.rails.elite.model.Task;
+import com.karolbystrek.todo.rails.elite.model.TaskCounter;
+import com.karolbystrek.todo.rails.elite.model.TaskCounts;
+import com.karolbystrek.todo.rails.elite.model.TaskDueDate;
+import com.karolbystrek.todo.rails.elite.model.TaskSnapshot;
+import com.karolbystrek.todo.rails.elite.model.TaskSummary;
+import com.karolbystrek.todo.rails.elite.model.User;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+public class TaskRepositoryTest {
+
+    private static final String USER_COMPLETED_DUE_DATE_INDEX = "idx_tasks_user_completed_due_date";
+
+    @Autowired
+    private TaskRepository taskRepository;
+
+    @Autowired
+    private SqlRecorder sqlRecorder;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TaskCounterRepository taskCounterRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private final LocalDate today = LocalDate.now();
+
+    private Long userId;
+
+    private Long otherUserId;
+
+    @BeforeEach
+    void setUp() {
+        User user = userRepository.save(new User("owner", "password", "owner@example.com", "USER"));
+        User otherUser = userRepository.save(new User("other", "password", "other@example.com", "USER"));
+        userId = user.getId();
+        otherUserId = otherUser.getId();
+        taskRepository.saveAll(List.of(
+                task(user, "Overdue Task", "Was due yesterday.", false, today.minusDays(1)),
+                task(user, "Today Task", "Due today.", false, today),
+                task(user, "Done Today Task", "Completed today.", true, today),
+                task(user, "Next Week Task", "Due next week.", false, today.plusDays(7)),
+                task(user, "Next Month Task", "Due next month.", false, today.plusMonths(1)),
+                task(otherUser, "Today Task", "Another user's task with the same title.", false, today)
+        ));
+    }
+
+    @Test
+    void findSummariesByUserIdAndCompletedOrderByDueDateAsc_Success() {
+        entityManager.flush();
+        entityManager.clear();
+
+        List<TaskSummary> pending = taskRepository.findSummariesByUserIdAndCompletedOrderByDueDateAsc(userId, false);
+
+        assertEquals(
+                List.of("Overdue Task", "Today Task", "Next Week Task", "Next Month Task"),
+                pending.stream().map(TaskSummary::title).toList()
+        );
+        assertEquals(0, entityManager.unwrap(Session.class).getStatistics().getEntityCount());
+    }
+
+    @Test
+    void findSummariesByUserIdAndCompletedFalseAndDueDate_Success() {
+        List<TaskSummary> todayTasks = taskRepository.findSummariesByUserIdAndCompletedFalseAndDueDate(userId, today);
+
+        assertEquals(List.of("Today Task"), todayTasks.stream().map(TaskSummary::title).toList());
+    }
+
+    @Test
+    void findSummariesByUserIdAndCompletedFalseAndDueDateBefore_Success() {
+        List<TaskSummary> overdue = taskRepository.findSummariesByUserIdAndCompletedFalseAndDueDateBeforeOrderByDueDateAsc(userId, today);
+
+        assertEquals(List.of("Overdue Task"), overdue.stream().map(TaskSummary::title).toList());
+    }
+
+    @Test
+    void findSummariesByUserIdAndCompletedFalseAndDueDateBetween_Success() {
+        List<TaskSummary> upcoming = taskRepository.findSummariesByUserIdAndCompletedFalseAndDueDateBetweenOrderByDueDateAsc(
+                userId, today, today.plusDays(7)
+        );
+
+        assertEquals(List.of("Today Task", "Next Week Task"), upcoming.stream().map(TaskSummary::title).toList());
+    }
+
+    @Test
+    void findExistingTitles_Success() {
+        assertEquals(
+                Set.of("Today Task"),
+                taskRepository.findExistingTitles(userId, List.of("Today Task", "Unknown Task"))
+        );
+        assertEquals(
+                Set.of(),
+                taskRepository.findExistingTitles(otherUserId, List.of("Overdue Task", "Done Today Task"))
+        );
+    }
+
+    @Test
+    void findByUserIdAndTitle_ReturnsOnlyTheUsersTask() {
+        Task task = taskRepository.findByUserIdAndTitle(otherUserId, "Today Task").orElseThrow();
+
+        assertEquals("Another user's task with the same title.", task.getDescription());
+        assertTrue(taskRepository.findByUserIdAndTitle(otherUserId, "Overdue Task").isEmpty());
+    }
+
+    @Test
+    void countTasks_Success() {
+        TaskCounts counts = taskRepository.countTasks(userId, today);
+
+        assertEquals(new TaskCounts(5, 4, 1, 1), counts);
+        assertEquals(new TaskCounts(1, 1, 1, 0), taskRepository.countTasks(otherUserId, today));
+        assertEquals(1, taskRepository.countByUserIdAndCompletedFalseAndDueDate(userId, today));
+    }
+
+    @Test
+    void counterStatements_Success() {
+        taskCounterRepository.saveAll(List.of(
+                new TaskCounter(userId, "total", 5),
+                new TaskCounter(userId, "pending", 4),
+                new TaskCounter(userId, "completed", 1),
+                new TaskCounter(otherUserId, "total", 1),
+                new TaskCounter(otherUserId, "pending", 1),
+                new TaskCounter(otherUserId, "completed", 0)
+        ));
+        Long todayId = taskRepository.findByUserIdAndTitle(userId, "Today Task").orElseThrow().getId();
+        Long doneId = taskRepository.findByUserIdAndTitle(userId, "Done Today Task").orElseThrow().getId();
+        Long otherId = taskRepository.findByUserIdAndTitle(otherUserId, "Today Task").orElseThrow().getId();
+
+        assertEquals(2, taskCounterRepository.countCompleted(userId, 2));
+        assertEquals(3, taskCounterRepository.countDeleted(userId, List.of(todayId, doneId, otherId, -1L)));
+        entityManager.clear();
+
+        assertEquals(Map.of("total", 3L, "pending", 1L, "completed", 2L), counters(userId));
+        assertEquals(Map.of("total", 1L, "pending", 1L, "completed", 0L), counters(otherUserId));
+    }
+
+    @Test
+    void findSummariesByUserIdOrderByDueDateAscIdAsc_ScrollsThroughAllPages() {
+        taskRepository.save(task(userRepository.getReferenceById(userId), "Second Today Task", "Also due today.", false, today));
+        List<String> titles = new ArrayList<>();
+        Window<TaskSummary> window = taskRepository.findSummariesByUserIdOrderByDueDateAscIdAsc(userId, ScrollPosition.keyset(), Limit.of(2));
+        titles.addAll(window.getContent().stream().map(TaskSummary::title).toList());
+        while (window.hasNext()) {
+            TaskSummary last = window.getContent().getLast();
+            window = taskRepository.findSummariesByUserIdOrderByDueDateAscIdAsc(
+                    userId, ScrollPosition.forward(Map.of("dueDate", last.dueDate(), "id", last.id())), Limit.of(2)
+            );
+            titles.addAll(window.getContent().stream().map(TaskSummary::title).toList());
+        }
+
+        assertEquals(
+                List.of("Overdue Task", "Today Task", "Done Today Task", "Second Today Task", "Next Week Task", "Next Month Task"),
+                titles
+        );
+    }
+
+    @Test
+    void streamAllSnapshots_Success() {
+        try (Stream<TaskSnapshot> snapshots = taskRepository.streamAllSnapshots()) {
+            List<TaskSnapshot> ownTasks = snapshots.filter(task -> task.userId().equals(userId)).toList();
+
+            assertEquals(5, ownTasks.size());
+            assertTrue(ownTasks.stream().anyMatch(task -> task.title().equals("Today Task") && task.description() != null));
+        }
+    }
+
+    @Test
+    void findSnapshotsByIdIn_OnlyReturnsTasksOfTheUser() {
+        Task todayTask = taskRepository.findByUserIdAndTitle(userId, "Today Task").orElseThrow();
+        Long otherId = taskRepository.findByUserIdAndTitle(otherUserId, "Today Task").orElseThrow().getId();
+
+        List<TaskSnapshot> found = taskRepository.findSnapshotsByIdIn(userId, List.of(todayTask.getId(), otherId));
+
+        assertEquals(List.of(TaskSnapshot.of(todayTask)), found);
+    }
+
+    @Test
+    void dueDateProjections_Success() {
+        Task todayTask = taskRepository.findByUserIdAndTitle(userId, "Today Task").orElseThrow();
+        Long otherId = taskRepository.findByUserIdAndTitle(otherUserId, "Today Task").orElseThrow().getId();
+
+        try (Stream<TaskDueDate> dueDates = taskRepository.streamAllDueDates()) {
+            assertEquals(5, dueDates.filter(task -> task.userId().equals(userId)).count());
+        }
+        List<TaskDueDate> found = taskRepository.findDueDatesByIdIn(userId, List.of(todayTask.getId(), otherId));
+
+        assertEquals(List.of(new TaskDueDate(todayTask.getId(), userId, false, todayTask.getDueDate(), todayTask.getVersion())), found);
+    }
+
+    @Test
+    void streamAllByUserIdOrderByDueDateAscIdAsc_Success() {
+        try (Stream<Task> tasks = taskRepository.streamAllByUserIdOrderByDueDateAscIdAsc(userId)) {
+            List<String> titles = tasks.map(Task::getTitle).toList();
+
+            assertEquals(
+                    List.of("Overdue Task", "Today Task", "Done Today Task", "Next Week Task", "Next Month Task"),
+                    titles
+            );
+        }
+    }
+
+    @Test
+    void bulkStatements_Success() {
+        List<Long> pendingIds = taskRepository.findSummariesByUserIdAndCompletedOrderByDueDateAsc(userId, false).stream()
+                .map(TaskSummary::id)
+                .toList();
+        Long doneId = taskRepository.findByUserIdAndTitle(userId, "Done Today Task").orElseThrow().getId();
+        Long otherId = taskRepository.findByUserIdAndTitle(otherUserId, "Today Task").orElseThrow().getId();
+
+        int rescheduled = taskRepository.rescheduleByIdIn(userId, List.of(pendingIds.getFirst(), doneId, otherId), today.plusDays(1));
+        int completed = taskRepository.completeByIdIn(userId, List.of(pendingIds.get(0), pendingIds.get(1), doneId, otherId));
+        int deleted = taskRepository.deleteByIdIn(userId, List.of(pendingIds.get(2), pendingIds.get(3), otherId));
+
+        assertEquals(2, rescheduled);
+        assertEquals(2, completed);
+        assertEquals(2, deleted);
+        assertEquals(new TaskCounts(3, 0, 0, 3), taskRepository.countTasks(userId, today));
+        assertEquals(new TaskCounts(1, 1, 1, 0), taskRepository.countTasks(otherUserId, today));
+        assertEquals(today.plusDays(1), taskRepository.findById(doneId).orElseThrow().getDueDate());
+        assertEquals(1L, taskRepository.findById(doneId).orElseThrow().getVersion());
+        assertEquals(2L, taskRepository.findById(pendingIds.getFirst()).orElseThrow().getVersion());
+        assertEquals(0L, taskRepository.findById(otherId).orElseThrow().getVersion());
+    }
+
+    @Test
+    void save_Failure_StaleVersion() {
+        Task task = taskRepository.findByUserIdAndTitle(userId, "Today Task").orElseThrow();
+        entityManager.detach(task);
+        Task concurrentCopy = taskRepository.findById(task.getId()).orElseThrow();
+        concurrentCopy.setDescription("Changed concurrently.");
+        taskRepository.saveAndFlush(concurrentCopy);
+        entityManager.detach(concurrentCopy);
+
+        task.setDescription("Based on the old version.");
+
+        assertEquals(1L, concurrentCopy.getVersion());
+        assertThrows(ObjectOptimisticLockingFailureException.class, () -> taskRepository.saveAndFlush(task));
+    }
+
+    @Test
+    void pendingByDueDateQuery_UsesUserCompletedDueDateIndex() {
+        String sql = issuedSql(() -> taskRepository.findSummariesByUserIdAndCompletedFalseAndDueDate(userId, today));
+
+        String plan = explain(sql, userId, today);
+
+        assertTrue(plan.toLowerCase().contains(USER_COMPLETED_DUE_DATE_INDEX), sql + "\n" + plan);
+    }
+
+    @Test
+    void pendingByDueDateRangeQuery_UsesUserCompletedDueDateIndex() {
+        String sql = issuedSql(() -> taskRepository.findSummariesByUserIdAndCompletedFalseAndDueDateBeforeOrderByDueDateAsc(userId, today));
+
+        String plan = explain(sql, userId, today);
+
+        assertTrue(plan.toLowerCase().contains(USER_COMPLETED_DUE_DATE_INDEX), sql + "\n" + plan);
+    }
+
+    private static Task task(User user, String title, String description, boolean completed, LocalDate dueDate) {
+        Task task = new Task(title, description, completed, dueDate);
+        task.setUser(user);
+        return task;
+    }
+
+    private Map<String, Long> counters(Long userId) {
+        return taskCounterRepository.findByUserId(userId).stream()
+                .collect(Collectors.toMap(TaskCounter::getName, TaskCounter::getValue));
+    }
+
+    /**
+     * Runs a repository query and returns the one SQL statement Hibernate issued for it.
+     */
+    private String issuedSql(Runnable query) {
+        entityManager.flush();
+        // A query answered from the query cache would issue no statement
+        entityManager.unwrap(Session.class).getSessionFactory().getCache().evictQueryRegions();
+        sqlRecorder.clear();
+        query.run();
+        List<String> statements = sqlRecorder.statements();
+        assertEquals(1, statements.size(), statements.toString());
+        return statements.getFirst();
+    }
+
+    private String explain(String sql, Object... parameters) {
+        return entityManager.unwrap(Session.class).doReturningWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement("EXPLAIN " + sql)) {
+                for (int i = 0; i < parameters.length; i++) {
+                    statement.setObject(i + 1, parameters[i]);
+                }
+                try (ResultSet plan = statement.executeQuery()) {
+                    plan.next();
+                    return plan.getString(1);
+                }
+            }
+        });
+    }
+
+    @TestConfiguration
+    static class SqlRecorderConfig {
+
+        @Bean
+        SqlRecorder sqlRecorder() {
+            return new SqlRecorder();
+        }
+
+        @Bean
+        HibernatePropertiesCustomizer sqlRecorderCustomizer(SqlRecorder sqlRecorder) {
+            return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, sqlRecorder);
+        }
+    }
+
+    /**
+     * Records the SQL statements Hibernate prepares, as they are sent to the database.
+     */
+    static class SqlRecorder implements StatementInspector {
+
+        private final List<String> statements = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            statements.add(sql);
+            return sql;
+        }
+
+        List<String> statements() {
+            return List.copyOf(statements);
+        }
+
+        void clear() {
+            statements.clear();
+        }
+    }
+}
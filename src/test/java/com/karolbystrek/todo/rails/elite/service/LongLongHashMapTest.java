@@ -0,0 +1,68 @@
+package com.karolbystrek.todo.rails.elite.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LongLongHashMapTest {
+
+    @Test
+    void put_ReplacesValueOfTheSameKey() {
+        LongLongHashMap map = new LongLongHashMap();
+
+        map.put(5, 50);
+        map.put(-3, 30);
+        map.put(5, 55);
+
+        assertEquals(2, map.size());
+        assertEquals(55, map.get(5, -1));
+        assertEquals(30, map.get(-3, -1));
+        assertEquals(-1, map.get(4, -1));
+        assertFalse(map.containsKey(4));
+    }
+
+    @Test
+    void put_Failure_ReservedKey() {
+        assertThrows(IllegalArgumentException.class, () -> new LongLongHashMap().put(Long.MIN_VALUE, 1));
+    }
+
+    @Test
+    void remove_MatchesHashMap() {
+        LongLongHashMap map = new LongLongHashMap();
+        Map<Long, Long> expected = new HashMap<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 50_000; i++) {
+            long key = random.nextInt(2000);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key) != null, map.remove(key));
+            } else {
+                long value = random.nextLong();
+                expected.put(key, value);
+                map.put(key, value);
+            }
+        }
+
+        assertEquals(expected.size(), map.size());
+        for (long key = 0; key < 2000; key++) {
+            assertEquals(expected.getOrDefault(key, Long.MIN_VALUE), map.get(key, Long.MIN_VALUE));
+        }
+    }
+
+    @Test
+    void removeValuesIf_KeepsOtherEntries() {
+        LongLongHashMap map = new LongLongHashMap();
+        for (long key = 1; key <= 1000; key++) {
+            map.put(key * 31, key % 3);
+        }
+
+        map.removeValuesIf(value -> value != 0);
+
+        assertEquals(333, map.size());
+        assertTrue(map.containsKey(3 * 31));
+        assertFalse(map.containsKey(31));
+    }
+}
@@ -0,0 +1,55 @@
+package com.karolbystrek.todo.rails.elite.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SortedLongSetTest {
+
+    @Test
+    void add_KeepsValuesSortedAndUnique() {
+        SortedLongSet set = new SortedLongSet();
+
+        assertTrue(set.add(5));
+        assertTrue(set.add(1));
+        assertTrue(set.add(3));
+        assertFalse(set.add(3));
+
+        assertEquals(3, set.size());
+        assertArrayEquals(new long[]{1, 3, 5}, set.toArray());
+        assertTrue(set.contains(3));
+        assertFalse(set.contains(4));
+    }
+
+    @Test
+    void remove_MatchesTreeSet() {
+        SortedLongSet set = new SortedLongSet();
+        TreeSet<Long> expected = new TreeSet<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 10_000; i++) {
+            long value = random.nextInt(500);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(value), set.remove(value));
+            } else {
+                assertEquals(expected.add(value), set.add(value));
+            }
+        }
+
+        assertEquals(expected.size(), set.size());
+        assertArrayEquals(expected.stream().mapToLong(Long::longValue).toArray(), set.toArray());
+    }
+
+    @Test
+    void remove_Failure_ValueMissing() {
+        SortedLongSet set = new SortedLongSet();
+        set.add(1);
+
+        assertFalse(set.remove(2));
+        assertTrue(set.remove(1));
+        assertTrue(set.isEmpty());
+        assertFalse(set.remove(1));
+    }
+}
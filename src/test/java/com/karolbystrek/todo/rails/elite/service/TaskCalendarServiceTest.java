@@ -0,0 +1,236 @@
+package com.karolbystrek.todo.rails.elite.service;
+
+import com.karolbystrek.todo.rails.elite.event.TaskChange;
+import com.karolbystrek.todo.rails.elite.event.TaskChangedEvent;
+import com.karolbystrek.todo.rails.elite.event.TasksBulkChangedEvent;
+import com.karolbystrek.todo.rails.elite.model.CalendarDay;
+import com.karolbystrek.todo.rails.elite.model.TaskDueDate;
+import com.karolbystrek.todo.rails.elite.model.TaskSnapshot;
+import com.karolbystrek.todo.rails.elite.repository.TaskRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class TaskCalendarServiceTest {
+    private static final Long USER_ID = 1L;
+
+    @Mock
+    private TaskRepository taskRepository;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    private TaskCalendarService taskCalendarService;
+
+    private final LocalDate today = LocalDate.now();
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        doAnswer(invocation -> {
+            invocation.<Consumer<TransactionStatus>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        taskCalendarService = new TaskCalendarService(taskRepository, transactionTemplate);
+        taskCalendarService.applyChanges(new TaskChangedEvent(List.of(
+                TaskChange.created(snapshot(1L, false, today.minusDays(2))),
+                TaskChange.created(snapshot(2L, true, today.minusDays(1))),
+                TaskChange.created(snapshot(3L, false, today)),
+                TaskChange.created(snapshot(4L, true, today)),
+                TaskChange.created(snapshot(5L, false, today)),
+                TaskChange.created(snapshot(6L, false, today.plusDays(7)))
+        )));
+    }
+
+    @Test
+    void getCalendar_ReturnsDaysWithTasksInRange() {
+        List<CalendarDay> days = taskCalendarService.getCalendar(USER_ID, today.minusDays(1), today.plusDays(6));
+
+        assertEquals(2, days.size());
+        assertEquals(today.minusDays(1), days.get(0).date());
+        assertEquals(0, days.get(0).pending());
+        assertArrayEquals(new long[]{2}, days.get(0).completedIds());
+        assertEquals(today, days.get(1).date());
+        assertEquals(2, days.get(1).pending());
+        assertEquals(1, days.get(1).completed());
+        assertArrayEquals(new long[]{3, 5}, days.get(1).pendingIds());
+        assertArrayEquals(new long[]{4}, days.get(1).completedIds());
+    }
+
+    @Test
+    void getCalendar_OtherUsersSeeNothing() {
+        assertEquals(List.of(), taskCalendarService.getCalendar(2L, today.minusDays(7), today.plusDays(7)));
+    }
+
+    @Test
+    void getCalendar_Failure_InvalidRange() {
+        assertThrows(IllegalArgumentException.class, () -> taskCalendarService.getCalendar(USER_ID, today, today.minusDays(1)));
+        assertThrows(IllegalArgumentException.class, () -> taskCalendarService.getCalendar(USER_ID, today, today.plusDays(TaskCalendarService.MAX_CALENDAR_DAYS)));
+    }
+
+    @Test
+    void getOverdue_ReturnsPastDaysWithPendingTasks() {
+        List<CalendarDay> days = taskCalendarService.getOverdue(USER_ID);
+
+        assertEquals(1, days.size());
+        assertEquals(today.minusDays(2), days.getFirst().date());
+        assertArrayEquals(new long[]{1}, days.getFirst().pendingIds());
+        assertEquals(0, days.getFirst().completed());
+    }
+
+    @Test
+    void applyChanges_MovesCompletedRescheduledAndDeletedTasks() {
+        TaskSnapshot overdue = snapshot(1L, false, today.minusDays(2));
+        TaskSnapshot dueToday = snapshot(3L, false, today);
+        TaskSnapshot upcoming = snapshot(6L, false, today.plusDays(7));
+
+        taskCalendarService.applyChanges(new TaskChangedEvent(List.of(
+                TaskChange.updated(overdue, snapshot(1L, false, today, 1L)),
+                TaskChange.updated(dueToday, snapshot(3L, true, today, 1L)),
+                TaskChange.deleted(upcoming)
+        )));
+
+        assertEquals(List.of(), taskCalendarService.getOverdue(USER_ID));
+        List<CalendarDay> days = taskCalendarService.getCalendar(USER_ID, today, today.plusDays(7));
+        assertEquals(1, days.size());
+        assertArrayEquals(new long[]{1, 5}, days.getFirst().pendingIds());
+        assertArrayEquals(new long[]{3, 4}, days.getFirst().completedIds());
+    }
+
+    @Test
+    void applyBulkChanges_MovesCompletedRescheduledAndDeletedTasks() {
+        taskCalendarService.applyBulkChanges(TasksBulkChangedEvent.rescheduled(USER_ID, List.of(1L, 2L), today));
+        taskCalendarService.applyBulkChanges(TasksBulkChangedEvent.completed(USER_ID, List.of(3L, 4L, 99L)));
+        taskCalendarService.applyBulkChanges(TasksBulkChangedEvent.deleted(USER_ID, List.of(6L)));
+        taskCalendarService.applyBulkChanges(TasksBulkChangedEvent.deleted(2L, List.of(5L)));
+
+        assertEquals(List.of(), taskCalendarService.getOverdue(USER_ID));
+        List<CalendarDay> days = taskCalendarService.getCalendar(USER_ID, today.minusDays(7), today.plusDays(7));
+        assertEquals(1, days.size());
+        assertArrayEquals(new long[]{1, 5}, days.getFirst().pendingIds());
+        assertArrayEquals(new long[]{2, 3, 4}, days.getFirst().completedIds());
+    }
+
+    @Test
+    void applyChanges_SameChangeTwiceHasNoFurtherEffect() {
+        TaskSnapshot dueToday = snapshot(3L, false, today);
+        TaskChangedEvent event = new TaskChangedEvent(List.of(TaskChange.updated(dueToday, snapshot(3L, true, today, 1L))));
+
+        taskCalendarService.applyChanges(event);
+        taskCalendarService.applyChanges(event);
+
+        CalendarDay day = taskCalendarService.getCalendar(USER_ID, today, today).getFirst();
+        assertArrayEquals(new long[]{5}, day.pendingIds());
+        assertArrayEquals(new long[]{3, 4}, day.completedIds());
+    }
+
+    @Test
+    void applyChanges_IgnoresStatesOlderThanTheIndexedOne() {
+        TaskSnapshot dueToday = snapshot(3L, false, today);
+        TaskSnapshot completed = snapshot(3L, true, today, 1L);
+        TaskSnapshot rescheduled = snapshot(3L, true, today.plusDays(1), 2L);
+        TaskSnapshot upcoming = snapshot(6L, false, today.plusDays(7));
+
+        taskCalendarService.applyChanges(new TaskChangedEvent(List.of(TaskChange.updated(completed, rescheduled))));
+        taskCalendarService.applyChanges(new TaskChangedEvent(List.of(TaskChange.updated(dueToday, completed))));
+        taskCalendarService.applyChanges(new TaskChangedEvent(List.of(TaskChange.deleted(upcoming))));
+        taskCalendarService.applyChanges(new TaskChangedEvent(List.of(TaskChange.updated(upcoming, snapshot(6L, true, today, 1L)))));
+
+        List<CalendarDay> days = taskCalendarService.getCalendar(USER_ID, today, today.plusDays(7));
+        assertEquals(2, days.size());
+        assertArrayEquals(new long[]{5}, days.get(0).pendingIds());
+        assertArrayEquals(new long[]{4}, days.get(0).completedIds());
+        assertEquals(today.plusDays(1), days.get(1).date());
+        assertArrayEquals(new long[]{3}, days.get(1).completedIds());
+    }
+
+    @Test
+    void sweepTombstones_ForgetsDeletionsAfterAFullInterval() {
+        TaskSnapshot upcoming = snapshot(6L, false, today.plusDays(7));
+        TaskChangedEvent staleUpdate = new TaskChangedEvent(List.of(TaskChange.updated(upcoming, snapshot(6L, true, today, 1L))));
+        taskCalendarService.applyChanges(new TaskChangedEvent(List.of(TaskChange.deleted(upcoming))));
+
+        taskCalendarService.sweepTombstones();
+        taskCalendarService.applyChanges(staleUpdate);
+
+        assertArrayEquals(new long[]{4}, taskCalendarService.getCalendar(USER_ID, today, today).getFirst().completedIds());
+
+        taskCalendarService.sweepTombstones();
+        taskCalendarService.applyChanges(staleUpdate);
+
+        assertArrayEquals(new long[]{4, 6}, taskCalendarService.getCalendar(USER_ID, today, today).getFirst().completedIds());
+    }
+
+    @Test
+    void reload_IndexesTheCurrentStateOfTasks() {
+        when(taskRepository.findDueDatesByIdIn(USER_ID, List.of(1L, 3L))).thenReturn(List.of(
+                new TaskDueDate(1L, USER_ID, true, today.plusDays(1), 1L),
+                new TaskDueDate(3L, USER_ID, false, today, 0L)
+        ));
+
+        taskCalendarService.reload(USER_ID, List.of(1L, 3L));
+
+        assertEquals(List.of(), taskCalendarService.getOverdue(USER_ID));
+        List<CalendarDay> days = taskCalendarService.getCalendar(USER_ID, today, today.plusDays(1));
+        assertEquals(2, days.size());
+        assertArrayEquals(new long[]{3, 5}, days.get(0).pendingIds());
+        assertArrayEquals(new long[]{1}, days.get(1).completedIds());
+    }
+
+    @Test
+    void rebuild_IndexesAllTasks() {
+        when(taskRepository.streamAllDueDates()).thenReturn(Stream.of(new TaskDueDate(10L, USER_ID, false, today.plusDays(1), 0L)));
+
+        assertEquals(1, taskCalendarService.rebuild());
+
+        List<CalendarDay> days = taskCalendarService.getCalendar(USER_ID, today.minusDays(7), today.plusDays(7));
+        assertEquals(1, days.size());
+        assertArrayEquals(new long[]{10}, days.getFirst().pendingIds());
+    }
+
+    @Test
+    void rebuild_ChangesCommittedMeanwhileTakePrecedence() {
+        TaskSnapshot pending = snapshot(10L, false, today.plusDays(1));
+        when(taskRepository.streamAllDueDates()).thenReturn(Stream.of(
+                new TaskDueDate(10L, USER_ID, false, today.plusDays(1), 0L),
+                new TaskDueDate(11L, USER_ID, false, today.plusDays(1), 0L)
+        ).peek(task -> {
+            if (task.id() == 10L) {
+                taskCalendarService.applyChanges(new TaskChangedEvent(List.of(
+                        TaskChange.updated(pending, snapshot(10L, true, today.plusDays(1), 1L)),
+                        TaskChange.deleted(snapshot(11L, false, today.plusDays(1)))
+                )));
+            }
+        }));
+
+        assertEquals(1, taskCalendarService.rebuild());
+
+        CalendarDay day = taskCalendarService.getCalendar(USER_ID, today, today.plusDays(1)).getFirst();
+        assertEquals(today.plusDays(1), day.date());
+        assertEquals(0, day.pending());
+        assertArrayEquals(new long[]{10}, day.completedIds());
+    }
+
+
+    private TaskSnapshot snapshot(Long id, boolean completed, LocalDate dueDate) {
+        return snapshot(id, completed, dueDate, 0L);
+    }
+
+    private TaskSnapshot snapshot(Long id, boolean completed, LocalDate dueDate, Long version) {
+        return new TaskSnapshot(id, USER_ID, "Task " + id, "Description of task " + id, completed, dueDate, version);
+    }
+}
@@ -0,0 +1,226 @@
+package com.karolbystrek.todo.rails.elite.service;
+
+import com.karolbystrek.todo.rails.elite.event.TaskChange;
+import com.karolbystrek.todo.rails.elite.config.TaskCounterCacheProperties;
+import com.karolbystrek.todo.rails.elite.event.TaskChangedEvent;
+import com.karolbystrek.todo.rails.elite.event.TasksBulkChangedEvent;
+import com.karolbystrek.todo.rails.elite.model.TaskCounter;
+import com.karolbystrek.todo.rails.elite.model.TaskCounts;
+import com.karolbystrek.todo.rails.elite.model.TaskSnapshot;
+import com.karolbystrek.todo.rails.elite.repository.TaskCounterRepository;
+import com.karolbystrek.todo.rails.elite.repository.TaskRepository;
+import com.karolbystrek.todo.rails.elite.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class TaskCounterServiceTest {
+    @Mock
+    private TaskRepository taskRepository;
+
+    @Mock
+    private TaskCounterRepository taskCounterRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    private TaskCounterService taskCounterService;
+
+    private final LocalDate today = LocalDate.now();
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(transactionTemplate.execute(any())).thenAnswer(
+                invocation -> invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null)
+        );
+        when(taskRepository.countTasks(1L, today)).thenReturn(new TaskCounts(5, 3, 1, 2));
+        when(taskRepository.countTasks(2L, today)).thenReturn(new TaskCounts(0, 0, 0, 0));
+        when(taskCounterRepository.increment(anyLong(), anyString(), anyLong())).thenReturn(1);
+        taskCounterService = new TaskCounterService(
+                taskRepository,
+                taskCounterRepository,
+                userRepository,
+                transactionTemplate,
+                new TaskCounterCacheProperties(100)
+        );
+    }
+
+    @Test
+    void rebuild_PersistsRecountOfEveryUser() {
+        when(userRepository.findAllIds()).thenReturn(List.of(1L, 2L));
+
+        int users = taskCounterService.rebuild();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<TaskCounter>> saved = ArgumentCaptor.forClass(List.class);
+        verify(taskCounterRepository).deleteAllInBatch();
+        verify(taskCounterRepository, times(2)).saveAll(saved.capture());
+        assertEquals(2, users);
+        assertEquals(
+                List.of(
+                        new TaskCounter(1L, TaskCounterService.TOTAL, 5),
+                        new TaskCounter(1L, TaskCounterService.PENDING, 3),
+                        new TaskCounter(1L, TaskCounterService.COMPLETED, 2)
+                ),
+                saved.getAllValues().getFirst()
+        );
+        assertTrue(saved.getAllValues().getLast().stream().allMatch(counter -> counter.getValue() == 0));
+    }
+
+    @Test
+    void getCounts_ReadsPersistedCountersWithoutRecount() {
+        when(taskCounterRepository.findByUserId(1L)).thenReturn(List.of(
+                new TaskCounter(1L, TaskCounterService.TOTAL, 16),
+                new TaskCounter(1L, TaskCounterService.PENDING, 8),
+                new TaskCounter(1L, TaskCounterService.COMPLETED, 8)
+        ));
+        when(taskRepository.countByUserIdAndCompletedFalseAndDueDate(1L, today)).thenReturn(4L);
+
+        assertEquals(new TaskCounts(16, 8, 4, 8), taskCounterService.getCounts(1L));
+        verify(taskRepository, never()).countTasks(any(), any());
+    }
+
+    @Test
+    void getCounts_ServesCachedCountersUpdatedByCommittedChanges() {
+        persistedCounters(1L, 16, 8, 8, 4);
+        getCountsTwice(1L);
+        TaskSnapshot task = new TaskSnapshot(1L, 1L, "Task", "Description.", false, today, 0L);
+
+        taskCounterService.applyChanges(new TaskChangedEvent(List.of(
+                TaskChange.created(task),
+                TaskChange.created(task.withCompleted(true))
+        )));
+
+        assertEquals(new TaskCounts(18, 9, 5, 9), taskCounterService.getCounts(1L));
+        verify(taskCounterRepository, times(1)).findByUserId(1L);
+        verify(taskRepository, times(1)).countByUserIdAndCompletedFalseAndDueDate(1L, today);
+        assertEquals(1, taskCounterService.getCachedCount());
+    }
+
+    @Test
+    void getCounts_NotCachedWhileWriteIsInFlight() {
+        persistedCounters(1L, 16, 8, 8, 4);
+        TaskSnapshot task = new TaskSnapshot(1L, 1L, "Task", "Description.", false, today, 0L);
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            taskCounterService.persistChanges(new TaskChangedEvent(List.of(TaskChange.created(task))));
+
+            getCountsTwice(1L);
+            verify(taskCounterRepository, times(2)).findByUserId(1L);
+
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        getCountsTwice(1L);
+        verify(taskCounterRepository, times(3)).findByUserId(1L);
+    }
+
+    @Test
+    void getCounts_ReloadsAfterBulkChangesAndRollover() {
+        persistedCounters(1L, 16, 8, 8, 4);
+        getCountsTwice(1L);
+
+        taskCounterService.applyBulkChanges(TasksBulkChangedEvent.deleted(1L, List.of(1L)));
+        getCountsTwice(1L);
+        taskCounterService.rollover(today);
+        taskCounterService.getCounts(1L);
+        taskCounterService.rollover(today.plusDays(1));
+
+        assertEquals(0, taskCounterService.getCachedCount());
+        verify(taskCounterRepository, times(2)).findByUserId(1L);
+    }
+
+    @Test
+    void getCounts_Failure_MissingCountersFallBackToRecount() {
+        when(taskCounterRepository.findByUserId(1L)).thenReturn(List.of());
+
+        assertEquals(new TaskCounts(5, 3, 1, 2), taskCounterService.getCounts(1L));
+    }
+
+    @Test
+    void initialize_RebuildsOnlyWhenCountersAreMissing() {
+        when(taskCounterRepository.count()).thenReturn(6L);
+        when(userRepository.count()).thenReturn(2L);
+
+        taskCounterService.initialize();
+
+        verify(taskCounterRepository, never()).deleteAllInBatch();
+
+        when(taskCounterRepository.count()).thenReturn(0L);
+
+        taskCounterService.initialize();
+
+        verify(taskCounterRepository).deleteAllInBatch();
+    }
+
+    @Test
+    void persistChanges_IncrementsTheCountersOfEachUser() {
+        TaskSnapshot task = new TaskSnapshot(1L, 1L, "Task", "Description.", false, today, 0L);
+        TaskSnapshot otherTask = new TaskSnapshot(2L, 2L, "Other task", "Description.", true, today, 0L);
+
+        taskCounterService.persistChanges(new TaskChangedEvent(List.of(
+                TaskChange.updated(task, task.withCompleted(true)),
+                TaskChange.created(otherTask)
+        )));
+
+        verify(taskCounterRepository).increment(1L, TaskCounterService.PENDING, -1);
+        verify(taskCounterRepository).increment(1L, TaskCounterService.COMPLETED, 1);
+        verify(taskCounterRepository, never()).increment(eq(1L), eq(TaskCounterService.TOTAL), anyLong());
+        verify(taskCounterRepository).increment(2L, TaskCounterService.TOTAL, 1);
+        verify(taskCounterRepository).increment(2L, TaskCounterService.COMPLETED, 1);
+        verify(taskCounterRepository, never()).increment(eq(2L), eq(TaskCounterService.PENDING), anyLong());
+    }
+
+    @Test
+    void rebuild_EvictsCachedCounters() {
+        persistedCounters(1L, 16, 8, 8, 4);
+        taskCounterService.getCounts(1L);
+
+        taskCounterService.rebuild(1L);
+
+        assertEquals(0, taskCounterService.getCachedCount());
+    }
+
+    @Test
+    void createCounters_PersistsRecountOfTheUser() {
+        assertEquals(new TaskCounts(0, 0, 0, 0), taskCounterService.createCounters(2L));
+
+        verify(taskCounterRepository).saveAll(List.of(
+                new TaskCounter(2L, TaskCounterService.TOTAL, 0),
+                new TaskCounter(2L, TaskCounterService.PENDING, 0),
+                new TaskCounter(2L, TaskCounterService.COMPLETED, 0)
+        ));
+    }
+
+    private void persistedCounters(Long userId, long total, long pending, long completed, long pendingToday) {
+        when(taskCounterRepository.findByUserId(userId)).thenReturn(List.of(
+                new TaskCounter(userId, TaskCounterService.TOTAL, total),
+                new TaskCounter(userId, TaskCounterService.PENDING, pending),
+                new TaskCounter(userId, TaskCounterService.COMPLETED, completed)
+        ));
+        when(taskRepository.countByUserIdAndCompletedFalseAndDueDate(userId, today)).thenReturn(pendingToday);
+    }
+
+    private void getCountsTwice(Long userId) {
+        assertEquals(taskCounterService.getCounts(userId), taskCounterService.getCounts(userId));
+    }
+}
@@ -0,0 +1,48 @@
+package com.karolbystrek.todo.rails.elite.service;
+
+import com.karolbystrek.todo.rails.elite.event.TaskChange;
+import com.karolbystrek.todo.rails.elite.event.TaskChangedEvent;
+import com.karolbystrek.todo.rails.elite.model.TaskSnapshot;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TaskDataVersionServiceTest {
+    private final TaskDataVersionService taskDataVersionService = new TaskDataVersionService();
+
+    private final LocalDate today = LocalDate.now();
+
+    @Test
+    void applyChanges_BumpsEveryOwnerOnce() {
+        TaskSnapshot task = new TaskSnapshot(1L, 1L, "Task", "Description.", false, today, 0L);
+        TaskSnapshot otherTask = new TaskSnapshot(2L, 2L, "Other task", "Description.", false, today, 0L);
+
+        taskDataVersionService.applyChanges(new TaskChangedEvent(List.of(
+                TaskChange.updated(task, task.withCompleted(true)),
+                TaskChange.deleted(task),
+                TaskChange.created(otherTask)
+        )));
+
+        assertEquals(1, taskDataVersionService.getVersion(1L));
+        assertEquals(1, taskDataVersionService.getVersion(2L));
+        assertEquals(0, taskDataVersionService.getVersion(3L));
+    }
+
+    @Test
+    void getETag_ChangesOnlyWithTheUsersVersion() {
+        String eTag = taskDataVersionService.getETag(1L);
+        String otherETag = taskDataVersionService.getETag(2L);
+
+        assertEquals(eTag, taskDataVersionService.getETag(1L));
+        assertNotEquals(eTag, otherETag);
+
+        taskDataVersionService.invalidate(2L);
+
+        assertEquals(eTag, taskDataVersionService.getETag(1L));
+        assertNotEquals(otherETag, taskDataVersionService.getETag(2L));
+        assertTrue(eTag.startsWith("\"") && eTag.endsWith("\""));
+    }
+}
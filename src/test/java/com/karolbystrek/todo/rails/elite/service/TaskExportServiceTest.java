@@ -0,0 +1,87 @@
+package com.karolbystrek.todo.rails.elite.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.karolbystrek.todo.rails.elite.model.Task;
+import com.karolbystrek.todo.rails.elite.repository.TaskRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class TaskExportServiceTest {
+    @Mock
+    private TaskRepository taskRepository;
+
+    @Mock
+    private EntityManager entityManager;
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json()
+            .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .build();
+
+    private TaskExportService taskExportService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        taskExportService = new TaskExportService(taskRepository, entityManager, objectMapper);
+    }
+
+    @Test
+    void exportTasks_WritesOneJsonObjectPerLine() throws Exception {
+        Task first = new Task("First Task", "First description.", false, LocalDate.of(2025, 1, 1));
+        Task second = new Task("Second Task", "Second description.", true, LocalDate.of(2025, 1, 2));
+        when(taskRepository.streamAllByUserIdOrderByDueDateAscIdAsc(1L)).thenReturn(Stream.of(first, second));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        long exported = taskExportService.exportTasks(1L, output);
+
+        String[] lines = output.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, exported);
+        assertEquals(2, lines.length);
+        JsonNode firstLine = objectMapper.readTree(lines[0]);
+        assertEquals("First Task", firstLine.get("title").asText());
+        assertEquals("2025-01-01", firstLine.get("dueDate").asText());
+        assertTrue(objectMapper.readTree(lines[1]).get("completed").asBoolean());
+        verify(entityManager).detach(first);
+        verify(entityManager).detach(second);
+    }
+
+    @Test
+    void exportTasks_DetachesEveryTask() throws Exception {
+        int taskCount = TaskExportService.FLUSH_INTERVAL * 2 + 1;
+        when(taskRepository.streamAllByUserIdOrderByDueDateAscIdAsc(1L)).thenReturn(
+                IntStream.range(0, taskCount)
+                        .mapToObj(i -> new Task("Task " + i, "Description " + i, false, LocalDate.now()))
+        );
+
+        long exported = taskExportService.exportTasks(1L, new ByteArrayOutputStream());
+
+        assertEquals(taskCount, exported);
+        verify(entityManager, times(taskCount)).detach(any(Task.class));
+    }
+
+    @Test
+    void exportTasks_EmptyTable() throws Exception {
+        when(taskRepository.streamAllByUserIdOrderByDueDateAscIdAsc(1L)).thenReturn(Stream.empty());
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        long exported = taskExportService.exportTasks(1L, output);
+
+        assertEquals(0, exported);
+        assertEquals(0, output.size());
+    }
+}
@@ -0,0 +1,168 @@
+package com.karolbystrek.todo.rails.elite.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.karolbystrek.todo.rails.elite.event.TaskChangedEvent;
+import com.karolbystrek.todo.rails.elite.model.ImportReport;
+import com.karolbystrek.todo.rails.elite.model.Task;
+import com.karolbystrek.todo.rails.elite.model.User;
+import com.karolbystrek.todo.rails.elite.repository.TaskRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class TaskImportServiceTest {
+    private static final Long USER_ID = 1L;
+
+    @Mock
+    private TaskRepository taskRepository;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private TaskImportService taskImportService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(transactionTemplate.execute(any())).thenAnswer(
+                invocation -> invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null)
+        );
+        when(taskRepository.findExistingTitles(eq(USER_ID), anyCollection())).thenReturn(Set.of());
+        User user = new User("importer", "password", "importer@example.com", "USER");
+        user.setId(USER_ID);
+        when(entityManager.getReference(User.class, USER_ID)).thenReturn(user);
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        try (ValidatorFactory factory = Validation.buildDefaultValidatorFactory()) {
+            Validator validator = factory.getValidator();
+            taskImportService = new TaskImportService(taskRepository, entityManager, objectMapper, validator, transactionTemplate, eventPublisher);
+        }
+    }
+
+    @Test
+    void importJson_Success() throws Exception {
+        String json = """
+                [
+                  {"title": "First Task", "description": "First description.", "completed": false, "dueDate": "2025-01-01"},
+                  {"id": 99, "title": "Second Task", "description": "Second description.", "completed": true, "dueDate": "2025-01-02"}
+                ]
+                """;
+
+        ImportReport report = taskImportService.importJson(USER_ID, stream(json));
+
+        ArgumentCaptor<Task> persisted = ArgumentCaptor.forClass(Task.class);
+        verify(entityManager, times(2)).persist(persisted.capture());
+        assertEquals(2, report.imported());
+        assertEquals("Second Task", persisted.getAllValues().get(1).getTitle());
+        assertNull(persisted.getAllValues().get(1).getId());
+        assertTrue(persisted.getAllValues().get(1).isCompleted());
+        assertEquals(USER_ID, persisted.getAllValues().get(1).getUser().getId());
+        verify(entityManager).flush();
+        verify(entityManager).clear();
+        ArgumentCaptor<TaskChangedEvent> event = ArgumentCaptor.forClass(TaskChangedEvent.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        assertEquals(2, event.getValue().changes().size());
+        assertNull(event.getValue().changes().getFirst().before());
+        assertEquals(USER_ID, event.getValue().changes().getFirst().after().userId());
+    }
+
+    @Test
+    void importJson_SkipsDuplicatesAndInvalidRows() throws Exception {
+        when(taskRepository.findExistingTitles(eq(USER_ID), anyCollection())).thenReturn(Set.of("Existing Task"));
+        String json = """
+                [
+                  {"title": "New Task", "description": "New.", "dueDate": "2025-01-01"},
+                  {"title": "new task", "description": "Same title, different case.", "dueDate": "2025-01-01"},
+                  {"title": "Existing Task", "description": "Already stored.", "dueDate": "2025-01-01"},
+                  {"title": "", "description": "Missing title.", "dueDate": "2025-01-01"}
+                ]
+                """;
+
+        ImportReport report = taskImportService.importJson(USER_ID, stream(json));
+
+        assertEquals(1, report.imported());
+        assertEquals(2, report.skippedDuplicates());
+        assertEquals(1, report.rejectedInvalid());
+        verify(entityManager, times(1)).persist(any(Task.class));
+    }
+
+    @Test
+    void importJson_ChecksTitlesOncePerChunk() throws Exception {
+        StringBuilder json = new StringBuilder("[");
+        int taskCount = TaskImportService.CHUNK_SIZE + 1;
+        for (int i = 0; i < taskCount; i++) {
+            json.append(i == 0 ? "" : ",")
+                    .append("{\"title\": \"Task ").append(i)
+                    .append("\", \"description\": \"Description\", \"dueDate\": \"2025-01-01\"}");
+        }
+        json.append("]");
+
+        ImportReport report = taskImportService.importJson(USER_ID, stream(json.toString()));
+
+        assertEquals(taskCount, report.imported());
+        verify(taskRepository, times(2)).findExistingTitles(eq(USER_ID), anyCollection());
+        verify(transactionTemplate, times(2)).execute(any());
+    }
+
+    @Test
+    void importJson_Failure_NotAnArray() {
+        assertThrows(IllegalArgumentException.class, () -> taskImportService.importJson(USER_ID, stream("{\"title\": \"Task\"}")));
+    }
+
+    @Test
+    void importCsv_Success() throws Exception {
+        String csv = """
+                due_date,title,description,completed
+                2025-03-01,Plain Task,Simple description,false
+                2025-03-02,"Quoted, Task","Says ""hello""
+                across lines",true
+                not-a-date,Broken Task,Invalid due date,false
+                """;
+
+        ImportReport report = taskImportService.importCsv(USER_ID, stream(csv));
+
+        ArgumentCaptor<Task> persisted = ArgumentCaptor.forClass(Task.class);
+        verify(entityManager, times(2)).persist(persisted.capture());
+        List<Task> tasks = persisted.getAllValues();
+        assertEquals(2, report.imported());
+        assertEquals(1, report.rejectedInvalid());
+        assertEquals("Quoted, Task", tasks.get(1).getTitle());
+        assertEquals("Says \"hello\"\nacross lines", tasks.get(1).getDescription());
+        assertEquals(LocalDate.of(2025, 3, 2), tasks.get(1).getDueDate());
+        assertTrue(tasks.get(1).isCompleted());
+    }
+
+    @Test
+    void importCsv_Failure_MissingTitleColumn() {
+        assertThrows(IllegalArgumentException.class, () -> taskImportService.importCsv(USER_ID, stream("description,dueDate\n")));
+    }
+
+    private static InputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,127 @@
+package com.karolbystrek.todo.rails.elite.service;
+
+import com.karolbystrek.todo.rails.elite.event.TaskChange;
+import com.karolbystrek.todo.rails.elite.event.TaskChangedEvent;
+import com.karolbystrek.todo.rails.elite.event.TasksBulkChangedEvent;
+import com.karolbystrek.todo.rails.elite.event.TasksDueEvent;
+import com.karolbystrek.todo.rails.elite.model.TaskCounts;
+import com.karolbystrek.todo.rails.elite.model.TaskReminder;
+import com.karolbystrek.todo.rails.elite.model.TaskSnapshot;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.core.task.AsyncTaskExecutor;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class TaskNotificationServiceTest {
+    @Mock
+    private TaskCounterService taskCounterService;
+
+    @Mock
+    private TaskDataVersionService taskDataVersionService;
+
+    @Mock
+    private AsyncTaskExecutor taskExecutor;
+
+    private TaskNotificationService taskNotificationService;
+
+    private final LocalDate today = LocalDate.now();
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(0).run();
+            return null;
+        }).when(taskExecutor).execute(any(Runnable.class));
+        when(taskCounterService.getCounts(anyLong())).thenReturn(new TaskCounts(1, 1, 0, 0));
+        taskNotificationService = new TaskNotificationService(taskCounterService, taskDataVersionService, taskExecutor);
+    }
+
+    @Test
+    void subscribe_SendsCurrentCounters() {
+        taskNotificationService.subscribe(1L);
+        taskNotificationService.subscribe(1L);
+
+        assertEquals(2, taskNotificationService.getSubscriberCount());
+        verify(taskCounterService, times(2)).getCounts(1L);
+    }
+
+    @Test
+    void broadcast_NotifiesOnlySubscribedUsers() {
+        taskNotificationService.subscribe(1L);
+        clearInvocations(taskCounterService);
+        TaskSnapshot task = new TaskSnapshot(1L, 1L, "Task", "Description.", false, today, 0L);
+        TaskSnapshot otherTask = new TaskSnapshot(2L, 2L, "Other task", "Description.", false, today, 0L);
+
+        taskNotificationService.broadcast(new TaskChangedEvent(List.of(
+                TaskChange.updated(task, task.withCompleted(true)),
+                TaskChange.deleted(task),
+                TaskChange.created(otherTask)
+        )));
+
+        verify(taskExecutor, times(1)).execute(any(Runnable.class));
+        verify(taskCounterService).getCounts(1L);
+        verify(taskCounterService, never()).getCounts(2L);
+    }
+
+    @Test
+    void broadcast_BulkChangesNotifyOnlyTheirUser() {
+        taskNotificationService.subscribe(1L);
+        clearInvocations(taskCounterService);
+
+        taskNotificationService.broadcast(TasksBulkChangedEvent.deleted(1L, List.of(1L, 2L)));
+        taskNotificationService.broadcast(TasksBulkChangedEvent.completed(2L, List.of(3L)));
+
+        verify(taskExecutor, times(1)).execute(any(Runnable.class));
+        verify(taskCounterService).getCounts(1L);
+        verify(taskCounterService, never()).getCounts(2L);
+    }
+
+    @Test
+    void remind_NotifiesOnlySubscribedUsers() {
+        taskNotificationService.subscribe(1L);
+        clearInvocations(taskCounterService);
+
+        taskNotificationService.remind(new TasksDueEvent(
+                List.of(new TaskReminder(1L, 1L, today), new TaskReminder(2L, 2L, today)),
+                List.of(new TaskReminder(3L, 1L, today.minusDays(1)))
+        ));
+
+        verify(taskExecutor, times(1)).execute(any(Runnable.class));
+        verify(taskCounterService).getCounts(1L);
+        verify(taskCounterService, never()).getCounts(2L);
+        assertEquals(1, taskNotificationService.getSubscriberCount());
+    }
+
+    @Test
+    void broadcast_NoSubscribers() {
+        TaskSnapshot task = new TaskSnapshot(1L, 1L, "Task", "Description.", false, today, 0L);
+
+        taskNotificationService.broadcast(new TaskChangedEvent(List.of(TaskChange.created(task))));
+
+        verifyNoInteractions(taskExecutor, taskCounterService);
+    }
+
+    @Test
+    void broadcast_LargeChangesStillPushCounters() {
+        taskNotificationService.subscribe(1L);
+        clearInvocations(taskCounterService);
+        List<TaskChange> changes = new ArrayList<>();
+        for (long id = 0; id <= TaskNotificationService.MAX_CHANGES_PER_NOTIFICATION; id++) {
+            changes.add(TaskChange.created(new TaskSnapshot(id, 1L, "Task " + id, "Imported.", false, today, 0L)));
+        }
+
+        taskNotificationService.broadcast(new TaskChangedEvent(changes));
+
+        verify(taskCounterService).getCounts(1L);
+        assertEquals(1, taskNotificationService.getSubscriberCount());
+    }
+}
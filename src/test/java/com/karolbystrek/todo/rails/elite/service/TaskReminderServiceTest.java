@@ -0,0 +1,216 @@
+package com.karolbystrek.todo.rails.elite.service;
+
+import com.karolbystrek.todo.rails.elite.event.TaskChange;
+import com.karolbystrek.todo.rails.elite.event.TaskChangedEvent;
+import com.karolbystrek.todo.rails.elite.event.TasksBulkChangedEvent;
+import com.karolbystrek.todo.rails.elite.event.TasksDueEvent;
+import com.karolbystrek.todo.rails.elite.model.TaskReminder;
+import com.karolbystrek.todo.rails.elite.model.TaskSnapshot;
+import com.karolbystrek.todo.rails.elite.repository.TaskRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class TaskReminderServiceTest {
+    private static final Long USER_ID = 1L;
+
+    @Mock
+    private TaskRepository taskRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private TaskWriteBehindService taskWriteBehindService;
+
+    private TaskReminderService taskReminderService;
+
+    private final LocalDate today = LocalDate.now();
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        doAnswer(invocation -> {
+            invocation.<Consumer<TransactionStatus>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+        taskReminderService = new TaskReminderService(taskRepository, eventPublisher, transactionTemplate, taskWriteBehindService);
+    }
+
+    @AfterEach
+    void tearDown() {
+        taskReminderService.shutdown();
+    }
+
+    @Test
+    void advanceTo_PublishesDueThenOverdueTasks() {
+        taskReminderService.applyChanges(new TaskChangedEvent(List.of(
+                TaskChange.created(snapshot(1L, false, today.plusDays(1))),
+                TaskChange.created(snapshot(2L, false, today)),
+                TaskChange.created(snapshot(3L, false, today.plusDays(30)))
+        )));
+        assertEquals(3, taskReminderService.getScheduledCount());
+
+        TasksDueEvent tomorrow = taskReminderService.advanceTo(today.plusDays(1));
+        assertEquals(List.of(reminder(1L, today.plusDays(1))), tomorrow.due());
+        assertEquals(List.of(reminder(2L, today)), tomorrow.overdue());
+
+        TasksDueEvent dayAfter = taskReminderService.advanceTo(today.plusDays(2));
+        assertEquals(List.of(), dayAfter.due());
+        assertEquals(List.of(reminder(1L, today.plusDays(1))), dayAfter.overdue());
+
+        verify(eventPublisher).publishEvent(tomorrow);
+        verify(eventPublisher).publishEvent(dayAfter);
+        verify(taskWriteBehindService, times(2)).flushAll();
+        assertEquals(1, taskReminderService.getScheduledCount());
+    }
+
+    @Test
+    void advanceTo_SkippedDaysOnlyReportOverdueTasks() {
+        taskReminderService.applyChanges(new TaskChangedEvent(List.of(
+                TaskChange.created(snapshot(1L, false, today.plusDays(1))),
+                TaskChange.created(snapshot(2L, false, today.plusDays(3)))
+        )));
+
+        TasksDueEvent event = taskReminderService.advanceTo(today.plusDays(3));
+
+        assertEquals(List.of(reminder(2L, today.plusDays(3))), event.due());
+        assertEquals(List.of(reminder(1L, today.plusDays(1))), event.overdue());
+    }
+
+    @Test
+    void advanceTo_NothingDue() {
+        assertNull(taskReminderService.advanceTo(today.plusDays(1)));
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    void applyChanges_CancelsCompletedRescheduledAndDeletedTasks() {
+        TaskSnapshot completed = snapshot(1L, false, today.plusDays(1));
+        TaskSnapshot rescheduled = snapshot(2L, false, today.plusDays(1));
+        TaskSnapshot deleted = snapshot(3L, false, today.plusDays(1));
+        taskReminderService.applyChanges(new TaskChangedEvent(List.of(
+                TaskChange.created(completed),
+                TaskChange.created(rescheduled),
+                TaskChange.created(deleted),
+                TaskChange.created(snapshot(4L, false, today.minusDays(1)))
+        )));
+
+        taskReminderService.applyChanges(new TaskChangedEvent(List.of(
+                TaskChange.updated(completed, completed.withCompleted(true)),
+                TaskChange.updated(rescheduled, rescheduled.withDueDate(today.plusDays(5))),
+                TaskChange.deleted(deleted)
+        )));
+
+        assertEquals(1, taskReminderService.getScheduledCount());
+        assertNull(taskReminderService.advanceTo(today.plusDays(1)));
+        assertEquals(List.of(reminder(2L, today.plusDays(5))), taskReminderService.advanceTo(today.plusDays(5)).due());
+    }
+
+    @Test
+    void applyBulkChanges_CancelsAndMovesScheduledTasksOfTheUser() {
+        taskReminderService.applyChanges(new TaskChangedEvent(List.of(
+                TaskChange.created(snapshot(1L, false, today.plusDays(1))),
+                TaskChange.created(snapshot(2L, false, today.plusDays(1))),
+                TaskChange.created(snapshot(3L, false, today.plusDays(1))),
+                TaskChange.created(new TaskSnapshot(4L, 2L, "Task 4", "Of another user.", false, today.plusDays(1), 0L))
+        )));
+
+        taskReminderService.applyBulkChanges(TasksBulkChangedEvent.completed(USER_ID, List.of(1L, 4L)));
+        taskReminderService.applyBulkChanges(TasksBulkChangedEvent.deleted(USER_ID, List.of(2L)));
+        taskReminderService.applyBulkChanges(TasksBulkChangedEvent.rescheduled(USER_ID, List.of(3L), today.plusDays(3)));
+
+        assertEquals(
+                List.of(new TaskReminder(4L, 2L, today.plusDays(1))),
+                taskReminderService.advanceTo(today.plusDays(1)).due()
+        );
+        assertEquals(List.of(reminder(3L, today.plusDays(3))), taskReminderService.advanceTo(today.plusDays(3)).due());
+    }
+
+    @Test
+    void reload_SchedulesPendingTasksUnlessChangedMeanwhile() {
+        when(taskRepository.findPendingRemindersByIdIn(USER_ID, List.of(1L, 2L, 3L), today)).thenAnswer(invocation -> {
+            // Completed after the tasks were read back, the query still returns the old row
+            taskReminderService.applyBulkChanges(TasksBulkChangedEvent.completed(USER_ID, List.of(2L)));
+            return List.of(reminder(1L, today.plusDays(2)), reminder(2L, today.plusDays(2)));
+        });
+
+        taskReminderService.reload(USER_ID, List.of(1L, 2L, 3L));
+
+        assertEquals(1, taskReminderService.getScheduledCount());
+        assertEquals(List.of(reminder(1L, today.plusDays(2))), taskReminderService.advanceTo(today.plusDays(2)).due());
+    }
+
+    @Test
+    void rebuild_LoadsPendingTasksFromToday() {
+        when(taskRepository.streamPendingRemindersFrom(today)).thenReturn(Stream.of(
+                reminder(1L, today),
+                reminder(2L, today.plusDays(1))
+        ));
+
+        assertEquals(2, taskReminderService.rebuild());
+
+        TasksDueEvent event = taskReminderService.advanceTo(today.plusDays(1));
+        assertEquals(List.of(reminder(2L, today.plusDays(1))), event.due());
+        assertEquals(List.of(reminder(1L, today)), event.overdue());
+    }
+
+    @Test
+    void rebuild_ChangesCommittedMeanwhileWin() {
+        TaskSnapshot completed = snapshot(1L, false, today.plusDays(1));
+        when(taskRepository.streamPendingRemindersFrom(today)).thenAnswer(invocation -> {
+            // Committed after the rebuild started, the stream still returns the old row
+            taskReminderService.applyChanges(new TaskChangedEvent(List.of(
+                    TaskChange.updated(completed, completed.withCompleted(true))
+            )));
+            return Stream.of(reminder(1L, today.plusDays(1)), reminder(2L, today.plusDays(1)));
+        });
+
+        assertEquals(1, taskReminderService.rebuild());
+
+        assertEquals(List.of(reminder(2L, today.plusDays(1))), taskReminderService.advanceTo(today.plusDays(1)).due());
+    }
+
+    @Test
+    void rebuild_ReloadFinishedMeanwhileKeepsTrackingChanges() {
+        TaskSnapshot completed = snapshot(1L, false, today.plusDays(1));
+        when(taskRepository.findPendingRemindersByIdIn(USER_ID, List.of(3L), today)).thenReturn(List.of(reminder(3L, today.plusDays(2))));
+        when(taskRepository.streamPendingRemindersFrom(today)).thenAnswer(invocation -> {
+            taskReminderService.reload(USER_ID, List.of(3L));
+            // Committed after the reload finished, the rebuild must still let it win
+            taskReminderService.applyChanges(new TaskChangedEvent(List.of(
+                    TaskChange.updated(completed, completed.withCompleted(true))
+            )));
+            return Stream.of(reminder(1L, today.plusDays(1)), reminder(2L, today.plusDays(1)));
+        });
+
+        assertEquals(2, taskReminderService.rebuild());
+
+        assertEquals(List.of(reminder(2L, today.plusDays(1))), taskReminderService.advanceTo(today.plusDays(1)).due());
+        assertEquals(List.of(reminder(3L, today.plusDays(2))), taskReminderService.advanceTo(today.plusDays(2)).due());
+    }
+
+    private TaskSnapshot snapshot(Long id, boolean completed, LocalDate dueDate) {
+        return new TaskSnapshot(id, USER_ID, "Task " + id, "Description of task " + id, completed, dueDate, 0L);
+    }
+
+    private TaskReminder reminder(Long id, LocalDate dueDate) {
+        return new TaskReminder(id, USER_ID, dueDate);
+    }
+}
@@ -0,0 +1,312 @@
+package com.karolbystrek.todo.rails.elite.service;
+
+import com.karolbystrek.todo.rails.elite.event.TaskChange;
+import com.karolbystrek.todo.rails.elite.event.TaskChangedEvent;
+import com.karolbystrek.todo.rails.elite.event.TasksBulkChangedEvent;
+import com.karolbystrek.todo.rails.elite.model.CursorPage;
+import com.karolbystrek.todo.rails.elite.model.TaskSearchHit;
+import com.karolbystrek.todo.rails.elite.model.TaskSnapshot;
+import com.karolbystrek.todo.rails.elite.model.TaskSummary;
+import com.karolbystrek.todo.rails.elite.repository.TaskRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class TaskSearchServiceTest {
+    private static final Long USER_ID = 1L;
+
+    @Mock
+    private TaskRepository taskRepository;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    private TaskSearchService taskSearchService;
+
+    private final LocalDate today = LocalDate.now();
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        doAnswer(invocation -> {
+            invocation.<Consumer<TransactionStatus>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        taskSearchService = new TaskSearchService(taskRepository, transactionTemplate);
+        taskSearchService.applyChanges(new TaskChangedEvent(List.of(
+                TaskChange.created(snapshot(1L, "Buy groceries", "Milk, bread and coffee.")),
+                TaskChange.created(snapshot(2L, "Write report", "Quarterly report, mention the grocery budget.")),
+                TaskChange.created(snapshot(3L, "Coffee with the team", "Meet at the café.")),
+                TaskChange.created(snapshot(4L, "Groom the dog", "Before the weekend."))
+        )));
+    }
+
+    @Test
+    void search_RanksTitleMatchesFirst() {
+        assertEquals(List.of(3L, 1L), ids(taskSearchService.search(USER_ID, "coffee", null, 10)));
+        assertEquals(List.of(2L), ids(taskSearchService.search(USER_ID, "REPORT", null, 10)));
+    }
+
+    @Test
+    void search_MatchesPrefixesBelowExactMatches() {
+        assertEquals(List.of(1L, 4L, 2L), ids(taskSearchService.search(USER_ID, "gro", null, 10)));
+        assertEquals(List.of(2L), ids(taskSearchService.search(USER_ID, "grocery", null, 10)));
+    }
+
+    @Test
+    void search_RequiresEveryToken() {
+        assertEquals(List.of(1L), ids(taskSearchService.search(USER_ID, "coffee bread", null, 10)));
+        assertTrue(ids(taskSearchService.search(USER_ID, "coffee dog", null, 10)).isEmpty());
+    }
+
+    @Test
+    void search_IgnoresCaseAndAccents() {
+        assertEquals(List.of(3L), ids(taskSearchService.search(USER_ID, "cafe", null, 10)));
+        assertEquals(List.of(3L), ids(taskSearchService.search(USER_ID, "CAFÉ", null, 10)));
+    }
+
+    @Test
+    void search_EmptyQuery() {
+        CursorPage<TaskSearchHit> page = taskSearchService.search(USER_ID, " ,. ", null, 10);
+
+        assertTrue(page.items().isEmpty());
+        assertNull(page.nextCursor());
+    }
+
+    @Test
+    void applyChanges_UpdatesAndRemovesTasks() {
+        TaskSnapshot groceries = snapshot(1L, "Buy groceries", "Milk, bread and coffee.");
+        TaskSnapshot renamed = snapshot(1L, "Buy flowers", "Roses.", 1L);
+        TaskSnapshot dog = snapshot(4L, "Groom the dog", "Before the weekend.");
+
+        taskSearchService.applyChanges(new TaskChangedEvent(List.of(
+                TaskChange.updated(groceries, renamed),
+                TaskChange.deleted(dog)
+        )));
+
+        assertEquals(List.of(2L), ids(taskSearchService.search(USER_ID, "gro", null, 10)));
+        assertEquals(List.of(1L), ids(taskSearchService.search(USER_ID, "roses", null, 10)));
+        assertTrue(ids(taskSearchService.search(USER_ID, "weekend", null, 10)).isEmpty());
+    }
+
+    @Test
+    void applyChanges_KeepsCompletionStateCurrent() {
+        TaskSnapshot report = snapshot(2L, "Write report", "Quarterly report, mention the grocery budget.");
+
+        TaskSnapshot completed = new TaskSnapshot(2L, USER_ID, report.title(), report.description(), true, today, 1L);
+
+        taskSearchService.applyChanges(new TaskChangedEvent(List.of(TaskChange.updated(report, completed))));
+
+        assertTrue(taskSearchService.search(USER_ID, "report", null, 10).items().getFirst().task().completed());
+    }
+
+    @Test
+    void applyChanges_IgnoresStatesOlderThanTheIndexedOne() {
+        TaskSnapshot groceries = snapshot(1L, "Buy groceries", "Milk, bread and coffee.");
+        TaskSnapshot flowers = snapshot(1L, "Buy flowers", "Roses.", 1L);
+        TaskSnapshot plants = snapshot(1L, "Buy plants", "Tulips.", 2L);
+        TaskSnapshot dog = snapshot(4L, "Groom the dog", "Before the weekend.");
+
+        taskSearchService.applyChanges(new TaskChangedEvent(List.of(TaskChange.updated(flowers, plants))));
+        taskSearchService.applyChanges(new TaskChangedEvent(List.of(TaskChange.updated(groceries, flowers))));
+        taskSearchService.applyChanges(new TaskChangedEvent(List.of(TaskChange.deleted(dog))));
+        taskSearchService.applyChanges(new TaskChangedEvent(List.of(TaskChange.updated(dog, snapshot(4L, "Walk the dog", "Late update.", 1L)))));
+
+        assertEquals(List.of(1L), ids(taskSearchService.search(USER_ID, "tulips", null, 10)));
+        assertTrue(ids(taskSearchService.search(USER_ID, "roses", null, 10)).isEmpty());
+        assertTrue(ids(taskSearchService.search(USER_ID, "dog", null, 10)).isEmpty());
+    }
+
+    @Test
+    void sweepTombstones_ForgetsDeletionsAfterAFullInterval() {
+        TaskSnapshot dog = snapshot(4L, "Groom the dog", "Before the weekend.");
+        TaskChangedEvent staleUpdate = new TaskChangedEvent(List.of(TaskChange.updated(dog, snapshot(4L, "Walk the dog", "Late update.", 1L))));
+        taskSearchService.applyChanges(new TaskChangedEvent(List.of(TaskChange.deleted(dog))));
+
+        taskSearchService.sweepTombstones();
+        taskSearchService.applyChanges(staleUpdate);
+
+        assertTrue(ids(taskSearchService.search(USER_ID, "dog", null, 10)).isEmpty());
+
+        taskSearchService.sweepTombstones();
+        taskSearchService.applyChanges(staleUpdate);
+
+        assertEquals(List.of(4L), ids(taskSearchService.search(USER_ID, "dog", null, 10)));
+    }
+
+    @Test
+    void reload_IndexesTheCurrentStateOfTasks() {
+        when(taskRepository.findSnapshotsByIdIn(USER_ID, List.of(1L, 2L))).thenReturn(List.of(
+                new TaskSnapshot(1L, USER_ID, "Buy groceries", "Milk, bread and coffee.", true, today, 1L),
+                snapshot(2L, "Stale report", "Read before the index was current.")
+        ));
+
+        taskSearchService.reload(USER_ID, List.of(1L, 2L));
+
+        assertTrue(taskSearchService.search(USER_ID, "groceries", null, 10).items().getFirst().task().completed());
+        assertEquals(List.of(2L), ids(taskSearchService.search(USER_ID, "quarterly", null, 10)));
+    }
+
+    @Test
+    void applyBulkChanges_CompletesReschedulesAndDeletesOwnTasks() {
+        taskSearchService.applyChanges(new TaskChangedEvent(List.of(
+                TaskChange.created(new TaskSnapshot(5L, 2L, "Coffee beans", "Order more coffee.", false, today, 0L))
+        )));
+
+        taskSearchService.applyBulkChanges(TasksBulkChangedEvent.completed(USER_ID, List.of(1L, 5L)));
+        taskSearchService.applyBulkChanges(TasksBulkChangedEvent.rescheduled(USER_ID, List.of(3L), today.plusDays(2)));
+        taskSearchService.applyBulkChanges(TasksBulkChangedEvent.deleted(USER_ID, List.of(4L, 5L)));
+
+        List<TaskSearchHit> hits = taskSearchService.search(USER_ID, "coffee", null, 10).items();
+        assertEquals(new TaskSummary(3L, "Coffee with the team", false, today.plusDays(2)), hits.get(0).task());
+        assertTrue(hits.get(1).task().completed());
+        assertTrue(ids(taskSearchService.search(USER_ID, "dog", null, 10)).isEmpty());
+        assertFalse(taskSearchService.search(2L, "coffee", null, 10).items().getFirst().task().completed());
+    }
+
+    @Test
+    void search_PaginatesWithCursor() {
+        List<TaskChange> changes = new ArrayList<>();
+        for (long id = 10; id < 35; id++) {
+            changes.add(TaskChange.created(snapshot(id, "Paged task " + id, "Repeated paged words " + "paged ".repeat((int) id % 3))));
+        }
+        taskSearchService.applyChanges(new TaskChangedEvent(changes));
+
+        Set<Long> seen = new HashSet<>();
+        List<TaskSearchHit> hits = new ArrayList<>();
+        String cursor = null;
+        do {
+            CursorPage<TaskSearchHit> page = taskSearchService.search(USER_ID, "paged", cursor, 4);
+            assertTrue(page.items().size() <= 4);
+            page.items().forEach(hit -> assertTrue(seen.add(hit.task().id())));
+            hits.addAll(page.items());
+            cursor = page.nextCursor();
+        } while (cursor != null);
+
+        assertEquals(25, seen.size());
+        for (int i = 1; i < hits.size(); i++) {
+            assertTrue(hits.get(i - 1).score() >= hits.get(i).score());
+        }
+    }
+
+    @Test
+    void search_CursorKeepsScoresOfTheFirstPage() {
+        List<TaskChange> changes = new ArrayList<>();
+        for (long id = 10; id < 20; id++) {
+            changes.add(TaskChange.created(snapshot(id, "Paged task " + id, "paged ".repeat((int) id % 4))));
+        }
+        taskSearchService.applyChanges(new TaskChangedEvent(changes));
+        CursorPage<TaskSearchHit> first = taskSearchService.search(USER_ID, "paged", null, 5);
+
+        // Changes the document count and the postings of the token, which would shift every score
+        taskSearchService.applyChanges(new TaskChangedEvent(List.of(
+                TaskChange.created(snapshot(40L, "Unrelated", "Nothing to see.")),
+                TaskChange.created(snapshot(41L, "Paged again", "Added between the pages."))
+        )));
+        CursorPage<TaskSearchHit> second = taskSearchService.search(USER_ID, "paged", first.nextCursor(), 5);
+
+        Set<Long> seen = new HashSet<>(ids(first));
+        second.items().forEach(hit -> assertTrue(seen.add(hit.task().id())));
+        seen.remove(41L);
+        assertEquals(Set.of(10L, 11L, 12L, 13L, 14L, 15L, 16L, 17L, 18L, 19L), seen);
+        assertTrue(first.items().getLast().score() >= second.items().getFirst().score());
+    }
+
+    @Test
+    void search_Failure_CursorOfAnotherQuery() {
+        List<TaskChange> changes = new ArrayList<>();
+        for (long id = 10; id < 15; id++) {
+            changes.add(TaskChange.created(snapshot(id, "Paged task " + id, "Repeated words.")));
+        }
+        taskSearchService.applyChanges(new TaskChangedEvent(changes));
+        String cursor = taskSearchService.search(USER_ID, "paged", null, 2).nextCursor();
+
+        assertThrows(IllegalArgumentException.class, () -> taskSearchService.search(USER_ID, "paged task", cursor, 2));
+    }
+
+    @Test
+    void search_OnlyFindsTasksOfTheUser() {
+        taskSearchService.applyChanges(new TaskChangedEvent(List.of(
+                TaskChange.created(new TaskSnapshot(5L, 2L, "Coffee beans", "Order more coffee.", false, today, 0L))
+        )));
+
+        assertEquals(List.of(3L, 1L), ids(taskSearchService.search(USER_ID, "coffee", null, 10)));
+        assertEquals(List.of(5L), ids(taskSearchService.search(2L, "coffee", null, 10)));
+        assertTrue(ids(taskSearchService.search(3L, "coffee", null, 10)).isEmpty());
+    }
+
+    @Test
+    void search_Failure_InvalidCursor() {
+        assertThrows(IllegalArgumentException.class, () -> taskSearchService.search(USER_ID, "coffee", "not-a-cursor", 10));
+    }
+
+    @Test
+    void rebuild_IndexesAllTasks() {
+        when(taskRepository.streamAllSnapshots()).thenReturn(Stream.of(snapshot(7L, "Rebuilt task", "Loaded from the database.")));
+
+        int indexed = taskSearchService.rebuild();
+
+        assertEquals(1, indexed);
+        assertEquals(List.of(7L), ids(taskSearchService.search(USER_ID, "database", null, 10)));
+        assertTrue(ids(taskSearchService.search(USER_ID, "coffee", null, 10)).isEmpty());
+    }
+
+    @Test
+    void rebuild_ChangesCommittedMeanwhileTakePrecedence() {
+        TaskSnapshot renamed = snapshot(7L, "Renamed task", "Changed during the rebuild.");
+        TaskSnapshot deleted = snapshot(8L, "Deleted task", "Deleted during the rebuild.");
+        when(taskRepository.streamAllSnapshots()).thenReturn(Stream.of(
+                deleted,
+                snapshot(9L, "Completed task", "Completed during the rebuild.")
+        ).peek(row -> {
+            if (row.id() == 8L) {
+                // Committed while the rows are read: 8 is read stale, 9 before its completion
+                taskSearchService.applyChanges(new TaskChangedEvent(List.of(TaskChange.updated(snapshot(7L, "Old task", "Stale."), renamed))));
+                taskSearchService.applyBulkChanges(TasksBulkChangedEvent.completed(USER_ID, List.of(9L)));
+                taskSearchService.applyChanges(new TaskChangedEvent(List.of(TaskChange.deleted(deleted))));
+            }
+        }));
+
+        when(taskRepository.findSnapshotsByIdIn(USER_ID, List.of(9L))).thenReturn(List.of(
+                new TaskSnapshot(9L, USER_ID, "Completed task", "Completed during the rebuild.", true, today, 1L)
+        ));
+
+        taskSearchService.rebuild();
+        // The completion is read back in the background as well, reading it twice changes nothing
+        taskSearchService.reload(USER_ID, List.of(9L));
+
+        assertEquals(List.of(7L), ids(taskSearchService.search(USER_ID, "renamed", null, 10)));
+        assertTrue(ids(taskSearchService.search(USER_ID, "deleted", null, 10)).isEmpty());
+        assertTrue(taskSearchService.search(USER_ID, "completed", null, 10).items().getFirst().task().completed());
+        assertTrue(ids(taskSearchService.search(USER_ID, "coffee", null, 10)).isEmpty());
+    }
+
+    private TaskSnapshot snapshot(long id, String title, String description) {
+        return snapshot(id, title, description, 0L);
+    }
+
+    private TaskSnapshot snapshot(long id, String title, String description, long version) {
+        return new TaskSnapshot(id, USER_ID, title, description, false, today, version);
+    }
+
+    private static List<Long> ids(CursorPage<TaskSearchHit> page) {
+        return page.items().stream().map(hit -> hit.task().id()).toList();
+    }
+}
@@ -1,77 +1,384 @@
 package com.karolbystrek.todo.rails.elite.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.karolbystrek.todo.rails.elite.event.TaskChange;
+import com.karolbystrek.todo.rails.elite.event.TaskChangedEvent;
+import com.karolbystrek.todo.rails.elite.event.TasksBulkChangedEvent;
+import com.karolbystrek.todo.rails.elite.model.CursorPage;
+import com.karolbystrek.todo.rails.elite.model.DashboardSnapshot;
 import com.karolbystrek.todo.rails.elite.model.Task;
+import com.karolbystrek.todo.rails.elite.model.TaskCounts;
+import com.karolbystrek.todo.rails.elite.model.TaskSnapshot;
+import com.karolbystrek.todo.rails.elite.model.TaskSummary;
+import com.karolbystrek.todo.rails.elite.model.User;
 import com.karolbystrek.todo.rails.elite.repository.TaskRepository;
+import com.karolbystrek.todo.rails.elite.repository.UserRepository;
+import jakarta.validation.ConstraintViolationException;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 
 import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.LongStream;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
 public class TaskServiceTest {
+    private static final Long USER_ID = 1L;
+
     @Mock
     private TaskRepository taskRepository;
 
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private TaskCounterService taskCounterService;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Spy
+    private Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+
     @InjectMocks
     private TaskService taskService;
 
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private User user;
+
     private Task sampleTask;
 
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
+        user = new User("owner", "password", "owner@example.com", "USER");
+        user.setId(USER_ID);
         sampleTask = new Task("Sample Task", "This is a sample task.", false, LocalDate.now());
+        sampleTask.setUser(user);
     }
 
     @Test
     void addTask_Success() {
-        when(taskRepository.findByTitle(sampleTask.getTitle())).thenReturn(Optional.empty());
+        when(taskRepository.findByUserIdAndTitle(USER_ID, sampleTask.getTitle())).thenReturn(Optional.empty());
+        when(userRepository.getReferenceById(USER_ID)).thenReturn(user);
         when(taskRepository.save(sampleTask)).thenReturn(sampleTask);
 
-        Task result = taskService.addTask(sampleTask);
+        Task result = taskService.addTask(USER_ID, sampleTask);
 
         assertNotNull(result);
         assertEquals(sampleTask.getTitle(), result.getTitle());
+        assertSame(user, result.getUser());
         verify(taskRepository, times(1)).save(sampleTask);
+        verify(eventPublisher).publishEvent(new TaskChangedEvent(List.of(TaskChange.created(TaskSnapshot.of(sampleTask)))));
     }
 
     @Test
     void addTask_Failure_TaskAlreadyExists() {
-        when(taskRepository.findByTitle(sampleTask.getTitle())).thenReturn(Optional.of(sampleTask));
+        when(taskRepository.findByUserIdAndTitle(USER_ID, sampleTask.getTitle())).thenReturn(Optional.of(sampleTask));
 
-        Exception exception = assertThrows(RuntimeException.class, () -> taskService.addTask(sampleTask));
+        Exception exception = assertThrows(RuntimeException.class, () -> taskService.addTask(USER_ID, sampleTask));
 
         assertEquals("Task with title '" + sampleTask.getTitle() + "' already exists", exception.getMessage());
         verify(taskRepository, never()).save(sampleTask);
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    @Test
+    void getTaskById_Success() {
+        sampleTask.setId(7L);
+        when(taskRepository.findById(7L)).thenReturn(Optional.of(sampleTask));
+
+        assertSame(sampleTask, taskService.getTaskById(USER_ID, 7L));
+    }
+
+    @Test
+    void getTaskById_Failure_TaskOfAnotherUser() {
+        sampleTask.setId(7L);
+        when(taskRepository.findById(7L)).thenReturn(Optional.of(sampleTask));
+
+        assertThrows(RuntimeException.class, () -> taskService.getTaskById(2L, 7L));
     }
 
     @Test
     void updateTask_Success() {
         Task updatedTask = new Task("Sample Task", "Updated description", true, LocalDate.now());
-        when(taskRepository.findByTitle(sampleTask.getTitle())).thenReturn(Optional.of(sampleTask));
-        when(taskRepository.save(any(Task.class))).thenReturn(updatedTask);
+        when(taskRepository.findByUserIdAndTitle(USER_ID, sampleTask.getTitle())).thenReturn(Optional.of(sampleTask));
+        when(taskRepository.saveAndFlush(any(Task.class))).thenReturn(updatedTask);
 
-        Task result = taskService.updateTask(updatedTask);
+        Task result = taskService.updateTask(USER_ID, updatedTask);
 
         assertNotNull(result);
         assertEquals("Sample Task", result.getTitle());
         assertEquals("Updated description", result.getDescription());
         assertTrue(result.isCompleted());
-        verify(taskRepository).save(any(Task.class));
+        verify(taskRepository).saveAndFlush(any(Task.class));
+    }
+
+    @Test
+    void updateTaskById_Success() {
+        sampleTask.setId(7L);
+        sampleTask.setVersion(3L);
+        Task changes = new Task("Renamed Task", "Updated description", false, LocalDate.now().plusDays(1));
+        when(taskRepository.findById(7L)).thenReturn(Optional.of(sampleTask));
+        when(taskRepository.findByUserIdAndTitle(USER_ID, "Renamed Task")).thenReturn(Optional.empty());
+        when(taskRepository.saveAndFlush(sampleTask)).thenReturn(sampleTask);
+        TaskSnapshot before = TaskSnapshot.of(sampleTask);
+
+        Task result = taskService.updateTask(USER_ID, 7L, 3L, changes);
+
+        assertEquals("Renamed Task", result.getTitle());
+        assertEquals(LocalDate.now().plusDays(1), result.getDueDate());
+        verify(taskRepository).saveAndFlush(sampleTask);
+        verify(eventPublisher).publishEvent(new TaskChangedEvent(List.of(TaskChange.updated(before, TaskSnapshot.of(result)))));
+    }
+
+    @Test
+    void updateTaskById_Failure_StaleVersion() {
+        sampleTask.setId(7L);
+        sampleTask.setVersion(4L);
+        when(taskRepository.findById(7L)).thenReturn(Optional.of(sampleTask));
+
+        assertThrows(
+                ObjectOptimisticLockingFailureException.class,
+                () -> taskService.updateTask(USER_ID, 7L, 3L, new Task("Sample Task", "Lost update", false, LocalDate.now()))
+        );
+        assertEquals("This is a sample task.", sampleTask.getDescription());
+        verify(taskRepository, never()).saveAndFlush(any());
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    @Test
+    void updateTaskById_Failure_TitleTakenByAnotherTask() {
+        sampleTask.setId(7L);
+        Task otherTask = new Task("Other Task", "Already there.", false, LocalDate.now());
+        otherTask.setId(8L);
+        when(taskRepository.findById(7L)).thenReturn(Optional.of(sampleTask));
+        when(taskRepository.findByUserIdAndTitle(USER_ID, "Other Task")).thenReturn(Optional.of(otherTask));
+
+        assertThrows(
+                RuntimeException.class,
+                () -> taskService.updateTask(USER_ID, 7L, null, new Task("Other Task", "Renamed", false, LocalDate.now()))
+        );
+        verify(taskRepository, never()).saveAndFlush(any());
+    }
+
+    @Test
+    void patchTask_Success() throws Exception {
+        sampleTask.setId(7L);
+        sampleTask.setVersion(2L);
+        when(taskRepository.findById(7L)).thenReturn(Optional.of(sampleTask));
+        when(taskRepository.saveAndFlush(sampleTask)).thenReturn(sampleTask);
+        TaskSnapshot before = TaskSnapshot.of(sampleTask);
+
+        Task result = taskService.patchTask(USER_ID, 7L, 2L, objectMapper.readTree("""
+                {"title": "Patched Task", "dueDate": "2030-01-31"}
+                """));
+
+        assertEquals("Patched Task", result.getTitle());
+        assertEquals("This is a sample task.", result.getDescription());
+        assertEquals(LocalDate.of(2030, 1, 31), result.getDueDate());
+        verify(taskRepository, never()).findByUserIdAndTitle(any(), any());
+        verify(eventPublisher).publishEvent(new TaskChangedEvent(List.of(TaskChange.updated(before, TaskSnapshot.of(result)))));
+    }
+
+    @Test
+    void patchTask_Failure_RemovedTitle() {
+        assertThrows(
+                ConstraintViolationException.class,
+                () -> taskService.patchTask(USER_ID, 7L, null, objectMapper.readTree("{\"title\": null}"))
+        );
+        verify(taskRepository, never()).findById(any());
+    }
+
+    @Test
+    void patchTask_Failure_InvalidPatch() {
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> taskService.patchTask(USER_ID, 7L, null, objectMapper.readTree("{\"id\": 8}"))
+        );
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> taskService.patchTask(USER_ID, 7L, null, objectMapper.readTree("{\"completed\": \"yes\"}"))
+        );
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> taskService.patchTask(USER_ID, 7L, null, objectMapper.readTree("[]"))
+        );
+    }
+
+    @Test
+    void patchTask_Failure_TitleTakenByAnotherTask() {
+        sampleTask.setId(7L);
+        when(taskRepository.findById(7L)).thenReturn(Optional.of(sampleTask));
+        when(taskRepository.saveAndFlush(sampleTask)).thenThrow(new DataIntegrityViolationException("uk_tasks_user_title"));
+
+        assertThrows(
+                RuntimeException.class,
+                () -> taskService.patchTask(USER_ID, 7L, null, objectMapper.readTree("{\"title\": \"Other Task\"}"))
+        );
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    @Test
+    void completeTask_Success() {
+        sampleTask.setId(7L);
+        sampleTask.setVersion(0L);
+        when(taskRepository.findById(7L)).thenReturn(Optional.of(sampleTask));
+        when(taskRepository.saveAndFlush(sampleTask)).thenReturn(sampleTask);
+
+        Task result = taskService.completeTask(USER_ID, 7L, 0L);
+
+        assertTrue(result.isCompleted());
+        verify(eventPublisher).publishEvent(any(TaskChangedEvent.class));
+    }
+
+    @Test
+    void completeTask_AlreadyCompletedIsNotWritten() {
+        sampleTask.setId(7L);
+        sampleTask.setCompleted(true);
+        when(taskRepository.findById(7L)).thenReturn(Optional.of(sampleTask));
+
+        taskService.completeTask(USER_ID, 7L, null);
+
+        verify(taskRepository, never()).saveAndFlush(any());
+        verify(eventPublisher, never()).publishEvent(any());
     }
 
     @Test
     void deleteTask_Success() {
-        when(taskRepository.findByTitle(sampleTask.getTitle())).thenReturn(Optional.of(sampleTask));
+        when(taskRepository.findByUserIdAndTitle(USER_ID, sampleTask.getTitle())).thenReturn(Optional.of(sampleTask));
 
-        taskService.deleteTask(sampleTask);
+        taskService.deleteTask(USER_ID, new Task("Sample Task", "Bound from a form.", false, LocalDate.now()));
 
         verify(taskRepository, times(1)).delete(sampleTask);
     }
+
+    @Test
+    void getDashboardSnapshot_Success() {
+        TaskSummary todayTask = new TaskSummary(1L, "Sample Task", false, LocalDate.now());
+        TaskSummary futureTask = new TaskSummary(2L, "Future Task", false, LocalDate.now().plusWeeks(1));
+        when(taskCounterService.getCounts(USER_ID)).thenReturn(new TaskCounts(3, 2, 1, 1));
+        when(taskRepository.findSummariesByUserIdAndCompletedOrderByDueDateAsc(USER_ID, false)).thenReturn(List.of(todayTask, futureTask));
+
+        DashboardSnapshot result = taskService.getDashboardSnapshot(USER_ID);
+
+        assertEquals(2, result.counts().pending());
+        assertEquals(List.of(todayTask, futureTask), result.pendingTasks());
+        assertEquals(List.of(todayTask), result.todayTasks());
+        verify(taskRepository, never()).findAll();
+    }
+
+    @Test
+    void getDashboardSnapshot_NoPendingTasks() {
+        when(taskCounterService.getCounts(USER_ID)).thenReturn(new TaskCounts(1, 0, 0, 1));
+
+        DashboardSnapshot result = taskService.getDashboardSnapshot(USER_ID);
+
+        assertTrue(result.pendingTasks().isEmpty());
+        assertTrue(result.todayTasks().isEmpty());
+        verify(taskRepository, never()).findSummariesByUserIdAndCompletedOrderByDueDateAsc(any(), anyBoolean());
+    }
+
+    @Test
+    void getTasksPage_ReturnsCursorForNextPage() {
+        TaskSummary summary = new TaskSummary(42L, "Sample Task", false, LocalDate.now());
+        when(taskRepository.findSummariesByUserIdOrderByDueDateAscIdAsc(USER_ID, ScrollPosition.keyset(), Limit.of(1)))
+                .thenReturn(Window.from(List.of(summary), ScrollPosition::offset, true));
+        when(taskRepository.findSummariesByUserIdOrderByDueDateAscIdAsc(eq(USER_ID), any(KeysetScrollPosition.class), eq(Limit.of(1))))
+                .thenReturn(Window.from(List.of(summary), ScrollPosition::offset, true))
+                .thenReturn(Window.from(List.of(), ScrollPosition::offset, false));
+
+        CursorPage<TaskSummary> firstPage = taskService.getTasksPage(USER_ID, null, 1);
+        CursorPage<TaskSummary> secondPage = taskService.getTasksPage(USER_ID, firstPage.nextCursor(), 1);
+
+        assertEquals(List.of(summary), firstPage.items());
+        assertNotNull(firstPage.nextCursor());
+        assertTrue(secondPage.items().isEmpty());
+        assertNull(secondPage.nextCursor());
+        verify(taskRepository).findSummariesByUserIdOrderByDueDateAscIdAsc(
+                USER_ID,
+                ScrollPosition.forward(Map.of("dueDate", summary.dueDate(), "id", 42L)),
+                Limit.of(1)
+        );
+    }
+
+    @Test
+    void getTasksPage_Failure_InvalidCursor() {
+        assertThrows(IllegalArgumentException.class, () -> taskService.getTasksPage(USER_ID, "not-a-cursor", 10));
+    }
+
+    @Test
+    void completeTasks_Success() {
+        when(taskRepository.completeByIdIn(USER_ID, List.of(1L, 2L))).thenReturn(1);
+
+        int completed = taskService.completeTasks(USER_ID, List.of(1L, 2L, 1L));
+
+        assertEquals(1, completed);
+        verify(taskRepository, times(1)).completeByIdIn(USER_ID, List.of(1L, 2L));
+        verify(taskCounterService).countCompleted(USER_ID, 1);
+        verify(eventPublisher).publishEvent(TasksBulkChangedEvent.completed(USER_ID, List.of(1L, 2L)));
+        verify(taskRepository, never()).findById(anyLong());
+        verify(taskRepository, never()).save(any(Task.class));
+    }
+
+    @Test
+    void completeTasks_NothingChangedIsNotPublished() {
+        when(taskRepository.completeByIdIn(USER_ID, List.of(2L))).thenReturn(0);
+
+        assertEquals(0, taskService.completeTasks(USER_ID, List.of(2L)));
+
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    @Test
+    void completeTasks_EmptyIds() {
+        int completed = taskService.completeTasks(USER_ID, List.of());
+
+        assertEquals(0, completed);
+        verify(taskRepository, never()).completeByIdIn(any(), anyCollection());
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    @Test
+    void deleteTasks_SplitsLargeIdListsIntoChunks() {
+        List<Long> ids = LongStream.rangeClosed(1, TaskService.BULK_CHUNK_SIZE * 2L + 1).boxed().toList();
+        when(taskRepository.deleteByIdIn(eq(USER_ID), anyCollection())).thenAnswer(invocation -> invocation.<List<Long>>getArgument(1).size());
+
+        int deleted = taskService.deleteTasks(USER_ID, ids);
+
+        assertEquals(ids.size(), deleted);
+        verify(taskCounterService, times(3)).countDeleted(eq(USER_ID), anyCollection());
+        verify(taskRepository, times(3)).deleteByIdIn(eq(USER_ID), anyCollection());
+        verify(eventPublisher).publishEvent(TasksBulkChangedEvent.deleted(USER_ID, ids));
+    }
+
+    @Test
+    void rescheduleTasks_Success() {
+        LocalDate nextWeek = LocalDate.now().plusWeeks(1);
+        when(taskRepository.rescheduleByIdIn(USER_ID, List.of(5L), nextWeek)).thenReturn(1);
+
+        int rescheduled = taskService.rescheduleTasks(USER_ID, List.of(5L), nextWeek);
+
+        assertEquals(1, rescheduled);
+        verify(eventPublisher).publishEvent(TasksBulkChangedEvent.rescheduled(USER_ID, List.of(5L), nextWeek));
+        verifyNoInteractions(taskCounterService);
+    }
 }
@@ -0,0 +1,27 @@
+package com.karolbystrek.todo.rails.elite.service;
+
+import jakarta.validation.ConstraintViolationException;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+public class TaskServiceValidationTest {
+
+    @Autowired
+    private TaskService taskService;
+
+    @Test
+    void rescheduleTasks_Failure_MissingDueDate() {
+        assertThrows(ConstraintViolationException.class, () -> taskService.rescheduleTasks(1L, List.of(5L), null));
+    }
+
+    @Test
+    void completeTasks_Failure_MissingIds() {
+        assertThrows(ConstraintViolationException.class, () -> taskService.completeTasks(1L, null));
+    }
+}
@@ -0,0 +1,170 @@
+package com.karolbystrek.todo.rails.elite.service;
+
+import com.karolbystrek.todo.rails.elite.config.WriteBehindProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class TaskWriteBehindServiceTest {
+    private static final Long USER_ID = 1L;
+
+    @Mock
+    private TaskService taskService;
+
+    @Mock
+    private ObjectProvider<TaskService> taskServiceProvider;
+
+    @Mock
+    private TaskDataVersionService taskDataVersionService;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    private TaskWriteBehindService taskWriteBehindService;
+
+    private final LocalDate tomorrow = LocalDate.now().plusDays(1);
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(taskServiceProvider.getObject()).thenReturn(taskService);
+        doAnswer(invocation -> {
+            invocation.<Consumer<TransactionStatus>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+        taskWriteBehindService = writeBehind(true, 100);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        taskWriteBehindService.drain();
+    }
+
+    @Test
+    void flush_CollapsesRepeatedCommandsOnATask() {
+        taskWriteBehindService.completeTasks(USER_ID, List.of(1L, 2L));
+        taskWriteBehindService.completeTasks(USER_ID, List.of(1L));
+        taskWriteBehindService.rescheduleTasks(USER_ID, List.of(1L, 3L), LocalDate.now());
+        taskWriteBehindService.rescheduleTasks(USER_ID, List.of(1L), tomorrow);
+
+        assertEquals(3, taskWriteBehindService.getPendingCount());
+        verifyNoInteractions(taskService);
+
+        assertEquals(3, taskWriteBehindService.flush(USER_ID));
+
+        verify(taskService).completeTasks(USER_ID, List.of(1L, 2L));
+        verify(taskService).rescheduleTasks(USER_ID, List.of(1L), tomorrow);
+        verify(taskService).rescheduleTasks(USER_ID, List.of(3L), LocalDate.now());
+        verify(transactionTemplate).executeWithoutResult(any());
+        verify(taskDataVersionService, times(4)).invalidate(USER_ID);
+        assertEquals(0, taskWriteBehindService.getPendingCount());
+        assertEquals(0, taskWriteBehindService.flush(USER_ID));
+    }
+
+    @Test
+    void flushAll_WritesEveryUserInItsOwnTransaction() {
+        taskWriteBehindService.completeTasks(USER_ID, List.of(1L));
+        taskWriteBehindService.completeTasks(2L, List.of(2L));
+
+        assertEquals(2, taskWriteBehindService.flushAll());
+
+        verify(taskService).completeTasks(USER_ID, List.of(1L));
+        verify(taskService).completeTasks(2L, List.of(2L));
+        verify(transactionTemplate, times(2)).executeWithoutResult(any());
+    }
+
+    @Test
+    void flushAll_Failure_WritesOtherUsers() {
+        doThrow(new IllegalStateException("Lock wait timeout")).when(taskService).completeTasks(eq(USER_ID), any());
+        taskWriteBehindService.completeTasks(USER_ID, List.of(1L));
+        taskWriteBehindService.completeTasks(2L, List.of(2L));
+
+        assertEquals(1, taskWriteBehindService.flushAll());
+
+        verify(taskService).completeTasks(2L, List.of(2L));
+        assertEquals(1, taskWriteBehindService.getPendingCount());
+    }
+
+    @Test
+    void completeTasks_FlushesOnceTheBatchIsFull() throws InterruptedException {
+        taskWriteBehindService.drain();
+        taskWriteBehindService = writeBehind(true, 2);
+
+        taskWriteBehindService.completeTasks(USER_ID, List.of(1L, 2L));
+
+        verify(taskService, timeout(5000)).completeTasks(USER_ID, List.of(1L, 2L));
+    }
+
+    @Test
+    void flush_Failure_KeepsCommandsQueued() {
+        doThrow(new IllegalStateException("Database unavailable"))
+                .doReturn(1)
+                .when(taskService).completeTasks(eq(USER_ID), any());
+        taskWriteBehindService.completeTasks(USER_ID, List.of(1L));
+
+        assertThrows(IllegalStateException.class, () -> taskWriteBehindService.flush(USER_ID));
+        assertEquals(1, taskWriteBehindService.getPendingCount());
+
+        assertEquals(1, taskWriteBehindService.flush(USER_ID));
+        verify(taskService, times(2)).completeTasks(USER_ID, List.of(1L));
+    }
+
+    @Test
+    void flush_Failure_DropsCommandsAfterMaxAttempts() {
+        doThrow(new IllegalStateException("Constraint violation")).when(taskService).completeTasks(eq(USER_ID), any());
+        taskWriteBehindService.completeTasks(USER_ID, List.of(1L));
+
+        for (int attempt = 0; attempt < 3; attempt++) {
+            assertThrows(IllegalStateException.class, () -> taskWriteBehindService.flush(USER_ID));
+        }
+
+        assertEquals(0, taskWriteBehindService.getPendingCount());
+        assertEquals(0, taskWriteBehindService.flush(USER_ID));
+        verify(taskService, times(3)).completeTasks(USER_ID, List.of(1L));
+    }
+
+    @Test
+    void drain_WritesQueuedCommands() throws InterruptedException {
+        taskWriteBehindService.rescheduleTasks(USER_ID, List.of(1L), tomorrow);
+
+        taskWriteBehindService.drain();
+
+        verify(taskService).rescheduleTasks(USER_ID, List.of(1L), tomorrow);
+    }
+
+    @Test
+    void completeTasks_DisabledWritesRightAway() {
+        taskWriteBehindService = writeBehind(false, 100);
+
+        taskWriteBehindService.completeTasks(USER_ID, List.of(1L));
+        taskWriteBehindService.rescheduleTasks(USER_ID, List.of(1L), tomorrow);
+
+        assertFalse(taskWriteBehindService.isEnabled());
+        verify(taskService).completeTasks(USER_ID, List.of(1L));
+        verify(taskService).rescheduleTasks(USER_ID, List.of(1L), tomorrow);
+        verifyNoInteractions(transactionTemplate);
+        assertEquals(0, taskWriteBehindService.getPendingCount());
+    }
+
+    private TaskWriteBehindService writeBehind(boolean enabled, int maxBatchSize) {
+        return new TaskWriteBehindService(
+                taskServiceProvider,
+                taskDataVersionService,
+                transactionTemplate,
+                new WriteBehindProperties(enabled, maxBatchSize, Duration.ofHours(1), 3)
+        );
+    }
+}
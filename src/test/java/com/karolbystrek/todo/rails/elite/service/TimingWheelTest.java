@@ -0,0 +1,117 @@
+package com.karolbystrek.todo.rails.elite.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TimingWheelTest {
+    // Not aligned to any slot boundary
+    private static final long START_DAY = 20_000 + 37;
+    // Two levels span 4096 days, so every level and the overflow list are reached quickly
+    private static final int LEVELS = 2;
+
+    private TimingWheel<Long, String> wheel;
+
+    @BeforeEach
+    void setUp() {
+        wheel = new TimingWheel<>(START_DAY, LEVELS);
+    }
+
+    @Test
+    void tick_ExpiresTimersOnTheirDay() {
+        wheel.add(1L, "tomorrow", START_DAY + 1);
+        wheel.add(2L, "in two days", START_DAY + 2);
+
+        assertEquals(List.of("tomorrow"), wheel.tick());
+        assertEquals(List.of("in two days"), wheel.tick());
+        assertEquals(List.of(), wheel.tick());
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void tick_CascadesTimersFromEveryLevel() {
+        Map<Long, List<Long>> expected = new HashMap<>();
+        Random random = new Random(42);
+        long horizon = 2L * TimingWheel.SLOTS * TimingWheel.SLOTS;
+        for (long key = 0; key < 2000; key++) {
+            long day = START_DAY + 1 + (key < 1000 ? random.nextLong(200) : random.nextLong(horizon));
+            wheel.add(key, "timer " + key, day);
+            expected.computeIfAbsent(day, d -> new ArrayList<>()).add(key);
+        }
+
+        int expired = 0;
+        while (expired < 2000) {
+            List<String> values = wheel.tick();
+            List<Long> keys = expected.getOrDefault(wheel.getCurrentDay(), List.of());
+            assertEquals(keys.size(), values.size(), "Timers expiring on day " + wheel.getCurrentDay());
+            keys.forEach(key -> assertTrue(values.contains("timer " + key)));
+            expired += values.size();
+        }
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void tick_KeepsTimersBeyondTheLastLevel() {
+        long day = START_DAY + 3L * TimingWheel.SLOTS * TimingWheel.SLOTS + 5;
+        wheel.add(1L, "far away", day);
+
+        List<String> expired = new ArrayList<>();
+        while (wheel.getCurrentDay() < day) {
+            expired.addAll(wheel.tick());
+        }
+
+        assertEquals(List.of("far away"), expired);
+    }
+
+    @Test
+    void add_ReplacesTimerWithTheSameKey() {
+        wheel.add(1L, "first", START_DAY + 1);
+        wheel.add(1L, "second", START_DAY + 100);
+
+        assertEquals(1, wheel.size());
+        for (int day = 1; day < 100; day++) {
+            assertEquals(List.of(), wheel.tick());
+        }
+        assertEquals(List.of("second"), wheel.tick());
+    }
+
+    @Test
+    void tick_FullWheelKeepsTimersOfDistantYears() {
+        TimingWheel<Long, String> fullWheel = new TimingWheel<>(START_DAY);
+        long day = START_DAY + 100 * 365;
+        fullWheel.add(1L, "in a century", day);
+
+        List<String> expired = new ArrayList<>();
+        while (fullWheel.getCurrentDay() < day) {
+            expired.addAll(fullWheel.tick());
+        }
+
+        assertEquals(List.of("in a century"), expired);
+    }
+
+    @Test
+    void add_Failure_DayNotInTheFuture() {
+        assertFalse(wheel.add(1L, "today", START_DAY));
+        assertFalse(wheel.add(2L, "yesterday", START_DAY - 1));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void remove_CancelsTimer() {
+        wheel.add(1L, "cancelled", START_DAY + 10_000);
+
+        assertEquals("cancelled", wheel.remove(1L));
+        assertNull(wheel.remove(1L));
+        assertEquals(0, wheel.size());
+        for (int day = 0; day < 10_000; day++) {
+            assertEquals(List.of(), wheel.tick());
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.karolbystrek.todo.rails.elite.service;
 
 import com.karolbystrek.todo.rails.elite.model.User;
 import com.karolbystrek.todo.rails.elite.repository.UserRepository;
+import com.karolbystrek.todo.rails.elite.service.security.UserDetailsCache;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -9,6 +10,8 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.util.List;
 import java.util.Optional;
@@ -26,6 +29,15 @@ class UserServiceTest {
     @Mock
     private BCryptPasswordEncoder passwordEncoder;
 
+    @Mock
+    private UserDetailsCache userDetailsCache;
+
+    @Mock
+    private TaskService taskService;
+
+    @Mock
+    private TaskCounterService taskCounterService;
+
     @InjectMocks
     private UserService userService;
 
@@ -54,6 +66,7 @@ class UserServiceTest {
         assertEquals(user.getUsername(), savedUser.getUsername());
         verify(passwordEncoder).encode(rawPassword);
         verify(userRepository).save(any(User.class));
+        verify(taskCounterService).createCounters(user.getId());
     }
 
     @Test
@@ -62,6 +75,7 @@ class UserServiceTest {
 
         assertThrows(RuntimeException.class, () -> userService.addUser(user));
         verify(userRepository, never()).save(any(User.class));
+        verify(taskCounterService, never()).createCounters(any());
     }
 
     @Test
@@ -133,6 +147,7 @@ class UserServiceTest {
 
         assertNotNull(updatedUser);
         verify(userRepository).save(any(User.class));
+        verify(userDetailsCache).evict(user.getUsername());
     }
 
     @Test
@@ -141,15 +156,34 @@ class UserServiceTest {
 
         assertThrows(RuntimeException.class, () -> userService.updateUser(user));
         verify(userRepository, never()).save(any(User.class));
+        verify(userDetailsCache, never()).evict(any());
     }
 
     @Test
-    void givenExistingUser_whenDeleteUser_thenUserDeleted() {
+    void givenExistingUser_whenDeleteUser_thenUserAndTasksDeleted() {
         when(userRepository.findByUsername(user.getUsername())).thenReturn(Optional.of(user));
 
         userService.deleteUser(user);
 
+        verify(taskService).deleteAllTasks(user.getId());
+        verify(taskCounterService).deleteCounters(user.getId());
         verify(userRepository).delete(user);
+        verify(userDetailsCache).evict(user.getUsername());
+    }
+
+    @Test
+    void givenTransaction_whenDeleteUser_thenCacheEvictedAfterCommit() {
+        when(userRepository.findByUsername(user.getUsername())).thenReturn(Optional.of(user));
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            userService.deleteUser(user);
+
+            verify(userDetailsCache, never()).evict(any());
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+            verify(userDetailsCache).evict(user.getUsername());
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
     }
 
     @Test
@@ -157,6 +191,7 @@ class UserServiceTest {
         when(userRepository.findByUsername(user.getUsername())).thenReturn(Optional.empty());
 
         assertThrows(RuntimeException.class, () -> userService.deleteUser(user));
+        verify(taskService, never()).deleteAllTasks(any());
         verify(userRepository, never()).delete(any(User.class));
     }
 
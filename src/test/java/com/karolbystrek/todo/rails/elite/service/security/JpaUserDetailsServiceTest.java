@@ -0,0 +1,75 @@
+package com.karolbystrek.todo.rails.elite.service.security;
+
+import com.karolbystrek.todo.rails.elite.config.UserCacheProperties;
+import com.karolbystrek.todo.rails.elite.model.User;
+import com.karolbystrek.todo.rails.elite.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class JpaUserDetailsServiceTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    private UserDetailsCache userDetailsCache;
+    private JpaUserDetailsService userDetailsService;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        userDetailsCache = new UserDetailsCache(new UserCacheProperties(100, Duration.ofMinutes(5)));
+        userDetailsService = new JpaUserDetailsService(userRepository, userDetailsCache);
+        user = new User("testuser", "password", "test@email.com", "USER, ADMIN");
+        user.setId(1L);
+    }
+
+    @Test
+    void givenExistingUser_whenLoadUserByUsernameTwice_thenRepositoryQueriedOnce() {
+        when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(user));
+
+        UserDetails first = userDetailsService.loadUserByUsername("testuser");
+        UserDetails second = userDetailsService.loadUserByUsername("testuser");
+
+        assertSame(first, second);
+        assertEquals("testuser", first.getUsername());
+        assertEquals(2, first.getAuthorities().size());
+        assertTrue(first.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .anyMatch("ADMIN"::equals));
+        verify(userRepository, times(1)).findByUsername("testuser");
+    }
+
+    @Test
+    void givenEvictedUser_whenLoadUserByUsername_thenReloadFromRepository() {
+        when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(user));
+
+        userDetailsService.loadUserByUsername("testuser");
+        userDetailsCache.evict("testuser");
+        userDetailsService.loadUserByUsername("testuser");
+
+        verify(userRepository, times(2)).findByUsername("testuser");
+    }
+
+    @Test
+    void givenNonExistingUser_whenLoadUserByUsername_thenThrowExceptionAndDoNotCache() {
+        when(userRepository.findByUsername("ghost")).thenReturn(Optional.empty());
+
+        assertThrows(UsernameNotFoundException.class, () -> userDetailsService.loadUserByUsername("ghost"));
+        assertThrows(UsernameNotFoundException.class, () -> userDetailsService.loadUserByUsername("ghost"));
+
+        verify(userRepository, times(2)).findByUsername("ghost");
+    }
+}